@@ -1,14 +1,23 @@
 package com.nisovin.shopkeepers.compat.v1_13_R2;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.craftbukkit.v1_13_R2.CraftWorld;
 import org.bukkit.craftbukkit.v1_13_R2.entity.CraftEntity;
 import org.bukkit.craftbukkit.v1_13_R2.entity.CraftLivingEntity;
 import org.bukkit.craftbukkit.v1_13_R2.entity.CraftPlayer;
 import org.bukkit.craftbukkit.v1_13_R2.entity.CraftVillager;
 import org.bukkit.craftbukkit.v1_13_R2.inventory.CraftItemStack;
 import org.bukkit.craftbukkit.v1_13_R2.inventory.CraftMerchant;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
@@ -17,26 +26,81 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.Merchant;
 import org.bukkit.inventory.MerchantInventory;
 
+import com.nisovin.shopkeepers.compat.api.ItemMatcher;
 import com.nisovin.shopkeepers.compat.api.NMSCallProvider;
-import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.compat.api.VirtualEntity;
+import com.nisovin.shopkeepers.compat.api.VirtualEntityInteractionListener;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import net.minecraft.server.v1_13_R2.BlockPosition;
 import net.minecraft.server.v1_13_R2.Entity;
 import net.minecraft.server.v1_13_R2.EntityHuman;
 import net.minecraft.server.v1_13_R2.EntityInsentient;
 import net.minecraft.server.v1_13_R2.EntityLiving;
-import net.minecraft.server.v1_13_R2.GameProfileSerializer;
+import net.minecraft.server.v1_13_R2.EntityPlayer;
+import net.minecraft.server.v1_13_R2.EnumHand;
 import net.minecraft.server.v1_13_R2.IMerchant;
 import net.minecraft.server.v1_13_R2.MerchantRecipeList;
+import net.minecraft.server.v1_13_R2.MinecraftServer;
+import net.minecraft.server.v1_13_R2.NBTBase;
 import net.minecraft.server.v1_13_R2.NBTTagCompound;
 import net.minecraft.server.v1_13_R2.PacketDataSerializer;
+import net.minecraft.server.v1_13_R2.PacketPlayInUseEntity;
+import net.minecraft.server.v1_13_R2.PacketPlayInUseEntity.EnumEntityUseAction;
 import net.minecraft.server.v1_13_R2.PacketPlayOutCustomPayload;
 import net.minecraft.server.v1_13_R2.PathfinderGoalFloat;
 import net.minecraft.server.v1_13_R2.PathfinderGoalLookAtPlayer;
 import net.minecraft.server.v1_13_R2.PathfinderGoalSelector;
+import net.minecraft.server.v1_13_R2.WorldServer;
 
 public final class NMSHandler implements NMSCallProvider {
 
+	// reflective accessors, resolved once during construction:
+	// construction fails if any of these cannot be resolved (ex. if the server internals have changed), in which
+	// case the plugin falls back to the compatibility mode
+	private final MethodHandle goalSelectorGoalsGetter; // PathfinderGoalSelector#b
+	private final MethodHandle goalSelectorActiveGoalsGetter; // PathfinderGoalSelector#c
+	private final MethodHandle useEntityIdGetter; // PacketPlayInUseEntity#a
+	private final MethodHandle itemStackHandleGetter; // CraftItemStack#handle
+	// optional, null if the server's tick durations are not available (ex. on forks with a modified tick loop):
+	private final MethodHandle tickTimesGetter; // MinecraftServer's array of recent tick durations
+
+	public NMSHandler() throws Exception {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodType setGetterType = MethodType.methodType(Set.class, PathfinderGoalSelector.class);
+		goalSelectorGoalsGetter = getFieldGetter(lookup, PathfinderGoalSelector.class, "b", setGetterType);
+		goalSelectorActiveGoalsGetter = getFieldGetter(lookup, PathfinderGoalSelector.class, "c", setGetterType);
+		useEntityIdGetter = getFieldGetter(lookup, PacketPlayInUseEntity.class, "a", MethodType.methodType(int.class, PacketPlayInUseEntity.class));
+		itemStackHandleGetter = getFieldGetter(lookup, CraftItemStack.class, "handle",
+				MethodType.methodType(net.minecraft.server.v1_13_R2.ItemStack.class, CraftItemStack.class));
+		Field tickTimesField = getTickTimesField();
+		tickTimesGetter = (tickTimesField == null) ? null : getFieldGetter(lookup, MinecraftServer.class, tickTimesField.getName(),
+				MethodType.methodType(long[].class, MinecraftServer.class));
+	}
+
+	// the tick durations (in nanoseconds) of the last 100 ticks are stored in the only long array field:
+	private static Field getTickTimesField() {
+		Field tickTimesField = null;
+		for (Field field : MinecraftServer.class.getDeclaredFields()) {
+			if (field.getType() != long[].class) continue;
+			if (tickTimesField != null) return null; // ambiguous
+			tickTimesField = field;
+		}
+		return tickTimesField;
+	}
+
+	private static MethodHandle getFieldGetter(MethodHandles.Lookup lookup, Class<?> clazz, String fieldName, MethodType type) throws Exception {
+		Field field = clazz.getDeclaredField(fieldName);
+		field.setAccessible(true);
+		return lookup.unreflectGetter(field).asType(type);
+	}
+
 	@Override
 	public String getVersionId() {
 		return "1_13_R2";
@@ -44,47 +108,37 @@ public final class NMSHandler implements NMSCallProvider {
 
 	@Override
 	public void overwriteLivingEntityAI(LivingEntity entity) {
-		try {
-			EntityLiving mcLivingEntity = ((CraftLivingEntity) entity).getHandle();
-			// example: armor stands are living, but not insentient
-			if (!(mcLivingEntity instanceof EntityInsentient)) return;
-
-			// make goal selector items accessible:
-			Field bField = PathfinderGoalSelector.class.getDeclaredField("b");
-			bField.setAccessible(true);
-			Field cField = PathfinderGoalSelector.class.getDeclaredField("c");
-			cField.setAccessible(true);
+		EntityLiving mcLivingEntity = ((CraftLivingEntity) entity).getHandle();
+		// example: armor stands are living, but not insentient
+		if (!(mcLivingEntity instanceof EntityInsentient)) return;
+		EntityInsentient mcInsentientEntity = ((EntityInsentient) mcLivingEntity);
 
+		try {
 			// overwrite goal selector:
-			Field goalsField = EntityInsentient.class.getDeclaredField("goalSelector");
-			goalsField.setAccessible(true);
-			PathfinderGoalSelector goals = (PathfinderGoalSelector) goalsField.get(mcLivingEntity);
+			PathfinderGoalSelector goals = mcInsentientEntity.goalSelector;
 
 			// clear old goals:
-			Set<?> goals_b = (Set<?>) bField.get(goals);
-			goals_b.clear();
-			Set<?> goals_c = (Set<?>) cField.get(goals);
-			goals_c.clear();
+			this.clearGoals(goals);
 
 			// add new goals:
-			goals.a(0, new PathfinderGoalFloat((EntityInsentient) mcLivingEntity));
-			goals.a(1, new PathfinderGoalLookAtPlayer((EntityInsentient) mcLivingEntity, EntityHuman.class, 12.0F, 1.0F));
+			goals.a(0, new PathfinderGoalFloat(mcInsentientEntity));
+			goals.a(1, new PathfinderGoalLookAtPlayer(mcInsentientEntity, EntityHuman.class, 12.0F, 1.0F));
 
 			// overwrite target selector:
-			Field targetsField = EntityInsentient.class.getDeclaredField("targetSelector");
-			targetsField.setAccessible(true);
-			PathfinderGoalSelector targets = (PathfinderGoalSelector) targetsField.get(mcLivingEntity);
+			PathfinderGoalSelector targets = mcInsentientEntity.targetSelector;
 
 			// clear old target goals:
-			Set<?> targets_b = (Set<?>) bField.get(targets);
-			targets_b.clear();
-			Set<?> targets_c = (Set<?>) cField.get(targets);
-			targets_c.clear();
-		} catch (Exception e) {
+			this.clearGoals(targets);
+		} catch (Throwable e) {
 			e.printStackTrace();
 		}
 	}
 
+	private void clearGoals(PathfinderGoalSelector goalSelector) throws Throwable {
+		((Set<?>) goalSelectorGoalsGetter.invokeExact(goalSelector)).clear();
+		((Set<?>) goalSelectorActiveGoalsGetter.invokeExact(goalSelector)).clear();
+	}
+
 	@Override
 	public void tickAI(LivingEntity entity) {
 		EntityLiving mcLivingEntity = ((CraftLivingEntity) entity).getHandle();
@@ -117,30 +171,68 @@ public final class NMSHandler implements NMSCallProvider {
 	@Override
 	public boolean matches(ItemStack provided, ItemStack required) {
 		if (provided == required) return true;
-		// if the required item is empty, then the provided item has to be empty as well:
-		if (ItemUtils.isEmpty(required)) return ItemUtils.isEmpty(provided);
-		else if (ItemUtils.isEmpty(provided)) return false;
-		if (provided.getType() != required.getType()) return false;
-		net.minecraft.server.v1_13_R2.ItemStack nmsProvided = CraftItemStack.asNMSCopy(provided);
-		net.minecraft.server.v1_13_R2.ItemStack nmsRequired = CraftItemStack.asNMSCopy(required);
-		// this makes sure that we have a 'damage' tag even if the damage is 0, so in case the required item for some
-		// reason has a damage tag of 0 the items are still considered equal by the following tag comparison:
-		if (ItemUtils.isDamageable(provided.getType())) {
-			nmsProvided.setDamage(nmsProvided.getDamage());
+		return this.createItemMatcher(required).matches(provided);
+	}
+
+	@Override
+	public ItemMatcher createItemMatcher(ItemStack required) {
+		return new NMSItemMatcher(required, itemStackHandleGetter);
+	}
+
+	@Override
+	public int getItemDataHash(ItemStack item) {
+		net.minecraft.server.v1_13_R2.ItemStack nmsItem = this.getHandle(item);
+		NBTTagCompound tag = nmsItem.getTag();
+		if (tag == null) return 0;
+		// the damage might be stored explicitly even if it is 0, so it gets hashed separately (the compound's hash is
+		// the sum of the hashes of its entries):
+		int hash = tag.hashCode();
+		NBTBase damageTag = tag.get("Damage");
+		if (damageTag != null) {
+			hash -= ("Damage".hashCode() ^ damageTag.hashCode());
 		}
-		NBTTagCompound providedTag = nmsProvided.getTag();
-		NBTTagCompound requiredTag = nmsRequired.getTag();
-		return GameProfileSerializer.a(requiredTag, providedTag, false);
+		return 31 * hash + nmsItem.getDamage();
+	}
+
+	// avoids copying the item if it is mirroring a minecraft item stack:
+	private net.minecraft.server.v1_13_R2.ItemStack getHandle(ItemStack item) {
+		if (item instanceof CraftItemStack) {
+			try {
+				net.minecraft.server.v1_13_R2.ItemStack handle = (net.minecraft.server.v1_13_R2.ItemStack) itemStackHandleGetter.invokeExact((CraftItemStack) item);
+				if (handle != null) return handle;
+			} catch (Throwable e) {
+				// fall back to copying the item
+			}
+		}
+		return CraftItemStack.asNMSCopy(item);
 	}
 
 	@Override
 	public void updateTrades(Player player, Merchant merchant) {
-		Inventory inventory = player.getOpenInventory().getTopInventory();
-		if (!(inventory instanceof MerchantInventory)) {
-			return;
+		this.updateTrades(Collections.singletonList(player), merchant);
+	}
+
+	@Override
+	public void updateTrades(Collection<? extends Player> players, Merchant merchant) {
+		ByteBuf encodedRecipes = null; // gets encoded once and then shared by all players
+		for (Player player : players) {
+			Inventory inventory = player.getOpenInventory().getTopInventory();
+			if (!(inventory instanceof MerchantInventory)) {
+				continue;
+			}
+
+			EntityPlayer nmsPlayer = ((CraftPlayer) player).getHandle();
+			if (encodedRecipes == null) {
+				encodedRecipes = this.encodeRecipes(merchant, nmsPlayer);
+			}
+			// the window id differs between players, so it gets prepended to (a view on) the shared recipes data:
+			ByteBuf windowId = Unpooled.buffer(4).writeInt(nmsPlayer.activeContainer.windowId);
+			PacketDataSerializer packetdataserializer = new PacketDataSerializer(Unpooled.wrappedBuffer(windowId, encodedRecipes.duplicate()));
+			nmsPlayer.playerConnection.sendPacket(new PacketPlayOutCustomPayload(PacketPlayOutCustomPayload.a, packetdataserializer)); // TRADER_LIST
 		}
+	}
 
-		// MerchantInventory merchantInventory = (MerchantInventory) inventory;
+	private ByteBuf encodeRecipes(Merchant merchant, EntityPlayer nmsPlayer) {
 		IMerchant nmsMerchant;
 		if (merchant instanceof Villager) {
 			nmsMerchant = ((CraftVillager) merchant).getHandle();
@@ -149,7 +241,7 @@ public final class NMSHandler implements NMSCallProvider {
 		}
 
 		MerchantRecipeList newRecipeList = new MerchantRecipeList();
-		MerchantRecipeList merchantRecipeList = nmsMerchant.getOffers(((CraftPlayer) player).getHandle());
+		MerchantRecipeList merchantRecipeList = nmsMerchant.getOffers(nmsPlayer);
 		if (merchantRecipeList != null) {
 			newRecipeList.addAll(merchantRecipeList);
 		}
@@ -166,8 +258,121 @@ public final class NMSHandler implements NMSCallProvider {
 			}
 		}*/
 		PacketDataSerializer packetdataserializer = new PacketDataSerializer(Unpooled.buffer());
-		packetdataserializer.writeInt(((CraftPlayer) player).getHandle().activeContainer.windowId);
 		newRecipeList.a(packetdataserializer); // serialize
-		((CraftPlayer) player).getHandle().playerConnection.sendPacket(new PacketPlayOutCustomPayload(PacketPlayOutCustomPayload.a, packetdataserializer)); // TRADER_LIST
+		return packetdataserializer;
+	}
+
+	// SERVER
+
+	@Override
+	public boolean supportsTickDurations() {
+		return (tickTimesGetter != null);
+	}
+
+	@Override
+	public double getAverageTickMillis() {
+		if (tickTimesGetter == null) return 0.0D;
+		long[] tickTimes;
+		try {
+			tickTimes = (long[]) tickTimesGetter.invokeExact(MinecraftServer.getServer());
+		} catch (Throwable e) {
+			return 0.0D;
+		}
+		long totalNanos = 0L;
+		int ticks = 0;
+		for (long tickNanos : tickTimes) {
+			if (tickNanos <= 0L) continue; // not yet recorded
+			totalNanos += tickNanos;
+			ticks++;
+		}
+		if (ticks == 0) return 0.0D;
+		return (totalNanos / (double) ticks) * 1.0E-6D;
+	}
+
+	// TILE ENTITIES
+
+	@Override
+	public Object getTileEntity(Block block) {
+		WorldServer world = ((CraftWorld) block.getWorld()).getHandle();
+		return world.getTileEntity(new BlockPosition(block.getX(), block.getY(), block.getZ()));
+	}
+
+	// VIRTUAL ENTITIES
+
+	private static final String VIRTUAL_ENTITY_HANDLER_NAME = "shopkeepers_virtual_entities";
+
+	@Override
+	public boolean supportsVirtualEntities() {
+		return true;
+	}
+
+	@Override
+	public VirtualEntity createVirtualEntity(Location location, EntityType entityType) {
+		Class<? extends org.bukkit.entity.Entity> entityClass = entityType.getEntityClass();
+		if (entityClass == null || !entityType.isAlive()) return null;
+		Entity mcEntity;
+		try {
+			// creates the entity (which also assigns a new entity id), but does not add it to the world:
+			mcEntity = ((CraftWorld) location.getWorld()).createEntity(location, entityClass);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		if (!(mcEntity instanceof EntityLiving)) return null;
+		NMSVirtualEntity virtualEntity = new NMSVirtualEntity((EntityLiving) mcEntity);
+		virtualEntity.setLocation(location);
+		return virtualEntity;
+	}
+
+	@Override
+	public void injectVirtualEntityInteractionListener(Player player, VirtualEntityInteractionListener listener) {
+		Channel channel = ((CraftPlayer) player).getHandle().playerConnection.networkManager.channel;
+		ChannelHandler handler = new ChannelInboundHandlerAdapter() {
+			@Override
+			public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+				if (msg instanceof PacketPlayInUseEntity && handleUseEntity(player, (PacketPlayInUseEntity) msg, listener)) {
+					// consumed:
+					return;
+				}
+				super.channelRead(ctx, msg);
+			}
+		};
+		// modify the pipeline on the channel's own thread:
+		channel.eventLoop().execute(() -> {
+			ChannelPipeline pipeline = channel.pipeline();
+			if (pipeline.get(VIRTUAL_ENTITY_HANDLER_NAME) != null) {
+				pipeline.remove(VIRTUAL_ENTITY_HANDLER_NAME);
+			}
+			if (pipeline.get("packet_handler") != null) {
+				pipeline.addBefore("packet_handler", VIRTUAL_ENTITY_HANDLER_NAME, handler);
+			}
+		});
+	}
+
+	private boolean handleUseEntity(Player player, PacketPlayInUseEntity packet, VirtualEntityInteractionListener listener) {
+		int entityId;
+		try {
+			entityId = (int) useEntityIdGetter.invokeExact(packet);
+		} catch (Throwable e) {
+			return false;
+		}
+		EnumEntityUseAction action = packet.b();
+		boolean attack = (action == EnumEntityUseAction.ATTACK);
+		boolean mainHand = attack || (packet.c() == EnumHand.MAIN_HAND);
+		// the client sends an additional INTERACT_AT for some interactions, which gets consumed but not forwarded:
+		if (action == EnumEntityUseAction.INTERACT_AT) {
+			return listener.isVirtualEntity(entityId);
+		}
+		return listener.onInteract(player, entityId, attack, mainHand);
+	}
+
+	@Override
+	public void uninjectVirtualEntityInteractionListener(Player player) {
+		Channel channel = ((CraftPlayer) player).getHandle().playerConnection.networkManager.channel;
+		channel.eventLoop().execute(() -> {
+			ChannelPipeline pipeline = channel.pipeline();
+			if (pipeline.get(VIRTUAL_ENTITY_HANDLER_NAME) != null) {
+				pipeline.remove(VIRTUAL_ENTITY_HANDLER_NAME);
+			}
+		});
 	}
 }
@@ -0,0 +1,84 @@
+package com.nisovin.shopkeepers.compat.v1_13_R2;
+
+import java.lang.invoke.MethodHandle;
+
+import org.bukkit.Material;
+import org.bukkit.craftbukkit.v1_13_R2.inventory.CraftItemStack;
+import org.bukkit.inventory.ItemStack;
+
+import com.nisovin.shopkeepers.compat.api.ItemMatcher;
+import com.nisovin.shopkeepers.util.ItemUtils;
+
+import net.minecraft.server.v1_13_R2.GameProfileSerializer;
+import net.minecraft.server.v1_13_R2.NBTTagCompound;
+
+/**
+ * Converts the required item only once, and compares the provided items without copying them if possible.
+ */
+final class NMSItemMatcher implements ItemMatcher {
+
+	private static final int NO_REQUIRED_DAMAGE = -1;
+
+	private final MethodHandle itemStackHandleGetter; // CraftItemStack#handle
+	private final Material requiredType; // null if the required item is empty
+	// the required tag without the damage, null if there is no other data to compare:
+	private final NBTTagCompound requiredTag;
+	private final int requiredDamage;
+
+	NMSItemMatcher(ItemStack required, MethodHandle itemStackHandleGetter) {
+		this.itemStackHandleGetter = itemStackHandleGetter;
+		if (ItemUtils.isEmpty(required)) {
+			requiredType = null;
+			requiredTag = null;
+			requiredDamage = NO_REQUIRED_DAMAGE;
+			return;
+		}
+
+		requiredType = required.getType();
+		NBTTagCompound tag = CraftItemStack.asNMSCopy(required).getTag(); // already a copy
+		int damage = NO_REQUIRED_DAMAGE;
+		if (tag != null) {
+			// the provided item's damage gets compared separately, so that a missing damage tag matches a damage of 0:
+			if (ItemUtils.isDamageable(requiredType) && tag.hasKeyOfType("Damage", 99)) {
+				damage = tag.getInt("Damage");
+				tag.remove("Damage");
+			}
+			if (tag.isEmpty()) {
+				tag = null;
+			}
+		}
+		requiredTag = tag;
+		requiredDamage = damage;
+	}
+
+	@Override
+	public boolean matches(ItemStack provided) {
+		// if the required item is empty, then the provided item has to be empty as well:
+		if (requiredType == null) return ItemUtils.isEmpty(provided);
+		else if (ItemUtils.isEmpty(provided)) return false;
+
+		// quick checks first:
+		if (provided.getType() != requiredType) return false;
+		if (requiredTag == null && requiredDamage == NO_REQUIRED_DAMAGE) return true;
+
+		net.minecraft.server.v1_13_R2.ItemStack nmsProvided = this.getHandle(provided);
+		NBTTagCompound providedTag = nmsProvided.getTag();
+		if (providedTag == null && requiredTag != null) return false;
+		if (requiredDamage != NO_REQUIRED_DAMAGE && nmsProvided.getDamage() != requiredDamage) return false;
+		if (requiredTag == null) return true;
+		return GameProfileSerializer.a(requiredTag, providedTag, false);
+	}
+
+	// avoids copying the item if it is mirroring a minecraft item stack:
+	private net.minecraft.server.v1_13_R2.ItemStack getHandle(ItemStack item) {
+		if (item instanceof CraftItemStack) {
+			try {
+				net.minecraft.server.v1_13_R2.ItemStack handle = (net.minecraft.server.v1_13_R2.ItemStack) itemStackHandleGetter.invokeExact((CraftItemStack) item);
+				if (handle != null) return handle;
+			} catch (Throwable e) {
+				// fall back to copying the item
+			}
+		}
+		return CraftItemStack.asNMSCopy(item);
+	}
+}
@@ -0,0 +1,121 @@
+package com.nisovin.shopkeepers.compat.v1_13_R2;
+
+import org.bukkit.Location;
+import org.bukkit.craftbukkit.v1_13_R2.entity.CraftPlayer;
+import org.bukkit.entity.Player;
+
+import com.nisovin.shopkeepers.compat.api.VirtualEntity;
+
+import net.minecraft.server.v1_13_R2.EntityLiving;
+import net.minecraft.server.v1_13_R2.Packet;
+import net.minecraft.server.v1_13_R2.PacketPlayOutEntity;
+import net.minecraft.server.v1_13_R2.PacketPlayOutEntityDestroy;
+import net.minecraft.server.v1_13_R2.PacketPlayOutEntityHeadRotation;
+import net.minecraft.server.v1_13_R2.PacketPlayOutEntityMetadata;
+import net.minecraft.server.v1_13_R2.PacketPlayOutEntityTeleport;
+import net.minecraft.server.v1_13_R2.PacketPlayOutSpawnEntityLiving;
+
+/**
+ * A virtual entity, backed by a minecraft entity which never gets added to the world.
+ * <p>
+ * The minecraft entity only serves as data holder for constructing the entity's packets. It gets assigned a unique
+ * entity id during its construction.
+ */
+class NMSVirtualEntity implements VirtualEntity {
+
+	private final EntityLiving mcEntity;
+
+	NMSVirtualEntity(EntityLiving mcEntity) {
+		assert mcEntity != null;
+		this.mcEntity = mcEntity;
+	}
+
+	private static void sendPacket(Player player, Packet<?> packet) {
+		((CraftPlayer) player).getHandle().playerConnection.sendPacket(packet);
+	}
+
+	private static byte toAngleByte(float degrees) {
+		return (byte) ((int) (degrees * 256.0F / 360.0F));
+	}
+
+	@Override
+	public int getEntityId() {
+		return mcEntity.getId();
+	}
+
+	@Override
+	public Location getLocation() {
+		return mcEntity.getBukkitEntity().getLocation();
+	}
+
+	@Override
+	public Location getLocation(Location location) {
+		if (location == null) return null;
+		location.setWorld(mcEntity.world.getWorld());
+		location.setX(mcEntity.locX);
+		location.setY(mcEntity.locY);
+		location.setZ(mcEntity.locZ);
+		location.setYaw(mcEntity.yaw);
+		location.setPitch(mcEntity.pitch);
+		return location;
+	}
+
+	@Override
+	public void setLocation(Location location) {
+		mcEntity.setPositionRotation(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+		mcEntity.setHeadRotation(location.getYaw());
+	}
+
+	@Override
+	public void setCustomName(String name, boolean alwaysVisible) {
+		if (name == null || name.isEmpty()) {
+			mcEntity.getBukkitEntity().setCustomName(null);
+			mcEntity.getBukkitEntity().setCustomNameVisible(false);
+		} else {
+			mcEntity.getBukkitEntity().setCustomName(name);
+			mcEntity.getBukkitEntity().setCustomNameVisible(alwaysVisible);
+		}
+	}
+
+	@Override
+	public void show(Player player) {
+		sendPacket(player, new PacketPlayOutSpawnEntityLiving(mcEntity));
+		this.sendMetadata(player);
+		sendPacket(player, new PacketPlayOutEntityHeadRotation(mcEntity, toAngleByte(mcEntity.getHeadRotation())));
+	}
+
+	@Override
+	public void hide(Player player) {
+		sendPacket(player, new PacketPlayOutEntityDestroy(mcEntity.getId()));
+	}
+
+	@Override
+	public void sendMetadata(Player player) {
+		// always sending all metadata, since the dirty state of the data watcher is shared among all players:
+		sendPacket(player, new PacketPlayOutEntityMetadata(mcEntity.getId(), mcEntity.getDataWatcher(), true));
+	}
+
+	@Override
+	public void sendLocation(Player player) {
+		sendPacket(player, new PacketPlayOutEntityTeleport(mcEntity));
+		sendPacket(player, new PacketPlayOutEntityHeadRotation(mcEntity, toAngleByte(mcEntity.getHeadRotation())));
+	}
+
+	@Override
+	public int lookAt(Player player, Location target, int lastRotation) {
+		double dx = target.getX() - mcEntity.locX;
+		double dy = target.getY() - (mcEntity.locY + mcEntity.getHeadHeight());
+		double dz = target.getZ() - mcEntity.locZ;
+		double horizontalDistance = Math.sqrt(dx * dx + dz * dz);
+		float yaw = (float) (Math.toDegrees(Math.atan2(dz, dx)) - 90.0D);
+		float pitch = (float) -Math.toDegrees(Math.atan2(dy, horizontalDistance));
+		byte yawByte = toAngleByte(yaw);
+		byte pitchByte = toAngleByte(pitch);
+		// the client only receives the rotation in these angle steps:
+		int rotation = ((yawByte & 0xFF) << 8) | (pitchByte & 0xFF);
+		if (rotation == lastRotation) return rotation;
+		sendPacket(player, new PacketPlayOutEntity.PacketPlayOutEntityLook(mcEntity.getId(), yawByte, pitchByte, true));
+		sendPacket(player, new PacketPlayOutEntityHeadRotation(mcEntity, yawByte));
+		return rotation;
+	}
+}
@@ -30,11 +30,18 @@ public class ShopkeeperTradeEvent extends ShopkeeperEvent implements Cancellable
 	private final ItemStack offeredItem1;
 	private final ItemStack offeredItem2;
 	private final boolean swappedItemOrder;
+	private final int tradeCount;
 	private boolean cancelled = false;
 
 	public ShopkeeperTradeEvent(Shopkeeper shopkeeper, Player player, InventoryClickEvent clickEvent,
 								TradingRecipe tradingRecipe, ItemStack offeredItem1, ItemStack offeredItem2,
 								boolean swappedItemOrder) {
+		this(shopkeeper, player, clickEvent, tradingRecipe, offeredItem1, offeredItem2, swappedItemOrder, 1);
+	}
+
+	public ShopkeeperTradeEvent(Shopkeeper shopkeeper, Player player, InventoryClickEvent clickEvent,
+								TradingRecipe tradingRecipe, ItemStack offeredItem1, ItemStack offeredItem2,
+								boolean swappedItemOrder, int tradeCount) {
 		super(shopkeeper);
 		this.player = player;
 		this.clickEvent = clickEvent;
@@ -42,6 +49,7 @@ public class ShopkeeperTradeEvent extends ShopkeeperEvent implements Cancellable
 		this.offeredItem1 = offeredItem1;
 		this.offeredItem2 = offeredItem2;
 		this.swappedItemOrder = swappedItemOrder;
+		this.tradeCount = tradeCount;
 	}
 
 	/**
@@ -114,6 +122,18 @@ public class ShopkeeperTradeEvent extends ShopkeeperEvent implements Cancellable
 		return swappedItemOrder;
 	}
 
+	/**
+	 * Gets the number of times the trading recipe gets applied by this trade.
+	 * <p>
+	 * If enabled in the config ('bulk-trading', disabled by default), shift-click trades get handled in bulk: All
+	 * trades of the same trading recipe are then represented by a single event.
+	 * 
+	 * @return the number of trades, at least <code>1</code>
+	 */
+	public int getTradeCount() {
+		return tradeCount;
+	}
+
 	/**
 	 * If cancelled the trade will not take place.
 	 */
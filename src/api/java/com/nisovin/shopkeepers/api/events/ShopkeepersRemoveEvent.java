@@ -0,0 +1,64 @@
+package com.nisovin.shopkeepers.api.events;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
+
+/**
+ * This event is called whenever multiple {@link Shopkeeper Shopkeepers} are about to get removed from the
+ * {@link ShopkeeperRegistry} at once (ex. via {@link ShopkeeperRegistry#deleteShopkeepers(Collection)}).
+ * <p>
+ * This event gets called instead of individual {@link ShopkeeperRemoveEvent ShopkeeperRemoveEvents} for each of the
+ * involved shopkeepers.
+ * <p>
+ * The shopkeepers have already been deactivated at this point.
+ */
+public class ShopkeepersRemoveEvent extends Event {
+
+	private final List<Shopkeeper> shopkeepers;
+	private final ShopkeeperRemoveEvent.Cause cause;
+
+	public ShopkeepersRemoveEvent(Collection<? extends Shopkeeper> shopkeepers, ShopkeeperRemoveEvent.Cause cause) {
+		Validate.notNull(shopkeepers, "Shopkeepers is null!");
+		Validate.notNull(cause, "Cause is null!");
+		this.shopkeepers = Collections.unmodifiableList(new ArrayList<>(shopkeepers));
+		this.cause = cause;
+	}
+
+	/**
+	 * Gets the shopkeepers involved in this event.
+	 * 
+	 * @return an unmodifiable view on the shopkeepers
+	 */
+	public List<Shopkeeper> getShopkeepers() {
+		return shopkeepers;
+	}
+
+	/**
+	 * Gets the {@link ShopkeeperRemoveEvent.Cause}.
+	 * 
+	 * @return the cause
+	 */
+	public ShopkeeperRemoveEvent.Cause getCause() {
+		return cause;
+	}
+
+	private static final HandlerList handlers = new HandlerList();
+
+	@Override
+	public HandlerList getHandlers() {
+		return handlers;
+	}
+
+	public static HandlerList getHandlerList() {
+		return handlers;
+	}
+}
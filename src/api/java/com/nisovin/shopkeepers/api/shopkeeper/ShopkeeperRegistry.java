@@ -35,6 +35,37 @@ public interface ShopkeeperRegistry {
 	 */
 	public Shopkeeper createShopkeeper(ShopCreationData creationData) throws ShopkeeperCreateException;
 
+	/**
+	 * Creates multiple shopkeepers at once.
+	 * <p>
+	 * This is more efficient than creating the shopkeepers one by one: Instead of individual
+	 * {@link com.nisovin.shopkeepers.api.events.ShopkeeperAddedEvent ShopkeeperAddedEvents}, a single
+	 * {@link com.nisovin.shopkeepers.api.events.ShopkeepersAddedEvent} gets called for all created shopkeepers. The
+	 * shopkeepers in currently loaded chunks get spawned gradually over the next ticks, and a single save gets
+	 * triggered once all shopkeepers have been added.
+	 * <p>
+	 * If any of the shopkeepers cannot be created, none of them get added.
+	 * 
+	 * @param creationData
+	 *            the shop creation data for each of the shopkeepers to create
+	 * @return an unmodifiable list of the created shopkeepers, in the same order as their creation data
+	 * @throws ShopkeeperCreateException
+	 *             if any of the shopkeepers could not be created
+	 */
+	public List<? extends Shopkeeper> createShopkeepers(Collection<? extends ShopCreationData> creationData) throws ShopkeeperCreateException;
+
+	/**
+	 * Deletes multiple shopkeepers at once.
+	 * <p>
+	 * Instead of individual {@link com.nisovin.shopkeepers.api.events.ShopkeeperRemoveEvent ShopkeeperRemoveEvents},
+	 * a single {@link com.nisovin.shopkeepers.api.events.ShopkeepersRemoveEvent} gets called for all deleted
+	 * shopkeepers. A single save gets triggered once all shopkeepers have been removed.
+	 * 
+	 * @param shopkeepers
+	 *            the shopkeepers to delete
+	 */
+	public void deleteShopkeepers(Collection<? extends Shopkeeper> shopkeepers);
+
 	/**
 	 * Recreates a shopkeeper by loading its previously saved data from the given config section.
 	 * 
@@ -93,6 +93,17 @@ public interface PlayerShopkeeper extends Shopkeeper {
 
 	public int getCurrencyInChest();
 
+	/**
+	 * Gets the amount of items similar to the given item inside the shop's chest.
+	 * <p>
+	 * The contents of the chest are kept track of, so this usually doesn't require counting the chest contents.
+	 * 
+	 * @param item
+	 *            the item
+	 * @return the amount of similar items, <code>0</code> if there are none or if the chest couldn't be found
+	 */
+	public int getAmountInChest(ItemStack item);
+
 	// SHOPKEEPER UIs - shortcuts for common UI types:
 
 	/**
@@ -3,7 +3,10 @@ package com.nisovin.shopkeepers;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 
@@ -27,7 +30,6 @@ import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.events.ShopkeeperRemoveEvent;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopType;
-import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.chestprotection.ProtectedChests;
@@ -51,16 +53,20 @@ import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.SKShopTypesRegistry;
 import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
 import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
 import com.nisovin.shopkeepers.shopobjects.SKDefaultShopObjectTypes;
 import com.nisovin.shopkeepers.shopobjects.SKShopObjectTypesRegistry;
 import com.nisovin.shopkeepers.shopobjects.citizens.CitizensShops;
 import com.nisovin.shopkeepers.shopobjects.living.LivingShops;
 import com.nisovin.shopkeepers.shopobjects.sign.SignShops;
+import com.nisovin.shopkeepers.shopobjects.virtual.VirtualShops;
 import com.nisovin.shopkeepers.storage.SKShopkeeperStorage;
 import com.nisovin.shopkeepers.tradelogging.TradeFileLogger;
 import com.nisovin.shopkeepers.ui.SKUIRegistry;
 import com.nisovin.shopkeepers.ui.defaults.SKDefaultUITypes;
+import com.nisovin.shopkeepers.util.LatencyStats;
+import com.nisovin.shopkeepers.util.LoadThrottle;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.SchedulerUtils;
 import com.nisovin.shopkeepers.util.TradingCountListener;
@@ -70,6 +76,8 @@ import com.nisovin.shopkeepers.villagers.VillagerInteractionListener;
 public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin {
 
 	private static final int ASYNC_TASKS_TIMEOUT_SECONDS = 10;
+	// the delay with which owner name updates of joining players get processed in a batch:
+	private static final long OWNER_NAME_UPDATE_DELAY_TICKS = 5L;
 
 	private static SKShopkeepersPlugin plugin;
 
@@ -77,6 +85,9 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		return plugin;
 	}
 
+	// latency statistics (gets set up first, since other components record into it right away):
+	private final LatencyStats latencyStats = new LatencyStats();
+
 	// shop types and shop object types registry:
 	private final SKShopTypesRegistry shopTypesRegistry = new SKShopTypesRegistry();
 	private final SKShopObjectTypesRegistry shopObjectTypesRegistry = new SKShopObjectTypesRegistry();
@@ -102,8 +113,17 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 	private final ProtectedChests protectedChests = new ProtectedChests(this);
 	private final LivingShops livingShops = new LivingShops(this);
 	private final SignShops signShops = new SignShops(this);
+	private final VirtualShops virtualShops = new VirtualShops(this);
 	private final CitizensShops citizensShops = new CitizensShops(this);
 
+	private final LoadThrottle loadThrottle = new LoadThrottle(this);
+
+	private final TradeFileLogger tradeFileLogger = new TradeFileLogger(this);
+
+	// joined players whose shopkeepers' owner names still need to be checked: player uuid -> current name
+	private final Map<UUID, String> pendingOwnerNameUpdates = new LinkedHashMap<>();
+	private boolean ownerNameUpdatePending = false;
+
 	@Override
 	public void onEnable() {
 		plugin = this;
@@ -192,7 +212,9 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		PluginManager pm = Bukkit.getPluginManager();
 		pm.registerEvents(new PlayerJoinQuitListener(this), this);
 		pm.registerEvents(new TradingCountListener(this), this);
-		pm.registerEvents(new TradeFileLogger(this.getDataFolder()), this);
+
+		// enable trade logging:
+		tradeFileLogger.onEnable();
 
 		// DEFAULT SHOP TYPES
 
@@ -203,9 +225,15 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		// enable living entity shops:
 		livingShops.onEnable();
 
+		// enable load throttling:
+		loadThrottle.onEnable();
+
 		// enable sign shops:
 		signShops.onEnable();
 
+		// enable virtual shops:
+		virtualShops.onEnable();
+
 		// enable citizens shops:
 		citizensShops.onEnable();
 
@@ -287,15 +315,25 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		// disable living entity shops:
 		livingShops.onDisable();
 
+		// disable load throttling:
+		loadThrottle.onDisable();
+
 		// disable sign shops:
 		signShops.onDisable();
 
+		// disable virtual shops:
+		virtualShops.onDisable();
+
 		// disable citizens shops:
 		citizensShops.onDisable();
 
 		// save shopkeepers:
 		shopkeeperStorage.saveImmediateIfDirty();
 
+		// clear pending owner name updates:
+		pendingOwnerNameUpdates.clear();
+		ownerNameUpdatePending = false;
+
 		// disable protected chests:
 		protectedChests.disable();
 
@@ -314,6 +352,9 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		shopkeeperNaming.onDisable();
 		shopkeeperCreation.onDisable();
 
+		// disable trade logging (writes the remaining purchases):
+		tradeFileLogger.onDisable();
+
 		// clear all types of registers:
 		shopTypesRegistry.clearAll();
 		shopObjectTypesRegistry.clearAll();
@@ -410,12 +451,30 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		return livingShops;
 	}
 
+	// LATENCY STATISTICS
+
+	public LatencyStats getLatencyStats() {
+		return latencyStats;
+	}
+
+	// LOAD THROTTLING
+
+	public LoadThrottle getLoadThrottle() {
+		return loadThrottle;
+	}
+
 	// SIGN SHOPS
 
 	public SignShops getSignShops() {
 		return signShops;
 	}
 
+	// VIRTUAL SHOPS
+
+	public VirtualShops getVirtualShops() {
+		return virtualShops;
+	}
+
 	// CITIZENS SHOPS
 
 	public CitizensShops getCitizensShops() {
@@ -494,13 +553,7 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 	private void removeInactivePlayerShops() {
 		if (Settings.playerShopkeeperInactiveDays <= 0) return;
 
-		Set<UUID> playerUUIDs = new HashSet<>();
-		for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-			if (shopkeeper instanceof PlayerShopkeeper) {
-				PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
-				playerUUIDs.add(playerShop.getOwnerUUID());
-			}
-		}
+		Set<UUID> playerUUIDs = new HashSet<>(shopkeeperRegistry.getPlayerShopkeeperOwners());
 		if (playerUUIDs.isEmpty()) {
 			// no player shops found:
 			return;
@@ -532,16 +585,7 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 				for (OfflinePlayer inactivePlayer : inactivePlayers) {
 					// remove all shops of this inactive player:
 					UUID playerUUID = inactivePlayer.getUniqueId();
-
-					for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-						if (shopkeeper instanceof PlayerShopkeeper) {
-							PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
-							UUID ownerUUID = playerShop.getOwnerUUID();
-							if (ownerUUID.equals(playerUUID)) {
-								forRemoval.add(playerShop);
-							}
-						}
-					}
+					forRemoval.addAll(shopkeeperRegistry.getPlayerShopkeepersByOwner(playerUUID));
 				}
 
 				// remove those shopkeepers:
@@ -562,30 +606,34 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 	// HANDLING PLAYER NAME CHANGES:
 
 	// updates owner names for the shopkeepers of the specified player:
+	// this gets deferred and processed in batches, so that waves of joining players (ex. after restarts) get handled
+	// together, with a single save
 	private void updateShopkeepersForPlayer(UUID playerUUID, String playerName) {
+		pendingOwnerNameUpdates.put(playerUUID, playerName);
+		if (ownerNameUpdatePending) return;
+		if (SchedulerUtils.runTaskLaterOrOmit(this, this::processOwnerNameUpdates, OWNER_NAME_UPDATE_DELAY_TICKS) != null) {
+			ownerNameUpdatePending = true;
+		}
+	}
+
+	private void processOwnerNameUpdates() {
+		ownerNameUpdatePending = false;
 		boolean dirty = false;
-		for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-			if (shopkeeper instanceof PlayerShopkeeper) {
-				PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
-				UUID ownerUUID = playerShop.getOwnerUUID();
-				String ownerName = playerShop.getOwnerName();
-
-				if (ownerUUID.equals(playerUUID)) {
-					if (!ownerName.equals(playerName)) {
-						// update the stored name, because the player must have changed it:
-						playerShop.setOwner(playerUUID, playerName);
-						dirty = true;
-					} else {
-						// The shop was already updated to uuid based identification and the player's name hasn't
-						// changed.
-						// If we assume that this is consistent among all shops of this player
-						// we can stop checking the other shops here:
-						return;
-					}
+		for (Entry<UUID, String> entry : pendingOwnerNameUpdates.entrySet()) {
+			UUID playerUUID = entry.getKey();
+			String playerName = entry.getValue();
+			// only checks the player's shopkeepers, via the registry's owner index:
+			for (AbstractPlayerShopkeeper playerShop : shopkeeperRegistry.getPlayerShopkeepersByOwner(playerUUID)) {
+				if (!playerName.equals(playerShop.getOwnerName())) {
+					// update the stored name, because the player must have changed it:
+					playerShop.setOwner(playerUUID, playerName);
+					dirty = true;
 				}
 			}
 		}
+		pendingOwnerNameUpdates.clear();
 
+		// single save for all updated shopkeepers:
 		if (dirty) {
 			shopkeeperStorage.save();
 		}
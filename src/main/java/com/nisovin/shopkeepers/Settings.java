@@ -16,6 +16,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.util.ConversionUtils;
+import com.nisovin.shopkeepers.util.ItemSignature;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.StringUtils;
@@ -122,7 +123,14 @@ public class Settings {
 	public static boolean useLegacyMobBehavior = false;
 	public static boolean disableGravity = false;
 	public static int gravityChunkRange = 4;
+	public static int fullMobAiRange = 6;
+	public static int reducedMobAiRange = 12;
+	public static int reducedMobAiTickInterval = 4;
+	public static boolean adaptiveThrottling = true;
+	public static int throttleMsptThreshold = 48;
+	public static int throttleRecoveryMspt = 40;
 	public static boolean silenceLivingShopEntities = true;
+	public static boolean persistentShopEntities = false;
 
 	public static boolean showNameplates = true;
 	public static boolean alwaysShowNameplates = false;
@@ -134,6 +142,10 @@ public class Settings {
 	public static boolean enableSignPostShops = true;
 	public static String signShopFirstLine = "[SHOP]";
 
+	public static boolean enableVirtualShops = false;
+	public static String virtualShopEntityType = "VILLAGER";
+	public static int virtualShopViewRange = 48;
+
 	/*
 	 * Naming
 	 */
@@ -182,6 +194,7 @@ public class Settings {
 	public static boolean preventTradingWithOwnShop = true;
 	public static boolean preventTradingWhileOwnerIsOnline = false;
 	public static boolean useStrictItemComparison = false;
+	public static boolean bulkTrading = false;
 	public static boolean enablePurchaseLogging = false;
 
 	public static int taxRate = 0;
@@ -230,6 +243,7 @@ public class Settings {
 	public static String msgShopObjectTypeLiving = "{type}";
 	public static String msgShopObjectTypeSign = "sign";
 	public static String msgShopObjectTypeNpc = "npc";
+	public static String msgShopObjectTypeVirtual = "virtual {type}";
 
 	public static String msgSelectedShopType = "&aSelected shop type: &6{type} &7({description})";
 	public static String msgSelectedShopObjectType = "&aSelected object type: &6{type}";
@@ -455,6 +469,14 @@ public class Settings {
 				Log.warning("Config: Invalid living entity type name in 'enabled-living-shops': " + entityTypeId);
 			}
 		}
+		EntityType virtualEntityType = matchEntityType(virtualShopEntityType);
+		if (virtualEntityType == null || !virtualEntityType.isAlive() || !virtualEntityType.isSpawnable()) {
+			foundInvalidEntityType = true;
+			Log.warning("Config: Invalid living entity type name in 'virtual-shop-entity-type': " + virtualShopEntityType);
+			virtualShopEntityType = EntityType.VILLAGER.name();
+		} else {
+			virtualShopEntityType = virtualEntityType.name();
+		}
 		if (foundInvalidEntityType) {
 			Log.warning("Config: All existing entity type names can be found here: https://hub.spigotmc.org/javadocs/spigot/org/bukkit/entity/EntityType.html");
 		}
@@ -463,10 +485,34 @@ public class Settings {
 			Log.warning("Config: 'max-chest-distance' can be at most 50.");
 			maxChestDistance = 50;
 		}
+		if (virtualShopViewRange < 1) {
+			Log.warning("Config: 'virtual-shop-view-range' has to be positive.");
+			virtualShopViewRange = 1;
+		}
 		if (gravityChunkRange < 0) {
 			Log.warning("Config: 'gravity-chunk-range' cannot be negative.");
 			gravityChunkRange = 0;
 		}
+		if (fullMobAiRange < 0) {
+			Log.warning("Config: 'full-mob-ai-range' cannot be negative.");
+			fullMobAiRange = 0;
+		}
+		if (reducedMobAiRange < fullMobAiRange) {
+			Log.warning("Config: 'reduced-mob-ai-range' cannot be smaller than 'full-mob-ai-range'.");
+			reducedMobAiRange = fullMobAiRange;
+		}
+		if (reducedMobAiTickInterval < 1) {
+			Log.warning("Config: 'reduced-mob-ai-tick-interval' has to be positive.");
+			reducedMobAiTickInterval = 1;
+		}
+		if (throttleMsptThreshold < 2) {
+			Log.warning("Config: 'throttle-mspt-threshold' cannot be less than 2.");
+			throttleMsptThreshold = 2;
+		}
+		if (throttleRecoveryMspt <= 0 || throttleRecoveryMspt >= throttleMsptThreshold) {
+			Log.warning("Config: 'throttle-recovery-mspt' has to be positive and less than 'throttle-mspt-threshold'.");
+			throttleRecoveryMspt = (throttleMsptThreshold - 1);
+		}
 		if (highCurrencyValue <= 0 && highCurrencyItem != Material.AIR) {
 			Log.debug("Config: 'high-currency-item' disabled because of 'high-currency-value' being less than 1.");
 			highCurrencyItem = Material.AIR;
@@ -498,6 +544,7 @@ public class Settings {
 			taxRate = 100;
 		}
 
+		DerivedSettings.setup();
 		return configChanged;
 	}
 
@@ -749,13 +796,39 @@ public class Settings {
 		return ItemUtils.isSimilar(item, hireItem, hireItemName, hireItemLore);
 	}
 
+	// these settings are derived from the loaded settings, and get prepared once whenever the config gets loaded:
+	// they are kept in a separate class, because all fields of the Settings class get loaded from the config
+	private static final class DerivedSettings {
+
+		private static ItemSignature currencyItem;
+		private static ItemSignature highCurrencyItem; // null if disabled
+		private static ItemSignature zeroCurrencyItem; // null if AIR
+		private static ItemSignature highZeroCurrencyItem; // null if AIR
+
+		static {
+			setup();
+		}
+
+		private static void setup() {
+			currencyItem = createItemSignature(Settings.currencyItem, Settings.currencyItemName, Settings.currencyItemLore);
+			highCurrencyItem = isHighCurrencyEnabled() ? createItemSignature(Settings.highCurrencyItem, Settings.highCurrencyItemName, Settings.highCurrencyItemLore) : null;
+			zeroCurrencyItem = createItemSignature(Settings.zeroCurrencyItem, Settings.zeroCurrencyItemName, Settings.zeroCurrencyItemLore);
+			highZeroCurrencyItem = createItemSignature(Settings.highZeroCurrencyItem, Settings.highZeroCurrencyItemName, Settings.highZeroCurrencyItemLore);
+		}
+
+		private static ItemSignature createItemSignature(Material type, String displayName, List<String> lore) {
+			if (type == null || type == Material.AIR) return null;
+			return new ItemSignature(type, displayName, lore);
+		}
+	}
+
 	// currency item:
 	public static ItemStack createCurrencyItem(int amount) {
 		return ItemUtils.createItemStack(Settings.currencyItem, amount, Settings.currencyItemName, Settings.currencyItemLore);
 	}
 
 	public static boolean isCurrencyItem(ItemStack item) {
-		return ItemUtils.isSimilar(item, Settings.currencyItem, Settings.currencyItemName, Settings.currencyItemLore);
+		return DerivedSettings.currencyItem.matches(item);
 	}
 
 	// high currency item:
@@ -769,8 +842,9 @@ public class Settings {
 	}
 
 	public static boolean isHighCurrencyItem(ItemStack item) {
-		if (!isHighCurrencyEnabled()) return false;
-		return ItemUtils.isSimilar(item, Settings.highCurrencyItem, Settings.highCurrencyItemName, Settings.highCurrencyItemLore);
+		ItemSignature highCurrencySignature = DerivedSettings.highCurrencyItem;
+		if (highCurrencySignature == null) return false;
+		return highCurrencySignature.matches(item);
 	}
 
 	// zero currency item:
@@ -780,10 +854,11 @@ public class Settings {
 	}
 
 	public static boolean isZeroCurrencyItem(ItemStack item) {
-		if (Settings.zeroCurrencyItem == Material.AIR) {
+		ItemSignature zeroCurrencySignature = DerivedSettings.zeroCurrencyItem;
+		if (zeroCurrencySignature == null) {
 			return ItemUtils.isEmpty(item);
 		}
-		return ItemUtils.isSimilar(item, Settings.zeroCurrencyItem, Settings.zeroCurrencyItemName, Settings.zeroCurrencyItemLore);
+		return zeroCurrencySignature.matches(item);
 	}
 
 	// high zero currency item:
@@ -793,10 +868,11 @@ public class Settings {
 	}
 
 	public static boolean isHighZeroCurrencyItem(ItemStack item) {
-		if (Settings.highZeroCurrencyItem == Material.AIR) {
+		ItemSignature highZeroCurrencySignature = DerivedSettings.highZeroCurrencyItem;
+		if (highZeroCurrencySignature == null) {
 			return ItemUtils.isEmpty(item);
 		}
-		return ItemUtils.isSimilar(item, Settings.highZeroCurrencyItem, Settings.highZeroCurrencyItemName, Settings.highZeroCurrencyItemLore);
+		return highZeroCurrencySignature.matches(item);
 	}
 
 	//
@@ -0,0 +1,126 @@
+package com.nisovin.shopkeepers.chestprotection;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.DoubleChestInventory;
+import org.bukkit.inventory.Inventory;
+
+import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.util.ItemUtils;
+
+/**
+ * Informs player shopkeepers about changes to the contents of their chests, so that they can keep their chest stock
+ * and their cached trading recipes up-to-date.
+ */
+class ChestInventoryChangeListener implements Listener {
+
+	private final ProtectedChests protectedChests;
+
+	ChestInventoryChangeListener(ProtectedChests protectedChests) {
+		this.protectedChests = protectedChests;
+	}
+
+	// note: the inventory contents get changed after these events, but the chest stock and the trading recipes only get
+	// updated once they are requested the next time
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onInventoryOpen(InventoryOpenEvent event) {
+		// the chest stock gets counted again once the chest gets opened, in case some changes went unnoticed:
+		this.forEachShopkeeper(event.getView().getTopInventory(), AbstractPlayerShopkeeper::onChestContentsChanged);
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onInventoryClick(InventoryClickEvent event) {
+		// includes clicks inside the player's own inventory, since these might move items into the chest:
+		this.forEachShopkeeper(event.getView().getTopInventory(), AbstractPlayerShopkeeper::onChestContentsChanged);
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onInventoryDrag(InventoryDragEvent event) {
+		this.forEachShopkeeper(event.getView().getTopInventory(), AbstractPlayerShopkeeper::onChestContentsChanged);
+	}
+
+	// items moved by hoppers and droppers: the transfer can still fail after this event (ex. if the destination is
+	// full), so the moved items are not applied to the chest stock directly
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onInventoryMoveItem(InventoryMoveItemEvent event) {
+		this.forEachShopkeeper(event.getSource(), AbstractPlayerShopkeeper::onChestContentsChanged);
+		this.forEachShopkeeper(event.getDestination(), AbstractPlayerShopkeeper::onChestContentsChanged);
+	}
+
+	// breaking one half of a double chest, or placing a chest which connects to a shop chest, changes the contents of
+	// the shop chest:
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockBreak(BlockBreakEvent event) {
+		this.onChestBlockChanged(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockPlace(BlockPlaceEvent event) {
+		this.onChestBlockChanged(event.getBlockPlaced());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onEntityExplosion(EntityExplodeEvent event) {
+		this.onChestBlocksChanged(event.blockList());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockExplosion(BlockExplodeEvent event) {
+		this.onChestBlocksChanged(event.blockList());
+	}
+
+	private void onChestBlocksChanged(List<Block> blocks) {
+		for (Block block : blocks) {
+			this.onChestBlockChanged(block);
+		}
+	}
+
+	// includes the shopkeepers using the connected chest:
+	private void onChestBlockChanged(Block block) {
+		if (!ItemUtils.isChest(block.getType())) return;
+		for (PlayerShopkeeper shopkeeper : protectedChests.getShopkeepersUsingChest(block)) {
+			((AbstractPlayerShopkeeper) shopkeeper).onChestContentsChanged();
+		}
+	}
+
+	// resolves the chest blocks via the inventory locations, since getting the inventory holder creates a block state:
+	private void forEachShopkeeper(Inventory inventory, Consumer<AbstractPlayerShopkeeper> action) {
+		if (inventory == null || inventory.getType() != InventoryType.CHEST) return;
+		if (inventory instanceof DoubleChestInventory) {
+			DoubleChestInventory doubleChestInventory = (DoubleChestInventory) inventory;
+			this.forEachShopkeeper(doubleChestInventory.getLeftSide().getLocation(), action);
+			this.forEachShopkeeper(doubleChestInventory.getRightSide().getLocation(), action);
+		} else {
+			this.forEachShopkeeper(inventory.getLocation(), action);
+		}
+	}
+
+	// informs all shopkeepers using the chest at the given location, since they share its contents:
+	private void forEachShopkeeper(Location chestLocation, Consumer<AbstractPlayerShopkeeper> action) {
+		if (chestLocation == null || chestLocation.getWorld() == null) return;
+		String worldName = chestLocation.getWorld().getName();
+		int x = chestLocation.getBlockX();
+		int y = chestLocation.getBlockY();
+		int z = chestLocation.getBlockZ();
+		for (PlayerShopkeeper shopkeeper : protectedChests.getShopkeepers(worldName, x, y, z)) {
+			action.accept((AbstractPlayerShopkeeper) shopkeeper);
+		}
+	}
+}
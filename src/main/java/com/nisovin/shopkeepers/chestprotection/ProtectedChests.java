@@ -61,6 +61,7 @@ public class ProtectedChests {
 	private final ChestProtectionListener chestProtectionListener = new ChestProtectionListener(this);
 	private final InventoryMoveItemListener inventoryMoveItemListener = new InventoryMoveItemListener(this);
 	private final RemoveShopOnChestBreakListener removeShopOnChestBreakListener;
+	private final ChestInventoryChangeListener chestInventoryChangeListener = new ChestInventoryChangeListener(this);
 	// player shopkeepers by location key:
 	private final Map<String, List<PlayerShopkeeper>> protectedChests = new HashMap<>();
 
@@ -70,6 +71,8 @@ public class ProtectedChests {
 	}
 
 	public void enable() {
+		// keeps the chest stock and the cached trading recipes of player shopkeepers up-to-date:
+		Bukkit.getPluginManager().registerEvents(chestInventoryChangeListener, plugin);
 		if (Settings.protectChests) {
 			Bukkit.getPluginManager().registerEvents(chestProtectionListener, plugin);
 			if (Settings.preventItemMovement) {
@@ -87,6 +90,7 @@ public class ProtectedChests {
 		HandlerList.unregisterAll(chestProtectionListener);
 		HandlerList.unregisterAll(inventoryMoveItemListener);
 		HandlerList.unregisterAll(removeShopOnChestBreakListener);
+		HandlerList.unregisterAll(chestInventoryChangeListener);
 		protectedChests.clear();
 	}
 
@@ -1,6 +1,9 @@
 package com.nisovin.shopkeepers.commands.shopkeepers;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -26,13 +29,21 @@ import com.nisovin.shopkeepers.commands.lib.CommandInput;
 import com.nisovin.shopkeepers.commands.lib.arguments.FirstOfArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.LiteralArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.OptionalArgument;
+import com.nisovin.shopkeepers.shopobjects.living.GroundDistanceCache;
 import com.nisovin.shopkeepers.shopobjects.living.LivingEntityAI;
+import com.nisovin.shopkeepers.util.LatencyHistogram;
+import com.nisovin.shopkeepers.util.LatencyStats;
+import com.nisovin.shopkeepers.util.LoadThrottle;
+import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.Utils;
 
 class CommandCheck extends Command {
 
 	private static final String ARGUMENT_CHUNKS = "chunks";
 	private static final String ARGUMENT_ACTIVE = "active";
+	private static final String ARGUMENT_LATENCIES = "latencies";
+
+	private static final String LATENCIES_FILE_NAME = "latencies.csv";
 
 	private final SKShopkeepersPlugin plugin;
 	private final ShopkeeperRegistry shopkeeperRegistry;
@@ -54,7 +65,8 @@ class CommandCheck extends Command {
 		// arguments:
 		this.addArgument(new OptionalArgument(new FirstOfArgument("context", Arrays.asList(
 				new LiteralArgument(ARGUMENT_CHUNKS),
-				new LiteralArgument(ARGUMENT_ACTIVE)))));
+				new LiteralArgument(ARGUMENT_ACTIVE),
+				new LiteralArgument(ARGUMENT_LATENCIES)))));
 	}
 
 	@Override
@@ -64,6 +76,7 @@ class CommandCheck extends Command {
 
 		boolean listChunks = context.has(ARGUMENT_CHUNKS);
 		boolean listActive = context.has(ARGUMENT_ACTIVE);
+		boolean listLatencies = context.has(ARGUMENT_LATENCIES);
 
 		Map<ChunkCoords, ? extends List<?>> shopsByChunk = shopkeeperRegistry.getAllShopkeepersByChunks();
 		LivingEntityAI livingEntityAI = plugin.getLivingShops().getLivingEntityAI();
@@ -80,8 +93,22 @@ class CommandCheck extends Command {
 		sender.sendMessage("  Active with AI: " + livingEntityAI.getEntityCount());
 		sender.sendMessage("  Active AI chunks: " + livingEntityAI.getActiveAIChunksCount());
 		sender.sendMessage("  Active with active AI: " + livingEntityAI.getActiveAIEntityCount());
+		sender.sendMessage("    Full | reduced | frozen AI: " + livingEntityAI.getFullAIEntityCount()
+				+ " | " + livingEntityAI.getReducedAIEntityCount()
+				+ " | " + livingEntityAI.getFrozenAIEntityCount());
 		sender.sendMessage("  Active gravity chunks: " + livingEntityAI.getActiveGravityChunksCount());
 		sender.sendMessage("  Active with active gravity: " + livingEntityAI.getActiveGravityEntityCount());
+		GroundDistanceCache groundDistanceCache = plugin.getLivingShops().getGroundDistanceCache();
+		sender.sendMessage("  Ground distance cache columns | hits | misses: "
+				+ groundDistanceCache.getCachedColumnsCount()
+				+ " | " + groundDistanceCache.getHits()
+				+ " | " + groundDistanceCache.getMisses());
+
+		sender.sendMessage("  Spawned virtual shop mobs: " + plugin.getVirtualShops().getSpawnedCount());
+
+		LoadThrottle loadThrottle = plugin.getLoadThrottle();
+		sender.sendMessage("  Throttle level: " + loadThrottle.getLevel() + " / " + LoadThrottle.MAX_LEVEL
+				+ " (avg. tick duration: " + Utils.DECIMAL_FORMAT.format(loadThrottle.getAverageTickMillis()) + " ms)");
 
 		double avgTotalAITimings = livingEntityAI.getTotalTimings().getAverageTimeMillis();
 		double maxTotalAITiming = livingEntityAI.getTotalTimings().getMaxTimeMillis();
@@ -103,6 +130,23 @@ class CommandCheck extends Command {
 		sender.sendMessage("    Avg. AI timings: " + Utils.DECIMAL_FORMAT.format(avgAITimings) + " ms");
 		sender.sendMessage("    Max. AI timing: " + Utils.DECIMAL_FORMAT.format(maxAITiming) + " ms");
 
+		// list latency percentiles and dump them to a file:
+		if (listLatencies) {
+			LatencyStats latencyStats = plugin.getLatencyStats();
+			sender.sendMessage(ChatColor.YELLOW + "Latencies since " + new Date(latencyStats.getStartTime()) + ":");
+			for (Entry<String, LatencyHistogram> entry : latencyStats.getHistograms().entrySet()) {
+				sender.sendMessage("  " + entry.getKey() + ": " + entry.getValue().getSummary());
+			}
+			File latenciesFile = new File(plugin.getDataFolder(), LATENCIES_FILE_NAME);
+			try {
+				latencyStats.dump(latenciesFile);
+				sender.sendMessage("  Latencies have been written to " + latenciesFile.getPath());
+			} catch (IOException e) {
+				Log.severe("Could not write latencies to " + latenciesFile.getPath(), e);
+				sender.sendMessage(ChatColor.RED + "  Could not write latencies to file! Check the server log for details.");
+			}
+		}
+
 		for (World world : Bukkit.getWorlds()) {
 			String worldName = world.getName();
 			Chunk[] loadedChunks = world.getLoadedChunks();
@@ -1,5 +1,8 @@
 package com.nisovin.shopkeepers.commands.shopkeepers;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.entity.EntityType;
@@ -8,6 +11,8 @@ import org.bukkit.entity.Player;
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.DefaultShopTypes;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
 import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopCreationData;
 import com.nisovin.shopkeepers.api.shopobjects.DefaultShopObjectTypes;
 import com.nisovin.shopkeepers.commands.lib.CommandArgs;
@@ -48,12 +53,21 @@ class CommandDebugCreateShops extends PlayerCommand {
 		int shopCount = context.getOrDefault(ARGUMENT_SHOP_COUNT, 10);
 
 		player.sendMessage(ChatColor.GREEN + "Creating " + shopCount + " shopkeepers, starting here!");
+		List<ShopCreationData> creationData = new ArrayList<>(Math.max(shopCount, 0));
 		Location curSpawnLocation = player.getLocation();
 		for (int i = 0; i < shopCount; i++) {
-			plugin.handleShopkeeperCreation(AdminShopCreationData.create(player, DefaultShopTypes.ADMIN(),
+			creationData.add(AdminShopCreationData.create(player, DefaultShopTypes.ADMIN(),
 					DefaultShopObjectTypes.LIVING().get(EntityType.VILLAGER), curSpawnLocation.clone(), null));
 			curSpawnLocation.add(2, 0, 0);
 		}
+
+		// create all shopkeepers at once:
+		try {
+			plugin.getShopkeeperRegistry().createShopkeepers(creationData);
+		} catch (ShopkeeperCreateException e) {
+			player.sendMessage(ChatColor.RED + "Shopkeeper creation failed: " + e.getMessage());
+			return;
+		}
 		player.sendMessage(ChatColor.GREEN + "Done!");
 	}
 }
@@ -1,5 +1,7 @@
 package com.nisovin.shopkeepers.compat;
 
+import java.lang.reflect.InvocationTargetException;
+
 import org.bukkit.plugin.Plugin;
 
 import com.nisovin.shopkeepers.compat.api.NMSCallProvider;
@@ -25,6 +27,10 @@ public final class NMSManager {
 			}
 		} catch (Exception e) {
 			Log.severe("Potentially incompatible server version: " + cbVersion);
+			// the handler for this version exists, but could not resolve the server internals it depends on:
+			if (e instanceof InvocationTargetException) {
+				Log.severe("Failed to set up the handler for this server version: " + e.getCause());
+			}
 			Log.severe("Shopkeepers is trying to run in 'compatibility mode'.");
 			Log.info("Check for updates at: " + plugin.getDescription().getWebsite());
 
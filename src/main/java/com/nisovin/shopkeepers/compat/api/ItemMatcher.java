@@ -0,0 +1,23 @@
+package com.nisovin.shopkeepers.compat.api;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Checks provided items against a required item, the same way as {@link NMSCallProvider#matches(ItemStack, ItemStack)}.
+ * <p>
+ * Implementations can prepare the required item once, so that repeated checks against the same required item are
+ * cheaper.
+ * <p>
+ * See {@link NMSCallProvider#createItemMatcher(ItemStack)}.
+ */
+public interface ItemMatcher {
+
+	/**
+	 * Checks if the given <code>provided</code> item fulfills the requirements of the required item of this matcher.
+	 *
+	 * @param provided
+	 *            the provided itemstack
+	 * @return <code>true</code> if the provided itemstack matches the required itemstack
+	 */
+	public boolean matches(ItemStack provided);
+}
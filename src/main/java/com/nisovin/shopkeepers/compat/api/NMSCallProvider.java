@@ -1,6 +1,11 @@
 package com.nisovin.shopkeepers.compat.api;
 
+import java.util.Collection;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
@@ -44,6 +49,128 @@ public interface NMSCallProvider {
 	 */
 	public boolean matches(ItemStack provided, ItemStack required);
 
+	/**
+	 * Creates an {@link ItemMatcher} for the given <code>required</code> itemstack.
+	 * <p>
+	 * The matcher might prepare the required itemstack, so the itemstack should not get modified afterwards.
+	 * 
+	 * @param required
+	 *            the required itemstack, can be empty
+	 * @return the item matcher
+	 */
+	public default ItemMatcher createItemMatcher(ItemStack required) {
+		return (provided) -> this.matches(provided, required);
+	}
+
+	/**
+	 * Gets a hash code for the data of the given itemstack, which ignores its type and stack size.
+	 * <p>
+	 * Itemstacks which are {@link ItemStack#isSimilar(ItemStack) similar} have the same data hash. Unlike
+	 * {@link ItemStack#getItemMeta()}, implementations might be able to calculate the hash without copying the
+	 * itemstack's metadata.
+	 * 
+	 * @param item
+	 *            the itemstack, not empty
+	 * @return the data hash
+	 */
+	public default int getItemDataHash(ItemStack item) {
+		return (item.hasItemMeta() ? item.getItemMeta().hashCode() : 0);
+	}
+
 	// Note: It is not safe to reduce the number of trading recipes!
 	public void updateTrades(Player player, Merchant merchant);
+
+	/**
+	 * Sends the trading recipes of the given merchant to all given players.
+	 * <p>
+	 * Implementations can encode the trading recipes only once and then share the encoded data between the involved
+	 * players.
+	 * 
+	 * @param players
+	 *            the players
+	 * @param merchant
+	 *            the merchant
+	 */
+	public default void updateTrades(Collection<? extends Player> players, Merchant merchant) {
+		for (Player player : players) {
+			this.updateTrades(player, merchant);
+		}
+	}
+
+	// SERVER
+
+	// whether getAverageTickMillis is supported
+	public default boolean supportsTickDurations() {
+		return false;
+	}
+
+	/**
+	 * Gets the average duration of the server's recent ticks.
+	 * <p>
+	 * Unlike the time between consecutive ticks, this only includes the work done during the ticks, and can therefore
+	 * also be less than 50 milliseconds.
+	 * 
+	 * @return the average tick duration in milliseconds, <code>0</code> if no ticks have been recorded yet or if this
+	 *         is not supported
+	 */
+	public default double getAverageTickMillis() {
+		return 0.0D;
+	}
+
+	// TILE ENTITIES
+
+	/**
+	 * Gets the tile entity of the given block, without creating a block state snapshot.
+	 * <p>
+	 * The returned object is only meant to be compared by identity, in order to detect if the tile entity of a block
+	 * got replaced. The chunk of the block has to be loaded.
+	 * 
+	 * @param block
+	 *            the block
+	 * @return the tile entity, or <code>null</code> if there is none or if this is not supported
+	 */
+	public default Object getTileEntity(Block block) {
+		return null;
+	}
+
+	// VIRTUAL ENTITIES
+
+	// whether virtual entities and the interception of interactions with them are supported
+	public default boolean supportsVirtualEntities() {
+		return false;
+	}
+
+	/**
+	 * Creates a {@link VirtualEntity} of the given type.
+	 * 
+	 * @param location
+	 *            the location
+	 * @param entityType
+	 *            the entity type, has to be a living entity type
+	 * @return the virtual entity, or <code>null</code> if not supported or the virtual entity could not be created
+	 */
+	public default VirtualEntity createVirtualEntity(Location location, EntityType entityType) {
+		return null;
+	}
+
+	/**
+	 * Starts intercepting the interactions of the given player with entities, and forwards them to the given
+	 * listener.
+	 * 
+	 * @param player
+	 *            the player
+	 * @param listener
+	 *            the listener
+	 */
+	public default void injectVirtualEntityInteractionListener(Player player, VirtualEntityInteractionListener listener) {
+	}
+
+	/**
+	 * Stops intercepting the entity interactions of the given player.
+	 * 
+	 * @param player
+	 *            the player
+	 */
+	public default void uninjectVirtualEntityInteractionListener(Player player) {
+	}
 }
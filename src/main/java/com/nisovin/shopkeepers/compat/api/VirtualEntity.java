@@ -0,0 +1,112 @@
+package com.nisovin.shopkeepers.compat.api;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+/**
+ * An entity that does not exist on the server, but only gets sent to the clients of individual players.
+ * <p>
+ * Virtual entities are neither ticked nor saved by the server. All changes only become visible to players by
+ * (re-)sending the corresponding packets.
+ * <p>
+ * Virtual entities are expected to only get accessed from the main thread.
+ */
+public interface VirtualEntity {
+
+	/**
+	 * The rotation to pass to {@link #lookAt(Player, Location, int)} if no rotation has been sent to the player yet.
+	 */
+	public static final int NO_ROTATION = -1;
+
+	/**
+	 * Gets the network id of this entity.
+	 * <p>
+	 * This id is unique among all entities of the server and is used by the clients to refer to the entity in
+	 * interaction packets.
+	 * 
+	 * @return the entity id
+	 */
+	public int getEntityId();
+
+	public Location getLocation();
+
+	/**
+	 * Stores the location of this entity into the given location.
+	 * 
+	 * @param location
+	 *            the location to update, can be <code>null</code>
+	 * @return the given location, or <code>null</code> if the given location is <code>null</code>
+	 */
+	public Location getLocation(Location location);
+
+	/**
+	 * Moves the entity to the given location.
+	 * <p>
+	 * This does not update players who can currently see the entity. See {@link #sendLocation(Player)}.
+	 * 
+	 * @param location
+	 *            the new location
+	 */
+	public void setLocation(Location location);
+
+	/**
+	 * Sets the custom name of this entity.
+	 * <p>
+	 * This does not update players who can currently see the entity. See {@link #sendMetadata(Player)}.
+	 * 
+	 * @param name
+	 *            the name, or <code>null</code> or empty to remove the name
+	 * @param alwaysVisible
+	 *            <code>true</code> to always show the name, <code>false</code> to only show it when the player
+	 *            looks at the entity
+	 */
+	public void setCustomName(String name, boolean alwaysVisible);
+
+	/**
+	 * Spawns the entity for the given player.
+	 * 
+	 * @param player
+	 *            the player
+	 */
+	public void show(Player player);
+
+	/**
+	 * Removes the entity for the given player.
+	 * 
+	 * @param player
+	 *            the player
+	 */
+	public void hide(Player player);
+
+	/**
+	 * Sends the current metadata (ex. the custom name) of this entity to the given player.
+	 * 
+	 * @param player
+	 *            the player
+	 */
+	public void sendMetadata(Player player);
+
+	/**
+	 * Sends the current location of this entity to the given player.
+	 * 
+	 * @param player
+	 *            the player
+	 */
+	public void sendLocation(Player player);
+
+	/**
+	 * Rotates the entity's body and head towards the given target location, only for the given player.
+	 * <p>
+	 * The packets only get sent if the resulting rotation differs from the rotation that was last sent to the player.
+	 * 
+	 * @param player
+	 *            the player
+	 * @param target
+	 *            the target location
+	 * @param lastRotation
+	 *            the rotation returned by the previous call for the same player, or {@link #NO_ROTATION} if the
+	 *            player's client has not received a rotation since the entity got shown or moved
+	 * @return the rotation sent to the player, in an encoded form
+	 */
+	public int lookAt(Player player, Location target, int lastRotation);
+}
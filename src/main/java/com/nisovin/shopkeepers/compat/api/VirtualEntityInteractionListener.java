@@ -0,0 +1,41 @@
+package com.nisovin.shopkeepers.compat.api;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Gets informed about players interacting with entities which are not known to the server.
+ * <p>
+ * See {@link NMSCallProvider#injectVirtualEntityInteractionListener(Player, VirtualEntityInteractionListener)}.
+ */
+public interface VirtualEntityInteractionListener {
+
+	/**
+	 * Checks whether the given entity id belongs to one of the listener's virtual entities.
+	 * <p>
+	 * This gets called on the player's network thread.
+	 * 
+	 * @param entityId
+	 *            the entity id
+	 * @return <code>true</code> if the entity is a virtual entity of this listener
+	 */
+	public boolean isVirtualEntity(int entityId);
+
+	/**
+	 * Gets called when the given player interacts with an entity.
+	 * <p>
+	 * This gets called on the player's network thread! Implementations have to quickly decide whether the entity is
+	 * one of their virtual entities, and then hand over the actual interaction handling to the main thread.
+	 * 
+	 * @param player
+	 *            the player
+	 * @param entityId
+	 *            the id of the targeted entity
+	 * @param attack
+	 *            <code>true</code> if the player attacked the entity, <code>false</code> if the player
+	 *            interacted with the entity
+	 * @param mainHand
+	 *            <code>true</code> if the interaction was triggered by the player's main hand
+	 * @return <code>true</code> to consume the interaction, so that it does not get processed by the server
+	 */
+	public boolean onInteract(Player player, int entityId, boolean attack, boolean mainHand);
+}
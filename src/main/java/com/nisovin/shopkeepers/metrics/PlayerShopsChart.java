@@ -2,23 +2,17 @@ package com.nisovin.shopkeepers.metrics;
 
 import org.bstats.bukkit.Metrics;
 
-import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
-import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
-import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 
 /**
  * Reports whether the server uses player shopkeepers.
  */
 public class PlayerShopsChart extends Metrics.SimplePie {
 
-	public PlayerShopsChart(ShopkeeperRegistry shopkeeperRegistry) {
+	public PlayerShopsChart(SKShopkeeperRegistry shopkeeperRegistry) {
 		super("uses_player_shops", () -> {
-			for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-				if (shopkeeper instanceof PlayerShopkeeper) {
-					return "Yes";
-				}
-			}
-			return "No";
+			// using the registry snapshot, since this might get called asynchronously:
+			return (shopkeeperRegistry.getSnapshot().getPlayerShopsCount() > 0) ? "Yes" : "No";
 		});
 	}
 }
@@ -1,5 +1,6 @@
 package com.nisovin.shopkeepers.shopkeeper;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -62,10 +63,15 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 	private ChunkCoords chunkCoords;
 	private String name = "";
 
+	// the keys by which the shopkeeper is currently indexed as active, null if not active:
+	private ActiveObjectKey activeObjectKey = null;
+
 	// has unsaved data changes:
 	private boolean dirty = false;
 	// is currently registered:
 	private boolean valid = false;
+	// gets incremented whenever the trading recipes might have changed:
+	private int tradingRecipesVersion = 0;
 
 	// ui type identifier -> ui handler
 	private final Map<String, UIHandler> uiHandlers = new HashMap<>();
@@ -294,6 +300,8 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 			// if the shopkeeper gets marked dirty during creation or loading (while it is not yet valid),
 			// the storage gets marked dirty by the shopkeeper registry after the creation/loading was successful
 			SKShopkeepersPlugin.getInstance().getShopkeeperStorage().markDirty();
+			// the shopkeeper's data might have changed, update the registry snapshot:
+			SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().onShopkeeperChanged(this);
 		}
 	}
 
@@ -450,6 +458,36 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 	@Override
 	public abstract List<TradingRecipe> getTradingRecipes(Player player);
 
+	/**
+	 * Gets the version of the trading recipes of this shopkeeper.
+	 * <p>
+	 * The version gets incremented whenever the trading recipes of this shopkeeper might have changed (ex. due to offer
+	 * edits, trades, or changes to the contents of the shop chest). This can be used to cache the trading recipes.
+	 * 
+	 * @return the current trading recipes version
+	 */
+	public int getTradingRecipesVersion() {
+		return tradingRecipesVersion;
+	}
+
+	/**
+	 * Marks the trading recipes of this shopkeeper as possibly changed.
+	 */
+	public void invalidateTradingRecipes() {
+		tradingRecipesVersion++;
+	}
+
+	/**
+	 * Gets the offers which have been set up for this shopkeeper.
+	 * <p>
+	 * The type of offers depends on the type of shopkeeper.
+	 * 
+	 * @return an unmodifiable view on the offers, empty if this type of shopkeeper does not manage offers
+	 */
+	public List<?> getOffers() {
+		return Collections.emptyList();
+	}
+
 	// ACTIVATION
 
 	@Override
@@ -472,6 +510,15 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		return shopObject.getId();
 	}
 
+	// used by the shopkeeper registry:
+	ActiveObjectKey getActiveObjectKey() {
+		return activeObjectKey;
+	}
+
+	void setActiveObjectKey(ActiveObjectKey activeObjectKey) {
+		this.activeObjectKey = activeObjectKey;
+	}
+
 	@Override
 	public Location getObjectLocation() {
 		return shopObject.getLocation();
@@ -0,0 +1,60 @@
+package com.nisovin.shopkeepers.shopkeeper;
+
+import java.util.UUID;
+
+import org.bukkit.block.Block;
+
+import com.nisovin.shopkeepers.shopobjects.ShopObjectKeyStrategy;
+
+/**
+ * The keys by which an active shopkeeper is indexed by the {@link SKShopkeeperRegistry}.
+ * <p>
+ * This gets remembered for the time the shopkeeper is active, so that it can be deactivated again even if its shop
+ * object has changed in the meantime (ex. if the shop entity is no longer available).
+ */
+final class ActiveObjectKey {
+
+	final ShopObjectKeyStrategy strategy;
+	final String objectId; // not null
+	final String worldName; // only for BLOCK
+	final long blockKey; // only for BLOCK
+	final UUID entityUUID; // only for ENTITY
+
+	private ActiveObjectKey(ShopObjectKeyStrategy strategy, String objectId, String worldName, long blockKey, UUID entityUUID) {
+		this.strategy = strategy;
+		this.objectId = objectId;
+		this.worldName = worldName;
+		this.blockKey = blockKey;
+		this.entityUUID = entityUUID;
+	}
+
+	static ActiveObjectKey ofBlock(String objectId, Block block) {
+		assert objectId != null && block != null;
+		return new ActiveObjectKey(ShopObjectKeyStrategy.BLOCK, objectId, block.getWorld().getName(), getBlockKey(block), null);
+	}
+
+	static ActiveObjectKey ofEntity(String objectId, UUID entityUUID) {
+		assert objectId != null && entityUUID != null;
+		return new ActiveObjectKey(ShopObjectKeyStrategy.ENTITY, objectId, null, 0L, entityUUID);
+	}
+
+	static ActiveObjectKey ofObjectId(String objectId) {
+		assert objectId != null;
+		return new ActiveObjectKey(ShopObjectKeyStrategy.OBJECT_ID, objectId, null, 0L, null);
+	}
+
+	/**
+	 * Packs the block coordinates into a single long: 26 bits x, 26 bits z, 12 bits y.
+	 *
+	 * @param block
+	 *            the block
+	 * @return the block key
+	 */
+	static long getBlockKey(Block block) {
+		return getBlockKey(block.getX(), block.getY(), block.getZ());
+	}
+
+	static long getBlockKey(int x, int y, int z) {
+		return (((long) x & 0x3FFFFFFL) << 38) | (((long) z & 0x3FFFFFFL) << 12) | ((long) y & 0xFFFL);
+	}
+}
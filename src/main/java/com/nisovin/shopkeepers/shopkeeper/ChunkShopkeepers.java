@@ -0,0 +1,91 @@
+package com.nisovin.shopkeepers.shopkeeper;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+
+/**
+ * The shopkeepers of a single chunk, stored in a compact array.
+ * <p>
+ * This also keeps track of the number of active shopkeepers in the chunk, so that chunks without active shopkeepers
+ * can be skipped without having to iterate their shopkeepers.
+ * <p>
+ * This list is unmodifiable from the outside. Modifications are handled by the {@link SKShopkeeperRegistry}.
+ */
+final class ChunkShopkeepers extends AbstractList<AbstractShopkeeper> implements RandomAccess {
+
+	private static final AbstractShopkeeper[] EMPTY = new AbstractShopkeeper[0];
+
+	private final ChunkCoords chunkCoords;
+	private AbstractShopkeeper[] shopkeepers = EMPTY;
+	private int size = 0;
+	private int activeCount = 0;
+
+	ChunkShopkeepers(ChunkCoords chunkCoords) {
+		assert chunkCoords != null;
+		this.chunkCoords = chunkCoords;
+	}
+
+	ChunkCoords getChunkCoords() {
+		return chunkCoords;
+	}
+
+	void addShopkeeper(AbstractShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		if (size == shopkeepers.length) {
+			shopkeepers = Arrays.copyOf(shopkeepers, Math.max(4, size * 2));
+		}
+		shopkeepers[size++] = shopkeeper;
+		modCount++;
+	}
+
+	boolean removeShopkeeper(AbstractShopkeeper shopkeeper) {
+		for (int i = 0; i < size; ++i) {
+			if (shopkeepers[i] == shopkeeper) {
+				// preserves the order of the remaining shopkeepers:
+				int moved = size - i - 1;
+				if (moved > 0) {
+					System.arraycopy(shopkeepers, i + 1, shopkeepers, i, moved);
+				}
+				shopkeepers[--size] = null;
+				modCount++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// gets called by the registry whenever a shopkeeper of this chunk gets activated or deactivated
+	void onShopkeeperActivated() {
+		activeCount++;
+	}
+
+	void onShopkeeperDeactivated() {
+		assert activeCount > 0;
+		activeCount--;
+	}
+
+	/**
+	 * Gets the number of shopkeepers in this chunk that are currently active.
+	 *
+	 * @return the number of active shopkeepers
+	 */
+	int getActiveCount() {
+		return activeCount;
+	}
+
+	@Override
+	public AbstractShopkeeper get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return shopkeepers[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
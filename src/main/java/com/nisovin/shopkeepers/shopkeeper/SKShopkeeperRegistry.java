@@ -6,9 +6,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.commons.lang.Validate;
@@ -20,44 +22,85 @@ import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.events.ShopkeeperAddedEvent;
 import com.nisovin.shopkeepers.api.events.ShopkeeperRemoveEvent;
+import com.nisovin.shopkeepers.api.events.ShopkeepersAddedEvent;
+import com.nisovin.shopkeepers.api.events.ShopkeepersRemoveEvent;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopType;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
-import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.api.shopobjects.ShopObjectType;
+import com.nisovin.shopkeepers.api.shopobjects.block.BlockShopObject;
+import com.nisovin.shopkeepers.api.shopobjects.entity.EntityShopObject;
 import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObject;
+import com.nisovin.shopkeepers.shopobjects.ShopObjectKeyStrategy;
 import com.nisovin.shopkeepers.shopobjects.block.AbstractBlockShopObjectType;
 import com.nisovin.shopkeepers.shopobjects.entity.AbstractEntityShopObjectType;
 import com.nisovin.shopkeepers.storage.SKShopkeeperStorage;
+import com.nisovin.shopkeepers.util.LatencyHistogram;
 import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.SchedulerUtils;
 import com.nisovin.shopkeepers.util.StringUtils;
 import com.nisovin.shopkeepers.util.Utils;
 
 public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 
+	// the (rough) maximum number of freshly added shopkeepers which get activated per tick:
+	private static final int CHUNK_ACTIVATIONS_SHOPS_PER_TICK = 200;
+
 	private final SKShopkeepersPlugin plugin;
 
 	// all shopkeepers:
 	private final Map<UUID, AbstractShopkeeper> shopkeepersByUUID = new LinkedHashMap<>();
 	private final Collection<AbstractShopkeeper> allShopkeepersView = Collections.unmodifiableCollection(shopkeepersByUUID.values());
 	private final Map<Integer, AbstractShopkeeper> shopkeepersById = new LinkedHashMap<>();
-	private final Map<ChunkCoords, List<AbstractShopkeeper>> shopkeepersByChunk = new HashMap<>();
-	// unmodifiable entries:
-	private final Map<ChunkCoords, List<AbstractShopkeeper>> shopkeeperViewsByChunk = new HashMap<>();
+	// entries are unmodifiable from the outside:
+	private final Map<ChunkCoords, ChunkShopkeepers> shopkeepersByChunk = new HashMap<>();
 	// unmodifiable map with unmodifiable entries:
-	private final Map<ChunkCoords, List<AbstractShopkeeper>> shopkeepersByChunkView = Collections.unmodifiableMap(shopkeeperViewsByChunk);
-	private final Map<String, AbstractShopkeeper> activeShopkeepers = new HashMap<>(); // TODO remove this (?)
+	private final Map<ChunkCoords, List<AbstractShopkeeper>> shopkeepersByChunkView = Collections.unmodifiableMap(shopkeepersByChunk);
+	// player shopkeepers by owner uuid:
+	private final Map<UUID, List<AbstractPlayerShopkeeper>> playerShopkeepersByOwner = new HashMap<>();
+	// all active shopkeepers, by object id:
+	private final Map<String, AbstractShopkeeper> activeShopkeepers = new HashMap<>();
 	private final Collection<AbstractShopkeeper> activeShopkeepersView = Collections.unmodifiableCollection(activeShopkeepers.values());
+	// active block shopkeepers: world name -> (block key -> shopkeeper)
+	private final Map<String, Map<Long, AbstractShopkeeper>> activeShopkeepersByBlock = new HashMap<>();
+	// active entity shopkeepers: entity uuid -> shopkeeper
+	private final Map<UUID, AbstractShopkeeper> activeShopkeepersByEntity = new HashMap<>();
+	// the number of active block and entity shopkeepers which are only indexed by their object id:
+	private int activeBlockShopkeepersByObjectId = 0;
+	private int activeEntityShopkeepersByObjectId = 0;
+
+	// chunks whose shopkeepers still need to be activated: chunk coords -> whether the shopkeepers still need to be
+	// informed about the chunk load (false for chunks with freshly added shopkeepers)
+	private final Map<ChunkCoords, Boolean> pendingChunkActivations = new LinkedHashMap<>();
+	private BukkitTask chunkActivationTask = null;
+
+	private int teleporterRuns = 0;
+
+	// immutable snapshot for readers on other threads:
+	private volatile ShopkeeperRegistrySnapshot snapshot = ShopkeeperRegistrySnapshot.EMPTY;
+	private long snapshotVersion = 0L;
+	private boolean snapshotPublishPending = false;
+	// shopkeepers which changed since the last published snapshot:
+	private final Set<AbstractShopkeeper> changedShopkeepers = new LinkedHashSet<>();
+
+	// latencies of shopkeeper activations in loaded chunks:
+	private final LatencyHistogram chunkActivationLatencies;
+	private final LatencyHistogram deferredChunkActivationLatencies;
 
 	public SKShopkeeperRegistry(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
+		this.chunkActivationLatencies = plugin.getLatencyStats().getHistogram("chunk.activation");
+		this.deferredChunkActivationLatencies = plugin.getLatencyStats().getHistogram("chunk.activation.deferred");
 	}
 
 	public void onEnable() {
@@ -77,32 +120,48 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		this.unloadAllShopkeepers();
 		assert this.getAllShopkeepers().isEmpty();
 
+		// stop pending chunk activations:
+		this.stopChunkActivationTask();
+		pendingChunkActivations.clear();
+
 		// reset, clearing (just in case):
 		activeShopkeepers.clear();
+		activeShopkeepersByBlock.clear();
+		activeShopkeepersByEntity.clear();
+		activeBlockShopkeepersByObjectId = 0;
+		activeEntityShopkeepersByObjectId = 0;
 		shopkeepersByChunk.clear();
-		shopkeeperViewsByChunk.clear();
+		playerShopkeepersByOwner.clear();
 		shopkeepersByUUID.clear();
 		shopkeepersById.clear();
+
+		// reset snapshot:
+		snapshot = ShopkeeperRegistrySnapshot.EMPTY;
+		snapshotPublishPending = false;
+		changedShopkeepers.clear();
 	}
 
 	private void startTeleporterTask() {
 		Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+			// run less often while the server is under heavy load:
+			teleporterRuns++;
+			if (teleporterRuns % plugin.getLoadThrottle().getIntervalMultiplier() != 0) return;
+
 			List<AbstractShopkeeper> readd = new ArrayList<>();
-			Iterator<Map.Entry<String, AbstractShopkeeper>> iter = activeShopkeepers.entrySet().iterator();
-			while (iter.hasNext()) {
-				AbstractShopkeeper shopkeeper = iter.next().getValue();
+			for (AbstractShopkeeper shopkeeper : activeShopkeepers.values()) {
 				boolean update = shopkeeper.check();
 				if (update) {
 					// if the shopkeeper had to be respawned its shop id changed:
-					// this removes the entry which was stored with the old shop id and later adds back the
+					// this later removes the entries which were stored with the old shop id and adds back the
 					// shopkeeper with its new id
 					readd.add(shopkeeper);
-					iter.remove();
 				}
 			}
 			if (!readd.isEmpty()) {
 				boolean dirty = false;
 				for (AbstractShopkeeper shopkeeper : readd) {
+					// deactivate by old object id:
+					this._deactivateShopkeeper(shopkeeper);
 					if (shopkeeper.isActive()) {
 						this._activateShopkeeper(shopkeeper);
 					}
@@ -177,6 +236,39 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		return shopkeeper;
 	}
 
+	@Override
+	public List<AbstractShopkeeper> createShopkeepers(Collection<? extends ShopCreationData> creationData) throws ShopkeeperCreateException {
+		Validate.notNull(creationData, "CreationData is null!");
+		if (creationData.isEmpty()) return Collections.emptyList();
+
+		// allocate ids in bulk:
+		SKShopkeeperStorage shopkeeperStorage = this.getShopkeeperStorage();
+		int[] ids = shopkeeperStorage.getNextShopkeeperIds(creationData.size());
+
+		// create all shopkeepers first, so that none of them get added if any of them cannot be created:
+		List<AbstractShopkeeper> shopkeepers = new ArrayList<>(ids.length);
+		int index = 0;
+		for (ShopCreationData shopCreationData : creationData) {
+			Validate.notNull(shopCreationData, "CreationData contains null!");
+			AbstractShopType<?> abstractShopType = this.validateShopType(shopCreationData.getShopType());
+			AbstractShopkeeper shopkeeper = abstractShopType.createShopkeeper(ids[index++], shopCreationData);
+			if (shopkeeper == null) {
+				// invalid shop type implementation..
+				throw new ShopkeeperCreateException("ShopType '" + abstractShopType.getClass().getName() + "' returned null shopkeeper!");
+			}
+			shopkeepers.add(shopkeeper);
+		}
+
+		// success:
+		// ids are allocated in ascending order:
+		shopkeeperStorage.onShopkeeperIdUsed(ids[ids.length - 1]);
+		this.addShopkeepers(shopkeepers, ShopkeeperAddedEvent.Cause.CREATED);
+
+		// single save for all created shopkeepers:
+		shopkeeperStorage.save();
+		return Collections.unmodifiableList(shopkeepers);
+	}
+
 	/**
 	 * Recreates a shopkeeper by loading its previously saved data from the given config section.
 	 * 
@@ -228,9 +320,11 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		// add shopkeeper to chunk:
 		ChunkCoords chunkCoords = shopkeeper.getChunkCoords();
 		this.addShopkeeperToChunk(shopkeeper, chunkCoords);
+		this.addShopkeeperToOwner(shopkeeper);
 
 		// inform shopkeeper:
 		shopkeeper.informAdded(cause);
+		this.onShopkeeperChanged(shopkeeper);
 
 		// call event:
 		Bukkit.getPluginManager().callEvent(new ShopkeeperAddedEvent(shopkeeper, cause));
@@ -245,6 +339,48 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		}
 	}
 
+	// adds multiple shopkeepers at once, calling a single event for all of them
+	// shopkeepers which need to be spawned get activated gradually via pending chunk activations
+	private void addShopkeepers(List<AbstractShopkeeper> shopkeepers, ShopkeeperAddedEvent.Cause cause) {
+		assert shopkeepers != null && cause != null;
+		for (AbstractShopkeeper shopkeeper : shopkeepers) {
+			assert shopkeeper != null && !shopkeeper.isValid();
+
+			// store by unique ids:
+			shopkeepersByUUID.put(shopkeeper.getUniqueId(), shopkeeper);
+			shopkeepersById.put(shopkeeper.getId(), shopkeeper);
+
+			// add shopkeeper to chunk:
+			this.addShopkeeperToChunk(shopkeeper, shopkeeper.getChunkCoords());
+			this.addShopkeeperToOwner(shopkeeper);
+
+			// inform shopkeeper:
+			shopkeeper.informAdded(cause);
+			this.onShopkeeperChanged(shopkeeper);
+			if (shopkeeper.isDirty()) this.getShopkeeperStorage().markDirty();
+		}
+
+		// call event:
+		Bukkit.getPluginManager().callEvent(new ShopkeepersAddedEvent(shopkeepers, cause));
+
+		// activate shopkeepers:
+		for (AbstractShopkeeper shopkeeper : shopkeepers) {
+			if (!shopkeeper.needsSpawning()) {
+				// activate shopkeeper once at registration:
+				this._activateShopkeeper(shopkeeper);
+			} else {
+				// activate shopkeeper later if its chunk is loaded:
+				ChunkCoords chunkCoords = shopkeeper.getChunkCoords();
+				if (chunkCoords.isChunkLoaded()) {
+					pendingChunkActivations.putIfAbsent(chunkCoords, false);
+				}
+			}
+		}
+		if (!pendingChunkActivations.isEmpty()) {
+			this.startChunkActivationTask();
+		}
+	}
+
 	private void removeShopkeeper(AbstractShopkeeper shopkeeper, ShopkeeperRemoveEvent.Cause cause) {
 		assert shopkeeper != null && shopkeeper.isValid() && cause != null;
 
@@ -264,6 +400,8 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		// remove shopkeeper from chunk:
 		ChunkCoords chunkCoords = shopkeeper.getChunkCoords();
 		this.removeShopkeeperFromChunk(shopkeeper, chunkCoords);
+		this.removeShopkeeperFromOwner(shopkeeper);
+		this.onShopkeeperChanged(shopkeeper);
 
 		// remove shopkeeper from storage:
 		this.getShopkeeperStorage().clearShopkeeperData(shopkeeper);
@@ -286,6 +424,50 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		this.removeShopkeeper(shopkeeper, ShopkeeperRemoveEvent.Cause.DELETE);
 	}
 
+	@Override
+	public void deleteShopkeepers(Collection<? extends Shopkeeper> shopkeepers) {
+		Validate.notNull(shopkeepers, "Shopkeepers is null!");
+		// removes duplicates:
+		Set<AbstractShopkeeper> toDelete = new LinkedHashSet<>();
+		for (Shopkeeper shopkeeper : shopkeepers) {
+			Validate.isTrue(shopkeeper instanceof AbstractShopkeeper, "Expecting an AbstractShopkeeper, got "
+					+ (shopkeeper == null ? "null" : shopkeeper.getClass().getName()));
+			Validate.isTrue(shopkeeper.isValid(), "Shopkeeper is invalid!");
+			toDelete.add((AbstractShopkeeper) shopkeeper);
+		}
+		if (toDelete.isEmpty()) return;
+
+		ShopkeeperRemoveEvent.Cause cause = ShopkeeperRemoveEvent.Cause.DELETE;
+		// deactivate shopkeepers:
+		for (AbstractShopkeeper shopkeeper : toDelete) {
+			this.deactivateShopkeeper(shopkeeper, true);
+		}
+
+		// call event:
+		Bukkit.getPluginManager().callEvent(new ShopkeepersRemoveEvent(toDelete, cause));
+
+		SKShopkeeperStorage shopkeeperStorage = this.getShopkeeperStorage();
+		for (AbstractShopkeeper shopkeeper : toDelete) {
+			// inform shopkeeper:
+			shopkeeper.informRemoval(cause);
+
+			// remove shopkeeper by id and session id:
+			shopkeepersByUUID.remove(shopkeeper.getUniqueId());
+			shopkeepersById.remove(shopkeeper.getId());
+
+			// remove shopkeeper from chunk:
+			this.removeShopkeeperFromChunk(shopkeeper, shopkeeper.getChunkCoords());
+			this.removeShopkeeperFromOwner(shopkeeper);
+			this.onShopkeeperChanged(shopkeeper);
+
+			// remove shopkeeper from storage:
+			shopkeeperStorage.clearShopkeeperData(shopkeeper);
+		}
+
+		// single save for all deleted shopkeepers:
+		shopkeeperStorage.save();
+	}
+
 	public void deleteAllShopkeepers() {
 		for (AbstractShopkeeper shopkeeper : new ArrayList<>(this.getAllShopkeepers())) {
 			this.deleteShopkeeper(shopkeeper);
@@ -293,24 +475,78 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	}
 
 	private void addShopkeeperToChunk(AbstractShopkeeper shopkeeper, ChunkCoords chunkCoords) {
-		List<AbstractShopkeeper> byChunk = shopkeepersByChunk.get(chunkCoords);
+		ChunkShopkeepers byChunk = shopkeepersByChunk.get(chunkCoords);
 		if (byChunk == null) {
-			byChunk = new ArrayList<>();
+			byChunk = new ChunkShopkeepers(chunkCoords);
 			shopkeepersByChunk.put(chunkCoords, byChunk);
-			shopkeeperViewsByChunk.put(chunkCoords, Collections.unmodifiableList(byChunk));
 		}
-		byChunk.add(shopkeeper);
+		byChunk.addShopkeeper(shopkeeper);
+		if (shopkeeper.getActiveObjectKey() != null) {
+			byChunk.onShopkeeperActivated();
+		}
 	}
 
 	private void removeShopkeeperFromChunk(AbstractShopkeeper shopkeeper, ChunkCoords chunkCoords) {
-		List<AbstractShopkeeper> byChunk = shopkeepersByChunk.get(chunkCoords);
+		ChunkShopkeepers byChunk = shopkeepersByChunk.get(chunkCoords);
 		if (byChunk == null) return;
-		if (byChunk.remove(shopkeeper) && byChunk.isEmpty()) {
-			shopkeepersByChunk.remove(chunkCoords);
-			shopkeeperViewsByChunk.remove(chunkCoords);
+		if (byChunk.removeShopkeeper(shopkeeper)) {
+			if (shopkeeper.getActiveObjectKey() != null) {
+				byChunk.onShopkeeperDeactivated();
+			}
+			if (byChunk.isEmpty()) {
+				shopkeepersByChunk.remove(chunkCoords);
+			}
+		}
+	}
+
+	private void addShopkeeperToOwner(AbstractShopkeeper shopkeeper) {
+		if (!(shopkeeper instanceof AbstractPlayerShopkeeper)) return;
+		AbstractPlayerShopkeeper playerShopkeeper = (AbstractPlayerShopkeeper) shopkeeper;
+		this.addShopkeeperToOwner(playerShopkeeper, playerShopkeeper.getOwnerUUID());
+	}
+
+	private void addShopkeeperToOwner(AbstractPlayerShopkeeper shopkeeper, UUID ownerUUID) {
+		if (ownerUUID == null) return;
+		List<AbstractPlayerShopkeeper> byOwner = playerShopkeepersByOwner.get(ownerUUID);
+		if (byOwner == null) {
+			byOwner = new ArrayList<>(1);
+			playerShopkeepersByOwner.put(ownerUUID, byOwner);
+		}
+		byOwner.add(shopkeeper);
+	}
+
+	private void removeShopkeeperFromOwner(AbstractShopkeeper shopkeeper) {
+		if (!(shopkeeper instanceof AbstractPlayerShopkeeper)) return;
+		AbstractPlayerShopkeeper playerShopkeeper = (AbstractPlayerShopkeeper) shopkeeper;
+		this.removeShopkeeperFromOwner(playerShopkeeper, playerShopkeeper.getOwnerUUID());
+	}
+
+	private void removeShopkeeperFromOwner(AbstractPlayerShopkeeper shopkeeper, UUID ownerUUID) {
+		if (ownerUUID == null) return;
+		List<AbstractPlayerShopkeeper> byOwner = playerShopkeepersByOwner.get(ownerUUID);
+		if (byOwner == null) return;
+		if (byOwner.remove(shopkeeper) && byOwner.isEmpty()) {
+			playerShopkeepersByOwner.remove(ownerUUID);
 		}
 	}
 
+	/**
+	 * Gets called by player shopkeepers whenever their owner changed.
+	 * 
+	 * @param shopkeeper
+	 *            the player shopkeeper
+	 * @param oldOwnerUUID
+	 *            the unique id of the previous owner
+	 */
+	public void onShopkeeperOwnerChanged(AbstractPlayerShopkeeper shopkeeper, UUID oldOwnerUUID) {
+		assert shopkeeper != null;
+		if (!shopkeeper.isValid()) return;
+		UUID newOwnerUUID = shopkeeper.getOwnerUUID();
+		if (newOwnerUUID == null ? oldOwnerUUID == null : newOwnerUUID.equals(oldOwnerUUID)) return;
+		this.removeShopkeeperFromOwner(shopkeeper, oldOwnerUUID);
+		this.addShopkeeperToOwner(shopkeeper, newOwnerUUID);
+	}
+
 	// ACTIVATION
 
 	// performs some validation before actually activating a shopkeeper:
@@ -326,26 +562,110 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		} else if (activeShopkeepers.containsKey(objectId)) {
 			Log.warning("Detected shopkeepers with duplicate object id: " + objectId);
 			return false;
-		} else {
-			// activate shopkeeper:
-			activeShopkeepers.put(objectId, shopkeeper);
-			return true;
 		}
+
+		ActiveObjectKey objectKey = this.createActiveObjectKey(shopkeeper, objectId);
+		switch (objectKey.strategy) {
+		case BLOCK:
+			Map<Long, AbstractShopkeeper> worldBlockShopkeepers = activeShopkeepersByBlock.get(objectKey.worldName);
+			if (worldBlockShopkeepers == null) {
+				worldBlockShopkeepers = new HashMap<>();
+				activeShopkeepersByBlock.put(objectKey.worldName, worldBlockShopkeepers);
+			} else if (worldBlockShopkeepers.containsKey(objectKey.blockKey)) {
+				Log.warning("Detected shopkeepers with duplicate block: " + objectId);
+				return false;
+			}
+			worldBlockShopkeepers.put(objectKey.blockKey, shopkeeper);
+			break;
+		case ENTITY:
+			if (activeShopkeepersByEntity.containsKey(objectKey.entityUUID)) {
+				Log.warning("Detected shopkeepers with duplicate entity: " + objectId);
+				return false;
+			}
+			activeShopkeepersByEntity.put(objectKey.entityUUID, shopkeeper);
+			break;
+		default:
+			AbstractShopObject shopObject = shopkeeper.getShopObject();
+			if (shopObject instanceof BlockShopObject) {
+				activeBlockShopkeepersByObjectId++;
+			} else if (shopObject instanceof EntityShopObject) {
+				activeEntityShopkeepersByObjectId++;
+			}
+			break;
+		}
+
+		// activate shopkeeper:
+		activeShopkeepers.put(objectId, shopkeeper);
+		shopkeeper.setActiveObjectKey(objectKey);
+		ChunkShopkeepers byChunk = shopkeepersByChunk.get(shopkeeper.getChunkCoords());
+		if (byChunk != null) byChunk.onShopkeeperActivated();
+		return true;
 	}
 
-	private boolean _deactivateShopkeeper(AbstractShopkeeper shopkeeper) {
-		assert shopkeeper != null;
-		String objectId = shopkeeper.getObjectId();
-		return this._deactivateShopkeeper(shopkeeper, objectId);
+	// determines the keys by which the shopkeeper gets indexed, based on the key strategy of its shop object type:
+	private ActiveObjectKey createActiveObjectKey(AbstractShopkeeper shopkeeper, String objectId) {
+		AbstractShopObject shopObject = shopkeeper.getShopObject();
+		switch (shopObject.getType().getKeyStrategy()) {
+		case BLOCK:
+			if (shopObject instanceof BlockShopObject) {
+				Block block = ((BlockShopObject) shopObject).getBlock();
+				if (block != null) {
+					return ActiveObjectKey.ofBlock(objectId, block);
+				}
+			}
+			break;
+		case ENTITY:
+			if (shopObject instanceof EntityShopObject) {
+				Entity entity = ((EntityShopObject) shopObject).getEntity();
+				if (entity != null) {
+					return ActiveObjectKey.ofEntity(objectId, entity.getUniqueId());
+				}
+			}
+			break;
+		default:
+			break;
+		}
+		// fallback to only indexing by object id:
+		return ActiveObjectKey.ofObjectId(objectId);
 	}
 
-	private boolean _deactivateShopkeeper(AbstractShopkeeper shopkeeper, String objectId) {
+	// deactivates the shopkeeper by the keys it got activated with
+	private boolean _deactivateShopkeeper(AbstractShopkeeper shopkeeper) {
 		assert shopkeeper != null;
-		if (objectId != null && activeShopkeepers.get(objectId) == shopkeeper) {
-			activeShopkeepers.remove(objectId);
-			return true;
+		ActiveObjectKey objectKey = shopkeeper.getActiveObjectKey();
+		if (objectKey == null) return false; // not active
+		shopkeeper.setActiveObjectKey(null);
+		ChunkShopkeepers byChunk = shopkeepersByChunk.get(shopkeeper.getChunkCoords());
+		if (byChunk != null) byChunk.onShopkeeperDeactivated();
+		if (activeShopkeepers.get(objectKey.objectId) == shopkeeper) {
+			activeShopkeepers.remove(objectKey.objectId);
+		}
+
+		switch (objectKey.strategy) {
+		case BLOCK:
+			Map<Long, AbstractShopkeeper> worldBlockShopkeepers = activeShopkeepersByBlock.get(objectKey.worldName);
+			if (worldBlockShopkeepers != null && worldBlockShopkeepers.get(objectKey.blockKey) == shopkeeper) {
+				worldBlockShopkeepers.remove(objectKey.blockKey);
+				if (worldBlockShopkeepers.isEmpty()) {
+					activeShopkeepersByBlock.remove(objectKey.worldName);
+				}
+			}
+			break;
+		case ENTITY:
+			if (activeShopkeepersByEntity.get(objectKey.entityUUID) == shopkeeper) {
+				activeShopkeepersByEntity.remove(objectKey.entityUUID);
+			}
+			break;
+		default:
+			AbstractShopObject shopObject = shopkeeper.getShopObject();
+			if (shopObject instanceof BlockShopObject) {
+				activeBlockShopkeepersByObjectId--;
+			} else if (shopObject instanceof EntityShopObject) {
+				activeEntityShopkeepersByObjectId--;
+			}
+			break;
 		}
-		return false;
+		return true;
 	}
 
 	private void activateShopkeeper(AbstractShopkeeper shopkeeper) {
@@ -367,6 +687,8 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			}
 		} else if (this.getActiveShopkeeper(shopkeeper.getObjectId()) == null) {
 			// already active but missing activation, activate with current object id:
+			// deactivate by outdated object id first, in case there is one:
+			this._deactivateShopkeeper(shopkeeper);
 			activate = true;
 		}
 		if (activate) {
@@ -393,13 +715,85 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	}
 
 	// this can be used if the shopkeeper's object id has changed for some reason
-	public void onShopkeeperObjectIdChanged(AbstractShopkeeper shopkeeper, String oldObjectId) {
+	public void onShopkeeperObjectIdChanged(AbstractShopkeeper shopkeeper) {
 		// deactivate by old object id:
-		this._deactivateShopkeeper(shopkeeper, oldObjectId);
+		this._deactivateShopkeeper(shopkeeper);
 		// re-activate by new / current object id:
 		this._activateShopkeeper(shopkeeper);
 	}
 
+	private void startChunkActivationTask() {
+		if (chunkActivationTask != null) return;
+		chunkActivationTask = Bukkit.getScheduler().runTaskTimer(plugin, this::processPendingChunkActivations, 1L, 1L);
+	}
+
+	private void stopChunkActivationTask() {
+		if (chunkActivationTask != null) {
+			chunkActivationTask.cancel();
+			chunkActivationTask = null;
+		}
+	}
+
+	/**
+	 * Queues the activation of the shopkeepers of the given freshly loaded chunk, which then gets spread across ticks.
+	 * <p>
+	 * The shopkeepers get informed about the chunk load once they get activated. If the chunk gets unloaded before
+	 * that, the queued activation gets cancelled and the shopkeepers get informed about neither the chunk load nor the
+	 * chunk unload.
+	 * 
+	 * @param chunk
+	 *            the chunk
+	 */
+	public void queueShopkeepersInChunkActivation(Chunk chunk) {
+		assert chunk != null;
+		ChunkCoords chunkCoords = new ChunkCoords(chunk);
+		List<AbstractShopkeeper> shopkeepers = this.getShopkeepersInChunk(chunkCoords);
+		if (shopkeepers.isEmpty()) return;
+		Log.debug("Queuing activation of " + shopkeepers.size() + " shopkeepers in chunk "
+				+ chunk.getWorld().getName() + "," + chunk.getX() + "," + chunk.getZ());
+		pendingChunkActivations.put(chunkCoords, true);
+		this.startChunkActivationTask();
+	}
+
+	// activates the shopkeepers of pending chunks, limited to a certain number of shopkeepers per tick:
+	private void processPendingChunkActivations() {
+		long startNanos = System.nanoTime();
+		// activate fewer shopkeepers per tick while the server is under heavy load:
+		int maxActivatedShops = Math.max(1, CHUNK_ACTIVATIONS_SHOPS_PER_TICK / plugin.getLoadThrottle().getIntervalMultiplier());
+		int activatedShops = 0;
+		boolean dirty = false;
+		Iterator<Entry<ChunkCoords, Boolean>> iter = pendingChunkActivations.entrySet().iterator();
+		while (iter.hasNext() && activatedShops < maxActivatedShops) {
+			Entry<ChunkCoords, Boolean> entry = iter.next();
+			ChunkCoords chunkCoords = entry.getKey();
+			boolean chunkLoad = entry.getValue();
+			iter.remove();
+			// skip chunks that got unloaded in the meantime: their shopkeepers get activated once the chunk gets loaded
+			if (!chunkCoords.isChunkLoaded()) continue;
+
+			for (AbstractShopkeeper shopkeeper : this.getShopkeepersInChunk(chunkCoords)) {
+				if (chunkLoad) {
+					// inform shopkeeper about chunk load:
+					shopkeeper.onChunkLoad(false);
+				}
+				this.activateShopkeeper(shopkeeper);
+				activatedShops++;
+				if (shopkeeper.isDirty()) dirty = true;
+			}
+		}
+
+		if (dirty) {
+			// save delayed:
+			this.getShopkeeperStorage().saveDelayed();
+		}
+		if (activatedShops > 0) {
+			deferredChunkActivationLatencies.record(System.nanoTime() - startNanos);
+		}
+		if (pendingChunkActivations.isEmpty()) {
+			this.stopChunkActivationTask();
+		}
+	}
+
 	// SHOPKEEPERS BY CHUNK
 
 	public void onShopkeeperMove(AbstractShopkeeper shopkeeper, ChunkCoords oldChunk) {
@@ -439,6 +833,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		int affectedShops = 0;
 		List<AbstractShopkeeper> shopkeepers = this.getShopkeepersInChunk(chunk);
 		if (!shopkeepers.isEmpty()) {
+			long startNanos = System.nanoTime();
 			affectedShops = shopkeepers.size();
 			Log.debug("Loading " + affectedShops + " shopkeepers in chunk "
 					+ chunk.getWorld().getName() + "," + chunk.getX() + "," + chunk.getZ()
@@ -459,6 +854,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 				// save delayed:
 				plugin.getShopkeeperStorage().saveDelayed();
 			}
+			chunkActivationLatencies.record(System.nanoTime() - startNanos);
 		}
 		return affectedShops;
 	}
@@ -486,9 +882,20 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	public int unloadShopkeepersInChunk(Chunk chunk, boolean worldSaving) {
 		assert chunk != null;
 		int affectedShops = 0;
-		List<AbstractShopkeeper> shopkeepers = this.getShopkeepersInChunk(chunk);
-		if (!shopkeepers.isEmpty()) {
+		ChunkCoords chunkCoords = new ChunkCoords(chunk);
+		ChunkShopkeepers shopkeepers = shopkeepersByChunk.get(chunkCoords);
+		// cancel any pending activation:
+		Boolean pendingChunkLoad = pendingChunkActivations.remove(chunkCoords);
+		if (shopkeepers != null) {
 			affectedShops = shopkeepers.size();
+			if (Boolean.TRUE.equals(pendingChunkLoad)) {
+				// the shopkeepers have not been informed about the chunk load yet, nor been activated:
+				return affectedShops;
+			}
+			// skip chunks without active shopkeepers, there is nothing to deactivate (shop objects only get informed
+			// about chunk unloads while their chunk contains active shopkeepers):
+			if (shopkeepers.getActiveCount() <= 0) return affectedShops;
+
 			Log.debug("Unloading " + affectedShops + " shopkeepers in chunk "
 					+ chunk.getWorld().getName() + "," + chunk.getX() + "," + chunk.getZ()
 					+ (worldSaving ? " (world saving)" : ""));
@@ -579,6 +986,47 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		return affectedShops;
 	}
 
+	// SNAPSHOT
+
+	/**
+	 * Gets called whenever a shopkeeper got added, removed, or its data changed.
+	 * <p>
+	 * This requests a new {@link ShopkeeperRegistrySnapshot} to be published. Multiple changes during the same tick
+	 * result in a single new snapshot. Only the snapshots of the changed shopkeepers get replaced, the snapshots of
+	 * all other shopkeepers are reused from the previous registry snapshot.
+	 * 
+	 * @param shopkeeper
+	 *            the shopkeeper
+	 */
+	public void onShopkeeperChanged(AbstractShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		changedShopkeepers.add(shopkeeper);
+		if (snapshotPublishPending) return;
+		// publish once the current tick has finished:
+		if (SchedulerUtils.runTaskOrOmit(plugin, this::publishSnapshot) != null) {
+			snapshotPublishPending = true;
+		}
+	}
+
+	private void publishSnapshot() {
+		snapshotPublishPending = false;
+		snapshotVersion++;
+		snapshot = snapshot.update(snapshotVersion, changedShopkeepers);
+		changedShopkeepers.clear();
+	}
+
+	/**
+	 * Gets the most recently published snapshot of all shopkeepers.
+	 * <p>
+	 * This can be called from any thread. Changes to the shopkeepers get reflected by the snapshot with a delay of up
+	 * to one tick.
+	 * 
+	 * @return the current snapshot, not <code>null</code>
+	 */
+	public ShopkeeperRegistrySnapshot getSnapshot() {
+		return snapshot;
+	}
+
 	// QUERYING
 
 	@Override
@@ -616,10 +1064,16 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	@Override
 	public AbstractShopkeeper getShopkeeperByEntity(Entity entity) {
 		if (entity == null) return null;
+		AbstractShopkeeper shopkeeper = activeShopkeepersByEntity.get(entity.getUniqueId());
+		if (shopkeeper != null) return shopkeeper;
+		if (activeEntityShopkeepersByObjectId <= 0) return null;
+
+		// check entity shop object types which only index by object id:
 		for (ShopObjectType<?> shopObjectType : plugin.getShopObjectTypeRegistry().getRegisteredTypes()) {
-			if (shopObjectType instanceof AbstractEntityShopObjectType) {
+			if (shopObjectType instanceof AbstractEntityShopObjectType
+					&& ((AbstractEntityShopObjectType<?>) shopObjectType).getKeyStrategy() == ShopObjectKeyStrategy.OBJECT_ID) {
 				String objectId = ((AbstractEntityShopObjectType<?>) shopObjectType).createObjectId(entity);
-				AbstractShopkeeper shopkeeper = this.getActiveShopkeeper(objectId);
+				shopkeeper = this.getActiveShopkeeper(objectId);
 				if (shopkeeper != null) return shopkeeper;
 			}
 		}
@@ -634,8 +1088,17 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	@Override
 	public AbstractShopkeeper getShopkeeperByBlock(Block block) {
 		if (block == null) return null;
+		Map<Long, AbstractShopkeeper> worldBlockShopkeepers = activeShopkeepersByBlock.get(block.getWorld().getName());
+		if (worldBlockShopkeepers != null) {
+			AbstractShopkeeper shopkeeper = worldBlockShopkeepers.get(ActiveObjectKey.getBlockKey(block));
+			if (shopkeeper != null) return shopkeeper;
+		}
+		if (activeBlockShopkeepersByObjectId <= 0) return null;
+
+		// check block shop object types which only index by object id:
 		for (ShopObjectType<?> shopObjectType : plugin.getShopObjectTypeRegistry().getRegisteredTypes()) {
-			if (shopObjectType instanceof AbstractBlockShopObjectType) {
+			if (shopObjectType instanceof AbstractBlockShopObjectType
+					&& ((AbstractBlockShopObjectType<?>) shopObjectType).getKeyStrategy() == ShopObjectKeyStrategy.OBJECT_ID) {
 				String objectId = ((AbstractBlockShopObjectType<?>) shopObjectType).createObjectId(block);
 				AbstractShopkeeper shopkeeper = this.getActiveShopkeeper(objectId);
 				if (shopkeeper != null) return shopkeeper;
@@ -713,13 +1176,30 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		return Collections.unmodifiableList(shopkeepersInWorld);
 	}
 
+	/**
+	 * Gets the player shopkeepers owned by the player with the given unique id.
+	 * 
+	 * @param ownerUUID
+	 *            the owner's unique id
+	 * @return an unmodifiable view on the player's shopkeepers, possibly empty
+	 */
+	public List<AbstractPlayerShopkeeper> getPlayerShopkeepersByOwner(UUID ownerUUID) {
+		List<AbstractPlayerShopkeeper> byOwner = playerShopkeepersByOwner.get(ownerUUID);
+		if (byOwner == null) return Collections.emptyList();
+		return Collections.unmodifiableList(byOwner);
+	}
+
+	/**
+	 * Gets the unique ids of all players owning player shopkeepers.
+	 * 
+	 * @return an unmodifiable view on the owners' unique ids
+	 */
+	public Set<UUID> getPlayerShopkeeperOwners() {
+		return Collections.unmodifiableSet(playerShopkeepersByOwner.keySet());
+	}
+
 	public int countShopsOfPlayer(Player player) {
-		int count = 0;
-		for (Shopkeeper shopkeeper : this.getAllShopkeepers()) {
-			if (shopkeeper instanceof PlayerShopkeeper && ((PlayerShopkeeper) shopkeeper).isOwner(player)) {
-				count++;
-			}
-		}
-		return count;
+		List<AbstractPlayerShopkeeper> byOwner = playerShopkeepersByOwner.get(player.getUniqueId());
+		return (byOwner == null ? 0 : byOwner.size());
 	}
 }
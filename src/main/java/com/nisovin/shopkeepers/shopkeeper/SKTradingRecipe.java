@@ -3,18 +3,42 @@ package com.nisovin.shopkeepers.shopkeeper;
 import org.apache.commons.lang.Validate;
 import org.bukkit.inventory.ItemStack;
 
+import com.google.common.base.Objects;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
-import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 
-public class SKTradingRecipe extends TradingRecipeDraft implements TradingRecipe {
+/**
+ * The items of this recipe are stored as {@link UnmodifiableItem}s. These can be read via
+ * {@link #getUnmodifiableResultItem()}, {@link #getUnmodifiableItem1()} and {@link #getUnmodifiableItem2()} without
+ * being copied. The {@link TradingRecipe} getters return copies.
+ */
+public class SKTradingRecipe implements TradingRecipe {
 
+	/**
+	 * Gets the given trading recipe as {@link SKTradingRecipe}.
+	 * <p>
+	 * Trading recipes created by the plugin are returned as they are. Other trading recipes get copied.
+	 *
+	 * @param tradingRecipe
+	 *            the trading recipe, not <code>null</code>
+	 * @return the trading recipe as {@link SKTradingRecipe}
+	 */
+	public static SKTradingRecipe of(TradingRecipe tradingRecipe) {
+		Validate.notNull(tradingRecipe, "Trading recipe is null!");
+		if (tradingRecipe instanceof SKTradingRecipe) return (SKTradingRecipe) tradingRecipe;
+		return new SKTradingRecipe(tradingRecipe.getResultItem(), tradingRecipe.getItem1(), tradingRecipe.getItem2(), tradingRecipe.isOutOfStock());
+	}
+
+	private final UnmodifiableItem resultItem; // not null
+	private final UnmodifiableItem item1; // not null
+	private final UnmodifiableItem item2; // can be null
 	private final boolean outOfStock;
 
 	/**
 	 * Creates a trading recipe.
 	 * <p>
 	 * The recipe is not out of stock.
-	 * 
+	 *
 	 * @param resultItem
 	 *            the result item, not empty
 	 * @param item1
@@ -28,7 +52,7 @@ public class SKTradingRecipe extends TradingRecipeDraft implements TradingRecipe
 
 	/**
 	 * Creates a TradingRecipe.
-	 * 
+	 *
 	 * @param resultItem
 	 *            the result item, not empty
 	 * @param item1
@@ -39,29 +63,90 @@ public class SKTradingRecipe extends TradingRecipeDraft implements TradingRecipe
 	 *            <code>true</code> if the recipe is out of stock
 	 */
 	public SKTradingRecipe(ItemStack resultItem, ItemStack item1, ItemStack item2, boolean outOfStock) {
-		super(ItemUtils.cloneOrNullIfEmpty(resultItem), ItemUtils.cloneOrNullIfEmpty(item1), ItemUtils.cloneOrNullIfEmpty(item2));
-		Validate.isTrue(!ItemUtils.isEmpty(resultItem), "Result item cannot be empty!");
-		Validate.isTrue(!ItemUtils.isEmpty(item1), "Item1 cannot be empty!");
+		this(UnmodifiableItem.of(resultItem), UnmodifiableItem.of(item1), UnmodifiableItem.of(item2), outOfStock);
+	}
+
+	/**
+	 * Creates a TradingRecipe.
+	 * <p>
+	 * The given items are used as-is, without being copied.
+	 *
+	 * @param resultItem
+	 *            the result item, not <code>null</code>
+	 * @param item1
+	 *            the first buy item, not <code>null</code>
+	 * @param item2
+	 *            the second buy item, can be <code>null</code>
+	 * @param outOfStock
+	 *            <code>true</code> if the recipe is out of stock
+	 */
+	public SKTradingRecipe(UnmodifiableItem resultItem, UnmodifiableItem item1, UnmodifiableItem item2, boolean outOfStock) {
+		Validate.notNull(resultItem, "Result item cannot be empty!");
+		Validate.notNull(item1, "Item1 cannot be empty!");
+		this.resultItem = resultItem;
+		this.item1 = item1;
+		this.item2 = item2;
 		this.outOfStock = outOfStock;
 	}
 
 	@Override
 	public final ItemStack getResultItem() {
-		return resultItem.clone();
+		return resultItem.copy();
 	}
 
 	@Override
 	public final ItemStack getItem1() {
-		return item1.clone();
+		return item1.copy();
 	}
 
 	@Override
 	public final ItemStack getItem2() {
-		return (item2 == null ? null : item2.clone());
+		return UnmodifiableItem.copy(item2);
+	}
+
+	/**
+	 * Gets the result item.
+	 *
+	 * @return the result item, not <code>null</code>
+	 */
+	public final UnmodifiableItem getUnmodifiableResultItem() {
+		return resultItem;
+	}
+
+	/**
+	 * Gets the first required item.
+	 *
+	 * @return the first required item, not <code>null</code>
+	 */
+	public final UnmodifiableItem getUnmodifiableItem1() {
+		return item1;
+	}
+
+	/**
+	 * Gets the second required item.
+	 *
+	 * @return the second required item, can be <code>null</code>
+	 */
+	public final UnmodifiableItem getUnmodifiableItem2() {
+		return item2;
 	}
 
 	@Override
 	public final boolean isOutOfStock() {
 		return outOfStock;
 	}
+
+	public boolean areItemsEqual(SKTradingRecipe otherRecipe) {
+		if (otherRecipe == null) return false;
+		if (!Objects.equal(resultItem, otherRecipe.resultItem)) return false;
+		if (!Objects.equal(item1, otherRecipe.item1)) return false;
+		if (!Objects.equal(item2, otherRecipe.item2)) return false;
+		return true;
+	}
+
+	public boolean areItemsEqual(TradingRecipe otherRecipe) {
+		// this is true for TradingRecipes created by the plugin
+		if (!(otherRecipe instanceof SKTradingRecipe)) return false; // also checks for null
+		return this.areItemsEqual((SKTradingRecipe) otherRecipe);
+	}
 }
@@ -0,0 +1,244 @@
+package com.nisovin.shopkeepers.shopkeeper;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An immutable and versioned snapshot of all shopkeepers known to the {@link SKShopkeeperRegistry}.
+ * <p>
+ * Snapshots get created on the main thread, but can be safely accessed from any thread afterwards. They are meant for
+ * readers which can live with slightly outdated information (ex. metrics, map exporters, chat bridges) and want to
+ * avoid synchronizing with the main thread.
+ * <p>
+ * The shopkeeper snapshots are distributed among segments by their unique ids. New snapshots get derived from the
+ * previous snapshot in a copy-on-write fashion: Only the segments containing changed shopkeepers get copied, all other
+ * segments are shared with the previous snapshot. The number of segments grows with the number of shopkeepers, so that
+ * the size of the copied segments stays bounded.
+ */
+public final class ShopkeeperRegistrySnapshot {
+
+	// the average number of shopkeeper snapshots per segment at which the segments get split:
+	private static final int MAX_AVERAGE_SEGMENT_SIZE = 32;
+	private static final int MIN_SEGMENTS = 16; // power of two
+
+	public static final ShopkeeperRegistrySnapshot EMPTY = new ShopkeeperRegistrySnapshot(0L,
+			createSegments(MIN_SEGMENTS), 0, Collections.emptyMap(), 0);
+
+	@SuppressWarnings("unchecked")
+	private static Map<UUID, ShopkeeperSnapshot>[] createSegments(int count) {
+		Map<UUID, ShopkeeperSnapshot>[] segments = new Map[count];
+		for (int i = 0; i < count; i++) {
+			segments[i] = Collections.emptyMap();
+		}
+		return segments;
+	}
+
+	private static int getSegmentIndex(UUID shopkeeperUUID, int segmentsCount) {
+		int hash = shopkeeperUUID.hashCode();
+		hash ^= (hash >>> 16); // spreads the hash bits (similar to HashMap)
+		return (hash & (segmentsCount - 1));
+	}
+
+	private final long version;
+	private final long timestamp;
+	// the segments are not modified once the snapshot got published:
+	private final Map<UUID, ShopkeeperSnapshot>[] segments;
+	private final int shopkeepersCount;
+	// world name -> number of shopkeepers
+	private final Map<String, Integer> worldShopkeeperCounts;
+	private final int playerShopsCount;
+	private final Collection<ShopkeeperSnapshot> shopkeepersView = new AbstractCollection<ShopkeeperSnapshot>() {
+		@Override
+		public Iterator<ShopkeeperSnapshot> iterator() {
+			return new SnapshotsIterator();
+		}
+
+		@Override
+		public int size() {
+			return shopkeepersCount;
+		}
+	};
+
+	private ShopkeeperRegistrySnapshot(long version, Map<UUID, ShopkeeperSnapshot>[] segments, int shopkeepersCount,
+										Map<String, Integer> worldShopkeeperCounts, int playerShopsCount) {
+		this.version = version;
+		this.timestamp = System.currentTimeMillis();
+		this.segments = segments;
+		this.shopkeepersCount = shopkeepersCount;
+		this.worldShopkeeperCounts = worldShopkeeperCounts;
+		this.playerShopsCount = playerShopsCount;
+	}
+
+	/**
+	 * Creates a new snapshot from this snapshot, which only replaces the snapshots of the given changed shopkeepers.
+	 * <p>
+	 * Only the segments containing changed shopkeepers get copied, all other segments (and the snapshots of all other
+	 * shopkeepers) are reused. Changed shopkeepers which are no longer valid get removed. Once the number of shopkeepers
+	 * has outgrown the segments, the snapshots get redistributed among twice as many segments.
+	 *
+	 * @param version
+	 *            the version of the new snapshot
+	 * @param changedShopkeepers
+	 *            the shopkeepers which got added, removed or modified since this snapshot was created
+	 * @return the new snapshot
+	 */
+	ShopkeeperRegistrySnapshot update(long version, Collection<? extends AbstractShopkeeper> changedShopkeepers) {
+		assert changedShopkeepers != null;
+		int segmentsCount = segments.length;
+		Map<UUID, ShopkeeperSnapshot>[] newSegments = segments.clone(); // only copies the segment references
+		boolean[] copiedSegments = new boolean[segmentsCount];
+		Map<String, Integer> newWorldCounts = null; // copied on first change
+		int newShopkeepersCount = shopkeepersCount;
+		int newPlayerShopsCount = playerShopsCount;
+
+		for (AbstractShopkeeper shopkeeper : changedShopkeepers) {
+			UUID shopkeeperUUID = shopkeeper.getUniqueId();
+			int segmentIndex = getSegmentIndex(shopkeeperUUID, segmentsCount);
+			ShopkeeperSnapshot oldSnapshot = newSegments[segmentIndex].get(shopkeeperUUID);
+			ShopkeeperSnapshot newSnapshot = shopkeeper.isValid() ? new ShopkeeperSnapshot(shopkeeper) : null;
+			if (oldSnapshot == null && newSnapshot == null) continue; // removed again before it got published
+
+			if (!copiedSegments[segmentIndex]) {
+				newSegments[segmentIndex] = new HashMap<>(newSegments[segmentIndex]);
+				copiedSegments[segmentIndex] = true;
+			}
+			if (newSnapshot != null) {
+				newSegments[segmentIndex].put(shopkeeperUUID, newSnapshot);
+			} else {
+				newSegments[segmentIndex].remove(shopkeeperUUID);
+			}
+
+			// update the counts:
+			String oldWorldName = (oldSnapshot == null) ? null : oldSnapshot.getWorldName();
+			String newWorldName = (newSnapshot == null) ? null : newSnapshot.getWorldName();
+			if (oldWorldName == null || !oldWorldName.equals(newWorldName)) {
+				if (newWorldCounts == null) newWorldCounts = new HashMap<>(worldShopkeeperCounts);
+				if (oldWorldName != null) {
+					int count = newWorldCounts.get(oldWorldName) - 1;
+					if (count == 0) newWorldCounts.remove(oldWorldName);
+					else newWorldCounts.put(oldWorldName, count);
+				}
+				if (newWorldName != null) {
+					newWorldCounts.merge(newWorldName, 1, Integer::sum);
+				}
+			}
+			if (oldSnapshot == null) newShopkeepersCount++;
+			else if (oldSnapshot.isPlayerShop()) newPlayerShopsCount--;
+			if (newSnapshot == null) newShopkeepersCount--;
+			else if (newSnapshot.isPlayerShop()) newPlayerShopsCount++;
+		}
+
+		if (newShopkeepersCount > segmentsCount * MAX_AVERAGE_SEGMENT_SIZE) {
+			newSegments = redistribute(newSegments, segmentsCount * 2);
+		}
+		Map<String, Integer> worldCounts = (newWorldCounts == null) ? worldShopkeeperCounts
+				: Collections.unmodifiableMap(newWorldCounts);
+		return new ShopkeeperRegistrySnapshot(version, newSegments, newShopkeepersCount, worldCounts,
+				newPlayerShopsCount);
+	}
+
+	// the number of segments only doubles, so this is amortized constant time per added shopkeeper:
+	private static Map<UUID, ShopkeeperSnapshot>[] redistribute(Map<UUID, ShopkeeperSnapshot>[] segments,
+																	int newSegmentsCount) {
+		Map<UUID, ShopkeeperSnapshot>[] newSegments = createSegments(newSegmentsCount);
+		for (Map<UUID, ShopkeeperSnapshot> segment : segments) {
+			for (ShopkeeperSnapshot snapshot : segment.values()) {
+				int segmentIndex = getSegmentIndex(snapshot.getUniqueId(), newSegmentsCount);
+				if (newSegments[segmentIndex].isEmpty()) {
+					newSegments[segmentIndex] = new HashMap<>();
+				}
+				newSegments[segmentIndex].put(snapshot.getUniqueId(), snapshot);
+			}
+		}
+		return newSegments;
+	}
+
+	private final class SnapshotsIterator implements Iterator<ShopkeeperSnapshot> {
+
+		private int nextSegmentIndex = 0;
+		private Iterator<ShopkeeperSnapshot> segmentIterator = Collections.emptyIterator();
+
+		@Override
+		public boolean hasNext() {
+			while (!segmentIterator.hasNext()) {
+				if (nextSegmentIndex >= segments.length) return false;
+				segmentIterator = segments[nextSegmentIndex++].values().iterator();
+			}
+			return true;
+		}
+
+		@Override
+		public ShopkeeperSnapshot next() {
+			if (!this.hasNext()) throw new NoSuchElementException();
+			return segmentIterator.next();
+		}
+	}
+
+	/**
+	 * Gets the version of this snapshot.
+	 * <p>
+	 * The version gets incremented for every published snapshot. Readers can use it to cheaply check whether the
+	 * registry has changed since they last looked at it.
+	 *
+	 * @return the version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the time at which this snapshot was created.
+	 *
+	 * @return the creation time in milliseconds
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Gets the snapshots of all shopkeepers.
+	 * <p>
+	 * The snapshots are not in any particular order.
+	 *
+	 * @return an unmodifiable view on all shopkeeper snapshots
+	 */
+	public Collection<ShopkeeperSnapshot> getShopkeepers() {
+		return shopkeepersView;
+	}
+
+	/**
+	 * Gets the snapshot of the shopkeeper with the given unique id.
+	 *
+	 * @param shopkeeperUUID
+	 *            the shopkeeper's unique id
+	 * @return the shopkeeper snapshot, or <code>null</code> if there was no such shopkeeper
+	 */
+	public ShopkeeperSnapshot getShopkeeper(UUID shopkeeperUUID) {
+		if (shopkeeperUUID == null) return null;
+		return segments[getSegmentIndex(shopkeeperUUID, segments.length)].get(shopkeeperUUID);
+	}
+
+	/**
+	 * Gets the names of all worlds that contain shopkeepers.
+	 *
+	 * @return an unmodifiable set of world names
+	 */
+	public Set<String> getWorldNames() {
+		return worldShopkeeperCounts.keySet();
+	}
+
+	public int getShopkeepersCount() {
+		return shopkeepersCount;
+	}
+
+	public int getPlayerShopsCount() {
+		return playerShopsCount;
+	}
+}
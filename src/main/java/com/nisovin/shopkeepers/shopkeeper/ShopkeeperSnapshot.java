@@ -0,0 +1,187 @@
+package com.nisovin.shopkeepers.shopkeeper;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.nisovin.shopkeepers.shopkeeper.offers.BookOffer;
+import com.nisovin.shopkeepers.shopkeeper.offers.PriceOffer;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
+
+/**
+ * An immutable summary of a shopkeeper's state at the time the snapshot was taken.
+ * <p>
+ * Unlike the shopkeeper itself, instances of this class are safe to be accessed from any thread.
+ */
+public final class ShopkeeperSnapshot {
+
+	private final int id;
+	private final UUID uniqueId;
+	private final String shopTypeId;
+	private final String objectTypeId;
+	private final UUID ownerUUID; // null for non-player shops
+	private final String ownerName; // null for non-player shops
+	private final String worldName;
+	private final int x;
+	private final int y;
+	private final int z;
+	private final int offerCount;
+	private final int offersDigest;
+
+	ShopkeeperSnapshot(AbstractShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		this.id = shopkeeper.getId();
+		this.uniqueId = shopkeeper.getUniqueId();
+		this.shopTypeId = shopkeeper.getType().getIdentifier();
+		this.objectTypeId = shopkeeper.getShopObject().getType().getIdentifier();
+		if (shopkeeper instanceof AbstractPlayerShopkeeper) {
+			AbstractPlayerShopkeeper playerShopkeeper = (AbstractPlayerShopkeeper) shopkeeper;
+			this.ownerUUID = playerShopkeeper.getOwnerUUID();
+			this.ownerName = playerShopkeeper.getOwnerName();
+		} else {
+			this.ownerUUID = null;
+			this.ownerName = null;
+		}
+		this.worldName = shopkeeper.getWorldName();
+		this.x = shopkeeper.getX();
+		this.y = shopkeeper.getY();
+		this.z = shopkeeper.getZ();
+
+		List<?> offers = shopkeeper.getOffers();
+		this.offerCount = offers.size();
+		this.offersDigest = getOffersDigest(offers);
+	}
+
+	private static int getOffersDigest(List<?> offers) {
+		int digest = 1;
+		for (Object offer : offers) {
+			digest = 31 * digest + getOfferDigest(offer);
+		}
+		return digest;
+	}
+
+	private static int getOfferDigest(Object offer) {
+		if (offer instanceof SKTradingRecipe) {
+			// avoids copying the items:
+			SKTradingRecipe recipe = (SKTradingRecipe) offer;
+			int digest = getItemDigest(recipe.getUnmodifiableResultItem());
+			digest = 31 * digest + getItemDigest(recipe.getUnmodifiableItem1());
+			digest = 31 * digest + getItemDigest(recipe.getUnmodifiableItem2());
+			return digest;
+		} else if (offer instanceof PriceOffer) {
+			PriceOffer priceOffer = (PriceOffer) offer;
+			return 31 * getItemDigest(priceOffer.getItem()) + priceOffer.getPrice();
+		} else if (offer instanceof BookOffer) {
+			BookOffer bookOffer = (BookOffer) offer;
+			return 31 * bookOffer.getBookTitle().hashCode() + bookOffer.getPrice();
+		} else {
+			return (offer == null ? 0 : offer.hashCode());
+		}
+	}
+
+	private static int getItemDigest(UnmodifiableItem item) {
+		return (item == null ? 0 : item.hashCode());
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public UUID getUniqueId() {
+		return uniqueId;
+	}
+
+	/**
+	 * Gets the identifier of the shopkeeper's shop type.
+	 *
+	 * @return the shop type identifier
+	 */
+	public String getShopTypeId() {
+		return shopTypeId;
+	}
+
+	/**
+	 * Gets the identifier of the shopkeeper's shop object type.
+	 *
+	 * @return the shop object type identifier
+	 */
+	public String getObjectTypeId() {
+		return objectTypeId;
+	}
+
+	/**
+	 * Checks whether the shopkeeper is a player shopkeeper.
+	 *
+	 * @return <code>true</code> if this is a player shopkeeper
+	 */
+	public boolean isPlayerShop() {
+		return (ownerUUID != null);
+	}
+
+	/**
+	 * Gets the owner's unique id.
+	 *
+	 * @return the owner's unique id, or <code>null</code> if this is not a player shopkeeper
+	 */
+	public UUID getOwnerUUID() {
+		return ownerUUID;
+	}
+
+	/**
+	 * Gets the owner's last known name.
+	 *
+	 * @return the owner's name, or <code>null</code> if this is not a player shopkeeper
+	 */
+	public String getOwnerName() {
+		return ownerName;
+	}
+
+	public String getWorldName() {
+		return worldName;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getZ() {
+		return z;
+	}
+
+	/**
+	 * Gets the number of offers the shopkeeper had set up.
+	 *
+	 * @return the number of offers
+	 */
+	public int getOfferCount() {
+		return offerCount;
+	}
+
+	/**
+	 * Gets a digest of the shopkeeper's offers.
+	 * <p>
+	 * This can be compared with the digest of a previous snapshot in order to detect changes to the offers. Equal
+	 * digests do not guarantee equal offers though.
+	 *
+	 * @return the offers digest
+	 */
+	public int getOffersDigest() {
+		return offersDigest;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getName()
+				+ "[id=" + id
+				+ ",uniqueId=" + uniqueId
+				+ ",shopType=" + shopTypeId
+				+ ",objectType=" + objectTypeId
+				+ ",owner=" + ownerUUID
+				+ ",location=" + worldName + "," + x + "," + y + "," + z
+				+ ",offers=" + offerCount + "]";
+	}
+}
@@ -115,8 +115,11 @@ public class TradingRecipeDraft {
 	}
 
 	public boolean areItemsEqual(TradingRecipe otherRecipe) {
-		// this is true for TradingRecipes based on SKTradingRecipe
-		if (!(otherRecipe instanceof TradingRecipeDraft)) return false; // also checks for null
-		return this.areItemsEqual((TradingRecipeDraft) otherRecipe);
+		if (otherRecipe == null) return false;
+		// note: the items of the recipe are copies
+		if (!Objects.equal(resultItem, otherRecipe.getResultItem())) return false;
+		if (!Objects.equal(item1, otherRecipe.getItem1())) return false;
+		if (!Objects.equal(item2, otherRecipe.getItem2())) return false;
+		return true;
 	}
 }
@@ -32,7 +32,12 @@ class WorldListener implements Listener {
 		Chunk chunk = event.getChunk();
 		Bukkit.getScheduler().runTaskLater(plugin, () -> {
 			if (chunk.isLoaded()) {
-				shopkeeperRegistry.loadShopkeepersInChunk(chunk);
+				if (plugin.getLoadThrottle().isDeferringChunkActivations()) {
+					// spread the activations while the server is under heavy load:
+					shopkeeperRegistry.queueShopkeepersInChunkActivation(chunk);
+				} else {
+					shopkeeperRegistry.loadShopkeepersInChunk(chunk);
+				}
 			}
 		}, 2);
 	}
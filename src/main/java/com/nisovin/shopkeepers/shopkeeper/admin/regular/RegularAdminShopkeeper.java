@@ -89,6 +89,7 @@ public class RegularAdminShopkeeper extends AbstractAdminShopkeeper {
 
 	// OFFERS:
 
+	@Override
 	public List<TradingOffer> getOffers() {
 		return offersView;
 	}
@@ -107,6 +108,7 @@ public class RegularAdminShopkeeper extends AbstractAdminShopkeeper {
 		assert offer != null;
 		offers.add(offer);
 		recipes.add(offer); // TradingOffer extends TradingRecipe
+		this.invalidateTradingRecipes();
 	}
 
 	private void _addOffers(Collection<TradingOffer> offers) {
@@ -121,6 +123,7 @@ public class RegularAdminShopkeeper extends AbstractAdminShopkeeper {
 	private void _clearOffers() {
 		offers.clear();
 		recipes.clear();
+		this.invalidateTradingRecipes();
 	}
 
 	public void clearOffers() {
@@ -9,24 +9,30 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 
 /**
  * Stores information about an item stack being sold or bought for a certain price.
  */
 public class PriceOffer {
 
-	private final ItemStack item; // not null/empty
+	private final UnmodifiableItem item; // not null
 	private final int price; // > 0
 
 	public PriceOffer(ItemStack item, int price) {
 		Validate.isTrue(!ItemUtils.isEmpty(item), "Item cannot be empty!");
 		Validate.isTrue(price > 0, "Price has to be positive!");
-		this.item = item.clone();
+		this.item = UnmodifiableItem.of(item);
 		this.price = price;
 	}
 
-	public ItemStack getItem() {
-		return item.clone();
+	/**
+	 * Gets the item.
+	 * 
+	 * @return the unmodifiable item, not <code>null</code>
+	 */
+	public UnmodifiableItem getItem() {
+		return item;
 	}
 
 	public int getPrice() {
@@ -41,7 +47,7 @@ public class PriceOffer {
 		ConfigurationSection offersSection = config.createSection(node);
 		int id = 0;
 		for (PriceOffer offer : offers) {
-			ItemStack item = offer.getItem(); // is a clone
+			ItemStack item = offer.getItem().copy();
 			ConfigurationSection offerSection = offersSection.createSection(String.valueOf(id));
 			offerSection.set("item", item);
 			offerSection.set("price", offer.getPrice());
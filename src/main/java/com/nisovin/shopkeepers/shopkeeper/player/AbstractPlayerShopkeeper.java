@@ -4,8 +4,8 @@ import java.util.List;
 import java.util.UUID;
 
 import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.Chest;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
@@ -15,7 +15,6 @@ import org.bukkit.inventory.meta.ItemMeta;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
-import com.nisovin.shopkeepers.api.ShopkeepersAPI;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.events.ShopkeeperAddedEvent;
 import com.nisovin.shopkeepers.api.events.ShopkeeperRemoveEvent;
@@ -27,12 +26,15 @@ import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.api.shopobjects.DefaultShopObjectTypes;
 import com.nisovin.shopkeepers.api.ui.DefaultUITypes;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
 import com.nisovin.shopkeepers.shopobjects.citizens.SKCitizensShopObject;
 import com.nisovin.shopkeepers.shopobjects.sign.SKSignShopObject;
 import com.nisovin.shopkeepers.util.Filter;
 import com.nisovin.shopkeepers.util.ItemCount;
+import com.nisovin.shopkeepers.util.ItemCounts;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 import com.nisovin.shopkeepers.util.Utils;
 
 public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implements PlayerShopkeeper {
@@ -44,6 +46,15 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 	protected int chestZ;
 	protected ItemStack hireCost = null; // null if not for hire
 
+	// the trading recipes of the cached trading recipes version:
+	private List<TradingRecipe> cachedTradingRecipes = null;
+	private int cachedTradingRecipesVersion = 0;
+	private final ChestStock chestStock = new ChestStock();
+	private final ChestHandle chestHandle = new ChestHandle();
+	// the world of the chest, cached by its unique id:
+	private String chestWorldName = null;
+	private UUID chestWorldUID = null;
+
 	/**
 	 * Creates a not yet initialized {@link AbstractPlayerShopkeeper} (for use in sub-classes).
 	 * <p>
@@ -184,8 +195,11 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 	@Override
 	public void setOwner(UUID ownerUUID, String ownerName) {
 		this.markDirty();
+		UUID oldOwnerUUID = this.ownerUUID;
 		this.ownerUUID = ownerUUID;
 		this.ownerName = ownerName;
+		// update the registry's owner index:
+		SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().onShopkeeperOwnerChanged(this, oldOwnerUUID);
 		// TODO do this in a more abstract way
 		if (!Settings.allowRenamingOfPlayerNpcShops && this.getShopObject().getType() == DefaultShopObjectTypes.CITIZEN()) {
 			// update the npc's name:
@@ -255,6 +269,9 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 		this.chestX = chestX;
 		this.chestY = chestY;
 		this.chestZ = chestZ;
+		chestHandle.invalidate();
+		chestStock.invalidate();
+		this.invalidateTradingRecipes();
 
 		if (this.isValid()) {
 			// register new protected chest:
@@ -270,11 +287,36 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 
 	@Override
 	public Block getChest() {
-		return Bukkit.getWorld(this.getWorldName()).getBlockAt(chestX, chestY, chestZ);
+		return this.getChestWorld().getBlockAt(chestX, chestY, chestZ);
+	}
+
+	private World getChestWorld() {
+		String worldName = this.getWorldName();
+		if (chestWorldUID != null && worldName.equals(chestWorldName)) {
+			World world = Bukkit.getWorld(chestWorldUID);
+			if (world != null) return world;
+		}
+		// the world is unknown, or got unloaded in the meantime:
+		World world = Bukkit.getWorld(worldName);
+		chestWorldName = worldName;
+		chestWorldUID = (world == null ? null : world.getUID());
+		return world;
+	}
+
+	/**
+	 * Gets the inventory of this shopkeeper's chest.
+	 * <p>
+	 * The inventory is cached as long as the chest doesn't change, so this usually doesn't need to create a block
+	 * state snapshot.
+	 * 
+	 * @return the live chest inventory, or <code>null</code> if the chest couldn't be found
+	 */
+	protected Inventory getChestInventory() {
+		return chestHandle.getInventory(this.getChest());
 	}
 
 	// returns null (and logs a warning) if the price cannot be represented correctly by currency items
-	protected TradingRecipe createSellingRecipe(ItemStack itemBeingSold, int price, boolean outOfStock) {
+	protected TradingRecipe createSellingRecipe(UnmodifiableItem itemBeingSold, int price, boolean outOfStock) {
 		int remainingPrice = price;
 
 		ItemStack item1 = null;
@@ -304,47 +346,102 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 				item2 = currencyItem;
 			}
 		}
-		return ShopkeepersAPI.createTradingRecipe(itemBeingSold, item1, item2, outOfStock);
+		// the offered item is not copied:
+		return new SKTradingRecipe(itemBeingSold, UnmodifiableItem.of(item1), UnmodifiableItem.of(item2), outOfStock);
 	}
 
 	// returns null (and logs a warning) if the price cannot be represented correctly by currency items
-	protected TradingRecipe createBuyingRecipe(ItemStack itemBeingBought, int price, boolean outOfStock) {
+	protected TradingRecipe createBuyingRecipe(UnmodifiableItem itemBeingBought, int price, boolean outOfStock) {
 		if (price > Settings.currencyItem.getMaxStackSize()) {
 			// cannot represent this price with the used currency items:
 			Log.warning("Shopkeeper at " + this.getPositionString() + " owned by " + ownerName + " has an invalid cost!");
 			return null;
 		}
 		ItemStack currencyItem = Settings.createCurrencyItem(price);
-		return ShopkeepersAPI.createTradingRecipe(currencyItem, itemBeingBought, null, outOfStock);
+		// the offered item is not copied:
+		return new SKTradingRecipe(UnmodifiableItem.of(currencyItem), itemBeingBought, null, outOfStock);
 	}
 
+	// player shopkeepers offer the same trading recipes to all players, which only need to be created again once the
+	// offers or the chest contents have changed:
 	@Override
-	public int getCurrencyInChest() {
-		Block chest = this.getChest();
-		if (!ItemUtils.isChest(chest.getType())) return 0;
-
-		int totalCurrency = 0;
-		Inventory chestInventory = ((Chest) chest.getState()).getInventory();
-		ItemStack[] chestContents = chestInventory.getContents();
-		for (ItemStack itemStack : chestContents) {
-			if (Settings.isCurrencyItem(itemStack)) {
-				totalCurrency += itemStack.getAmount();
-			} else if (Settings.isHighCurrencyItem(itemStack)) {
-				totalCurrency += (itemStack.getAmount() * Settings.highCurrencyValue);
-			}
+	public List<TradingRecipe> getTradingRecipes(Player player) {
+		int tradingRecipesVersion = this.getTradingRecipesVersion();
+		if (cachedTradingRecipes == null || cachedTradingRecipesVersion != tradingRecipesVersion) {
+			cachedTradingRecipes = this.createTradingRecipes();
+			cachedTradingRecipesVersion = tradingRecipesVersion;
 		}
-		return totalCurrency;
+		return cachedTradingRecipes;
 	}
 
-	protected List<ItemCount> getItemsFromChest(Filter<ItemStack> filter) {
-		ItemStack[] chestContents = null;
-		Block chest = this.getChest();
-		if (ItemUtils.isChest(chest.getType())) {
-			Inventory chestInventory = ((Chest) chest.getState()).getInventory();
-			chestContents = chestInventory.getContents();
+	/**
+	 * Creates the trading recipes of this shopkeeper, based on its offers and the current contents of its chest.
+	 * 
+	 * @return an unmodifiable view on the trading recipes
+	 */
+	protected abstract List<TradingRecipe> createTradingRecipes();
+
+	// CHEST STOCK
+
+	/**
+	 * Gets the stock of this shopkeeper's chest.
+	 * <p>
+	 * The chest only gets counted again if its contents might have changed since they were last counted.
+	 * 
+	 * @return the chest stock
+	 */
+	public ChestStock getChestStock() {
+		if (chestStock.isOutdated()) {
+			chestStock.recount(this.getChestContents());
+		}
+		return chestStock;
+	}
+
+	// returns null if the chest couldn't be found:
+	private ItemStack[] getChestContents() {
+		Inventory chestInventory = this.getChestInventory();
+		return (chestInventory == null ? null : chestInventory.getContents());
+	}
+
+	/**
+	 * This gets called when the contents of this shopkeeper's chest might have changed in some unknown way.
+	 */
+	public void onChestContentsChanged() {
+		chestStock.invalidate();
+		this.invalidateTradingRecipes();
+	}
+
+	/**
+	 * This gets called when the contents of this shopkeeper's chest got replaced with the given contents.
+	 * 
+	 * @param newContents
+	 *            the new chest contents
+	 */
+	public void onChestContentsChanged(ItemStack[] newContents) {
+		chestStock.recount(newContents);
+		this.invalidateTradingRecipes();
+	}
+
+	@Override
+	public int getCurrencyInChest() {
+		return this.getChestStock().getCurrency();
+	}
+
+	@Override
+	public int getAmountInChest(ItemStack item) {
+		return this.getChestStock().getAmount(item);
+	}
+
+	protected ItemCounts getItemsFromChest(Filter<ItemStack> filter) {
+		// empty if the chest couldn't be found:
+		ItemCounts itemCounts = new ItemCounts();
+		for (ItemCount itemCount : this.getChestStock().getItemCounts().getItemCounts()) {
+			ItemStack item = itemCount.getItem();
+			if (filter == null || filter.accept(item)) {
+				itemCounts.add(item, itemCount.getAmount());
+			}
 		}
-		// returns an empty list if the chest couldn't be found:
-		return ItemUtils.countItems(chestContents, filter);
+		return itemCounts;
 	}
 
 	// SHOPKEEPER UIs - shortcuts for common UI types:
@@ -357,15 +454,14 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 	@Override
 	public boolean openChestWindow(Player player) {
 		// make sure the chest still exists
-		Block chest = this.getChest();
-		if (!ItemUtils.isChest(chest.getType())) {
+		Inventory inv = this.getChestInventory();
+		if (inv == null) {
 			Log.debug("Cannot open chest inventory for player '" + player.getName() + "': The block is no longer a chest!");
 			return false;
 		}
 
 		Log.debug("Opening chest inventory for player '" + player.getName() + "'.");
 		// open the chest directly as the player (no need for a custom UI)
-		Inventory inv = ((Chest) chest.getState()).getInventory();
 		player.openInventory(inv);
 		return true;
 	}
@@ -0,0 +1,106 @@
+package com.nisovin.shopkeepers.shopkeeper.player;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.Chest;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.inventory.DoubleChestInventory;
+import org.bukkit.inventory.Inventory;
+
+import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.util.ItemUtils;
+
+/**
+ * Provides access to the live inventory of a shop chest, without creating a block state snapshot on every access.
+ * <p>
+ * The chest inventory gets cached, and validated before every access: The chunks of the involved chest blocks have to
+ * be loaded, the blocks have to still be chests of the same type (single or double chest), and their tile entities must
+ * not have been replaced. If tile entities cannot be compared on the current server version, the chest inventory
+ * doesn't get cached.
+ */
+class ChestHandle {
+
+	private Inventory inventory = null; // null if there is no cached inventory
+	private World world = null;
+	// the blocks of the (double) chest, and their states at the time the inventory got cached:
+	private Block[] blocks = null;
+	private org.bukkit.block.data.type.Chest.Type[] chestTypes = null;
+	private Object[] tileEntities = null;
+
+	ChestHandle() {
+	}
+
+	/**
+	 * Gets the inventory of the given chest.
+	 *
+	 * @param chest
+	 *            the chest block
+	 * @return the live chest inventory, or <code>null</code> if the block is no chest
+	 */
+	Inventory getInventory(Block chest) {
+		if (inventory != null && this.isValid(chest)) {
+			return inventory;
+		}
+		this.invalidate();
+
+		if (!ItemUtils.isChest(chest.getType())) return null;
+		Inventory chestInventory = ((Chest) chest.getState()).getInventory();
+		this.setup(chest, chestInventory);
+		return chestInventory;
+	}
+
+	void invalidate() {
+		inventory = null;
+		world = null;
+		blocks = null;
+		chestTypes = null;
+		tileEntities = null;
+	}
+
+	private void setup(Block chest, Inventory chestInventory) {
+		Block[] chestBlocks;
+		if (chestInventory instanceof DoubleChestInventory) {
+			DoubleChestInventory doubleChestInventory = (DoubleChestInventory) chestInventory;
+			chestBlocks = new Block[] {
+				doubleChestInventory.getLeftSide().getLocation().getBlock(),
+				doubleChestInventory.getRightSide().getLocation().getBlock()
+			};
+		} else {
+			chestBlocks = new Block[] { chest };
+		}
+
+		org.bukkit.block.data.type.Chest.Type[] types = new org.bukkit.block.data.type.Chest.Type[chestBlocks.length];
+		Object[] blockTileEntities = new Object[chestBlocks.length];
+		for (int i = 0; i < chestBlocks.length; ++i) {
+			Block block = chestBlocks[i];
+			BlockData blockData = block.getBlockData();
+			if (!(blockData instanceof org.bukkit.block.data.type.Chest)) return;
+			types[i] = ((org.bukkit.block.data.type.Chest) blockData).getType();
+			blockTileEntities[i] = NMSManager.getProvider().getTileEntity(block);
+			// not supported, don't cache the inventory:
+			if (blockTileEntities[i] == null) return;
+		}
+
+		this.inventory = chestInventory;
+		this.world = chest.getWorld();
+		this.blocks = chestBlocks;
+		this.chestTypes = types;
+		this.tileEntities = blockTileEntities;
+	}
+
+	private boolean isValid(Block chest) {
+		// the world might have been reloaded:
+		if (chest.getWorld() != world) return false;
+		for (int i = 0; i < blocks.length; ++i) {
+			Block block = blocks[i];
+			if (!world.isChunkLoaded(block.getX() >> 4, block.getZ() >> 4)) return false;
+			// checks for changes between single and double chests:
+			BlockData blockData = block.getBlockData();
+			if (!(blockData instanceof org.bukkit.block.data.type.Chest)) return false;
+			if (((org.bukkit.block.data.type.Chest) blockData).getType() != chestTypes[i]) return false;
+			// checks for replaced chests:
+			if (NMSManager.getProvider().getTileEntity(block) != tileEntities[i]) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,117 @@
+package com.nisovin.shopkeepers.shopkeeper.player;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.inventory.ItemStack;
+
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.util.ItemCounts;
+import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
+
+/**
+ * Keeps track of the items inside the chest of a player shopkeeper, so that the chest doesn't need to be counted
+ * whenever its stock is queried.
+ * <p>
+ * This is an invalidate-and-recount cache: Changes to the chest contents (including the chest getting broken or
+ * replaced) only mark the stock as outdated, so that the whole chest gets counted again the next time the stock is
+ * needed. In case some changes went unnoticed, the stock also gets counted again if it was last counted some time ago.
+ */
+public class ChestStock {
+
+	private static final long RECOUNT_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+	private final ItemCounts itemCounts = new ItemCounts();
+	private int currency = 0;
+	private boolean outdated = true;
+	private long lastCountMillis = 0L;
+
+	ChestStock() {
+	}
+
+	/**
+	 * Checks whether this stock needs to be counted again.
+	 *
+	 * @return <code>true</code> if outdated
+	 */
+	public boolean isOutdated() {
+		return outdated || (System.currentTimeMillis() - lastCountMillis) >= RECOUNT_INTERVAL_MILLIS;
+	}
+
+	/**
+	 * Marks this stock as outdated.
+	 */
+	public void invalidate() {
+		outdated = true;
+	}
+
+	/**
+	 * Counts the given chest contents.
+	 *
+	 * @param contents
+	 *            the chest contents, or <code>null</code> if there is no chest
+	 */
+	public void recount(ItemStack[] contents) {
+		itemCounts.clear();
+		currency = 0;
+		if (contents != null) {
+			for (ItemStack item : contents) {
+				if (ItemUtils.isEmpty(item)) continue;
+				this.add(item, item.getAmount());
+			}
+		}
+		outdated = false;
+		lastCountMillis = System.currentTimeMillis();
+	}
+
+	private void add(ItemStack item, int amount) {
+		itemCounts.add(item, amount);
+		if (Settings.isCurrencyItem(item)) {
+			currency += amount;
+		} else if (Settings.isHighCurrencyItem(item)) {
+			currency += (amount * Settings.highCurrencyValue);
+		}
+	}
+
+	/**
+	 * Gets the counts of all items inside the chest.
+	 * <p>
+	 * This includes currency items. The returned item counts must not be modified.
+	 *
+	 * @return the item counts
+	 */
+	public ItemCounts getItemCounts() {
+		return itemCounts;
+	}
+
+	/**
+	 * Gets the amount of items similar to the given item inside the chest.
+	 *
+	 * @param item
+	 *            the item
+	 * @return the amount
+	 */
+	public int getAmount(ItemStack item) {
+		return itemCounts.getAmount(item);
+	}
+
+	/**
+	 * Gets the amount of items similar to the given item inside the chest.
+	 *
+	 * @param item
+	 *            the item
+	 * @return the amount
+	 */
+	public int getAmount(UnmodifiableItem item) {
+		return itemCounts.getAmount(item);
+	}
+
+	/**
+	 * Gets the total value of the currency items inside the chest.
+	 *
+	 * @return the currency value
+	 */
+	public int getCurrency() {
+		return currency;
+	}
+}
@@ -1,17 +1,16 @@
 package com.nisovin.shopkeepers.shopkeeper.player;
 
 import org.bukkit.block.Block;
-import org.bukkit.block.Chest;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.ui.defaults.SKDefaultUITypes;
 import com.nisovin.shopkeepers.ui.defaults.TradingHandler;
-import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.Utils;
 
@@ -19,7 +18,10 @@ public abstract class PlayerShopTradingHandler extends TradingHandler {
 
 	// state related to the currently handled trade:
 	protected Inventory chestInventory = null;
+	// the chest contents which get modified by the preparation of the current trade:
 	protected ItemStack[] newChestContents = null;
+	// the chest contents resulting from all successfully prepared trades (more than one for bulk trades):
+	private ItemStack[] preparedChestContents = null;
 
 	protected PlayerShopTradingHandler(AbstractPlayerShopkeeper shopkeeper) {
 		super(SKDefaultUITypes.TRADING(), shopkeeper);
@@ -50,7 +52,7 @@ public abstract class PlayerShopTradingHandler extends TradingHandler {
 	@Override
 	protected boolean prepareTrade(TradeData tradeData) {
 		if (!super.prepareTrade(tradeData)) return false;
-		PlayerShopkeeper shopkeeper = this.getShopkeeper();
+		AbstractPlayerShopkeeper shopkeeper = this.getShopkeeper();
 		Player tradingPlayer = tradeData.tradingPlayer;
 
 		// no trading with own shop:
@@ -70,26 +72,48 @@ public abstract class PlayerShopTradingHandler extends TradingHandler {
 		}
 
 		// check for the shop's chest:
-		Block chest = shopkeeper.getChest();
-		if (!ItemUtils.isChest(chest.getType())) {
+		Inventory chestInventory = shopkeeper.getChestInventory();
+		if (chestInventory == null) {
 			this.debugPreventedTrade(tradingPlayer, "Couldn't find the shop's chest.");
 			return false;
 		}
 
 		// setup common state information for handling this trade:
-		this.chestInventory = ((Chest) chest.getState()).getInventory();
-		this.newChestContents = chestInventory.getContents();
+		if (preparedChestContents == null) {
+			this.chestInventory = chestInventory;
+			this.newChestContents = chestInventory.getContents();
+		} else {
+			// continue with the chest contents resulting from the previously prepared trades of the same bulk trade:
+			// the preparation replaces the modified item stacks instead of modifying them, so a shallow copy suffices
+			this.newChestContents = preparedChestContents.clone();
+		}
 
 		return true;
 	}
 
+	@Override
+	protected void onTradePrepared(TradeData tradeData) {
+		super.onTradePrepared(tradeData);
+		preparedChestContents = newChestContents;
+	}
+
 	@Override
 	protected void onTradeApplied(TradeData tradeData) {
 		super.onTradeApplied(tradeData);
 
 		// apply chest content changes:
-		if (chestInventory != null && newChestContents != null) {
-			chestInventory.setContents(newChestContents);
+		if (chestInventory != null && preparedChestContents != null) {
+			chestInventory.setContents(preparedChestContents);
+			AbstractPlayerShopkeeper shopkeeper = this.getShopkeeper();
+			shopkeeper.onChestContentsChanged(preparedChestContents);
+			// other shopkeepers using the same (double) chest need to count their stock again:
+			Block chest = shopkeeper.getChest();
+			if (chest != null) {
+				for (PlayerShopkeeper otherShopkeeper : SKShopkeepersPlugin.getInstance().getProtectedChests().getShopkeepersUsingChest(chest)) {
+					if (otherShopkeeper == shopkeeper) continue;
+					((AbstractPlayerShopkeeper) otherShopkeeper).onChestContentsChanged();
+				}
+			}
 		}
 
 		// reset trade related state information:
@@ -105,5 +129,6 @@ public abstract class PlayerShopTradingHandler extends TradingHandler {
 	protected void resetTradeState() {
 		chestInventory = null;
 		newChestContents = null;
+		preparedChestContents = null;
 	}
 }
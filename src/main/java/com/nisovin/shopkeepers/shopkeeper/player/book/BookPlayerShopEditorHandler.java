@@ -12,6 +12,7 @@ import com.nisovin.shopkeepers.shopkeeper.TradingRecipeDraft;
 import com.nisovin.shopkeepers.shopkeeper.offers.BookOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopEditorHandler;
 import com.nisovin.shopkeepers.util.ItemCount;
+import com.nisovin.shopkeepers.util.ItemCounts;
 
 public class BookPlayerShopEditorHandler extends PlayerShopEditorHandler {
 
@@ -33,7 +34,7 @@ public class BookPlayerShopEditorHandler extends PlayerShopEditorHandler {
 		Set<String> bookTitles = new HashSet<>();
 
 		// add the shopkeeper's offers:
-		List<ItemCount> chestItems = shopkeeper.getCopyableBooksFromChest();
+		ItemCounts chestItems = shopkeeper.getCopyableBooksFromChest();
 		for (BookOffer offer : shopkeeper.getOffers()) {
 			String bookTitle = offer.getBookTitle();
 			bookTitles.add(bookTitle);
@@ -46,8 +47,7 @@ public class BookPlayerShopEditorHandler extends PlayerShopEditorHandler {
 		}
 
 		// add empty offers for items from the chest:
-		for (int chestItemIndex = 0; chestItemIndex < chestItems.size(); chestItemIndex++) {
-			ItemCount itemCount = chestItems.get(chestItemIndex);
+		for (ItemCount itemCount : chestItems.getItemCounts()) {
 			ItemStack itemFromChest = itemCount.getItem(); // this item is already a copy with amount 1
 
 			String bookTitle = BookPlayerShopkeeper.getTitleOfBook(itemFromChest);
@@ -5,10 +5,11 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.Settings;
-import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
 import com.nisovin.shopkeepers.shopkeeper.offers.BookOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopTradingHandler;
 import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 
 public class BookPlayerShopTradingHandler extends PlayerShopTradingHandler {
 
@@ -26,9 +27,9 @@ public class BookPlayerShopTradingHandler extends PlayerShopTradingHandler {
 		if (!super.prepareTrade(tradeData)) return false;
 		BookPlayerShopkeeper shopkeeper = this.getShopkeeper();
 		Player tradingPlayer = tradeData.tradingPlayer;
-		TradingRecipe tradingRecipe = tradeData.tradingRecipe;
+		SKTradingRecipe tradingRecipe = tradeData.tradingRecipe;
 
-		ItemStack bookItem = tradingRecipe.getResultItem();
+		UnmodifiableItem bookItem = tradingRecipe.getUnmodifiableResultItem();
 		if (!BookPlayerShopkeeper.isValidBookCopy(bookItem)) {
 			this.debugPreventedTrade(tradingPlayer, "The traded item is no valid book copy!");
 			return false;
@@ -8,10 +8,7 @@ import java.util.List;
 import java.util.Objects;
 
 import org.bukkit.Material;
-import org.bukkit.block.Block;
-import org.bukkit.block.Chest;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.BookMeta;
@@ -28,8 +25,10 @@ import com.nisovin.shopkeepers.shopkeeper.offers.BookOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
 import com.nisovin.shopkeepers.util.Filter;
 import com.nisovin.shopkeepers.util.ItemCount;
+import com.nisovin.shopkeepers.util.ItemCounts;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 
 /**
  * Sells written books.
@@ -105,10 +104,10 @@ public class BookPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	}
 
 	@Override
-	public List<TradingRecipe> getTradingRecipes(Player player) {
+	protected List<TradingRecipe> createTradingRecipes() {
 		List<TradingRecipe> recipes = new ArrayList<>();
 		boolean hasBlankBooks = this.hasChestBlankBooks();
-		List<ItemCount> bookItems = this.getCopyableBooksFromChest();
+		ItemCounts bookItems = this.getCopyableBooksFromChest();
 		for (BookOffer offer : this.getOffers()) {
 			String bookTitle = offer.getBookTitle();
 			ItemStack bookItem = this.getBookItem(bookItems, bookTitle);
@@ -121,7 +120,7 @@ public class BookPlayerShopkeeper extends AbstractPlayerShopkeeper {
 				bookItem = this.copyBook(bookItem);
 			}
 
-			TradingRecipe recipe = this.createSellingRecipe(bookItem, offer.getPrice(), outOfStock);
+			TradingRecipe recipe = this.createSellingRecipe(UnmodifiableItem.of(bookItem), offer.getPrice(), outOfStock);
 			if (recipe != null) {
 				recipes.add(recipe);
 			}
@@ -129,13 +128,13 @@ public class BookPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		return Collections.unmodifiableList(recipes);
 	}
 
-	protected List<ItemCount> getCopyableBooksFromChest() {
+	protected ItemCounts getCopyableBooksFromChest() {
 		return this.getItemsFromChest(ITEM_FILTER);
 	}
 
-	protected ItemStack getBookItem(List<ItemCount> itemCounts, String title) {
+	protected ItemStack getBookItem(ItemCounts itemCounts, String title) {
 		if (itemCounts == null) return null;
-		for (ItemCount itemCount : itemCounts) {
+		for (ItemCount itemCount : itemCounts.getItemCounts()) {
 			if (itemCount == null) continue;
 			ItemStack item = itemCount.getItem(); // note: no additional copy
 			if (Objects.equals(getTitleOfBook(item), title)) {
@@ -153,6 +152,14 @@ public class BookPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		return (BookMeta) item.getItemMeta();
 	}
 
+	protected static BookMeta getBookMeta(UnmodifiableItem item) {
+		if (item == null) return null;
+		if (item.getType() != Material.WRITTEN_BOOK) return null;
+		if (!item.hasItemMeta()) return null;
+
+		return (BookMeta) item.getItemMeta();
+	}
+
 	protected static Generation getBookGeneration(ItemStack item) {
 		BookMeta meta = getBookMeta(item);
 		if (meta == null) return null;
@@ -174,19 +181,29 @@ public class BookPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		return (generation == Generation.COPY_OF_ORIGINAL || generation == Generation.COPY_OF_COPY);
 	}
 
+	protected static boolean isValidBookCopy(UnmodifiableItem item) {
+		BookMeta meta = getBookMeta(item);
+		if (meta == null) return false;
+		Generation generation = meta.getGeneration();
+		return (generation == Generation.COPY_OF_ORIGINAL || generation == Generation.COPY_OF_COPY);
+	}
+
 	protected static String getTitleOfBook(ItemStack item) {
 		BookMeta meta = getBookMeta(item);
 		if (meta == null) return null;
 		return meta.getTitle();
 	}
 
+	protected static String getTitleOfBook(UnmodifiableItem item) {
+		BookMeta meta = getBookMeta(item);
+		if (meta == null) return null;
+		return meta.getTitle();
+	}
+
 	protected boolean hasChestBlankBooks() {
-		Block chest = this.getChest();
-		if (ItemUtils.isChest(chest.getType())) {
-			Inventory chestInventory = ((Chest) chest.getState()).getInventory();
-			return chestInventory.contains(Material.WRITABLE_BOOK);
-		}
-		return false;
+		Inventory chestInventory = this.getChestInventory();
+		if (chestInventory == null) return false;
+		return chestInventory.contains(Material.WRITABLE_BOOK);
 	}
 
 	protected ItemStack createDummyBook(String title) {
@@ -228,6 +245,7 @@ public class BookPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
 	// OFFERS:
 
+	@Override
 	public List<BookOffer> getOffers() {
 		return offersView;
 	}
@@ -261,6 +279,7 @@ public class BookPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		// remove previous offer for the same book:
 		this.removeOffer(offer.getBookTitle());
 		offers.add(offer);
+		this.invalidateTradingRecipes();
 	}
 
 	private void _addOffers(Collection<BookOffer> offers) {
@@ -274,6 +293,7 @@ public class BookPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
 	private void _clearOffers() {
 		offers.clear();
+		this.invalidateTradingRecipes();
 	}
 
 	public void clearOffers() {
@@ -286,6 +306,7 @@ public class BookPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		while (iterator.hasNext()) {
 			if (iterator.next().getBookTitle().equals(bookTitle)) {
 				iterator.remove();
+				this.invalidateTradingRecipes();
 				this.markDirty();
 				break;
 			}
@@ -33,12 +33,12 @@ public class BuyingPlayerShopEditorHandler extends PlayerShopEditorHandler {
 		// add the shopkeeper's offers:
 		for (PriceOffer offer : shopkeeper.getOffers()) {
 			ItemStack currencyItem = Settings.createCurrencyItem(offer.getPrice());
-			TradingRecipeDraft recipe = new TradingRecipeDraft(currencyItem, offer.getItem(), null);
+			TradingRecipeDraft recipe = new TradingRecipeDraft(currencyItem, offer.getItem().copy(), null);
 			recipes.add(recipe);
 		}
 
 		// add empty offers for items from the chest:
-		List<ItemCount> chestItems = shopkeeper.getItemsFromChest();
+		List<ItemCount> chestItems = shopkeeper.getItemsFromChest().getItemCounts();
 		for (int chestItemIndex = 0; chestItemIndex < chestItems.size(); chestItemIndex++) {
 			ItemCount itemCount = chestItems.get(chestItemIndex);
 			ItemStack itemFromChest = itemCount.getItem(); // this item is already a copy with amount 1
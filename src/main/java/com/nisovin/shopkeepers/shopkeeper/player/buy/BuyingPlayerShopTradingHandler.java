@@ -5,10 +5,11 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.Settings;
-import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
 import com.nisovin.shopkeepers.shopkeeper.offers.PriceOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopTradingHandler;
 import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 
 public class BuyingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 
@@ -26,10 +27,10 @@ public class BuyingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 		if (!super.prepareTrade(tradeData)) return false;
 		BuyingPlayerShopkeeper shopkeeper = this.getShopkeeper();
 		Player tradingPlayer = tradeData.tradingPlayer;
-		TradingRecipe tradingRecipe = tradeData.tradingRecipe;
+		SKTradingRecipe tradingRecipe = tradeData.tradingRecipe;
 
 		// get offer for the bought item:
-		ItemStack boughtItem = tradingRecipe.getItem1();
+		UnmodifiableItem boughtItem = tradingRecipe.getUnmodifiableItem1();
 		PriceOffer offer = shopkeeper.getOffer(boughtItem);
 		if (offer == null) {
 			// this should not happen.. because the recipes were created based on the shopkeeper's offers
@@ -8,7 +8,6 @@ import java.util.List;
 
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.Settings;
@@ -21,8 +20,8 @@ import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.offers.PriceOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
 import com.nisovin.shopkeepers.util.Filter;
-import com.nisovin.shopkeepers.util.ItemCount;
-import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.ItemCounts;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 
 public class BuyingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
@@ -91,11 +90,11 @@ public class BuyingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	}
 
 	@Override
-	public List<TradingRecipe> getTradingRecipes(Player player) {
+	protected List<TradingRecipe> createTradingRecipes() {
 		List<TradingRecipe> recipes = new ArrayList<>();
 		int currencyInChest = this.getCurrencyInChest();
 		for (PriceOffer offer : this.getOffers()) {
-			ItemStack tradedItem = offer.getItem();
+			UnmodifiableItem tradedItem = offer.getItem();
 			boolean outOfStock = (currencyInChest < offer.getPrice());
 			TradingRecipe recipe = this.createBuyingRecipe(tradedItem, offer.getPrice(), outOfStock);
 			if (recipe != null) {
@@ -105,19 +104,29 @@ public class BuyingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		return Collections.unmodifiableList(recipes);
 	}
 
-	protected List<ItemCount> getItemsFromChest() {
+	protected ItemCounts getItemsFromChest() {
 		return this.getItemsFromChest(ITEM_FILTER);
 	}
 
 	// OFFERS:
 
+	@Override
 	public List<PriceOffer> getOffers() {
 		return offersView;
 	}
 
 	public PriceOffer getOffer(ItemStack tradedItem) {
 		for (PriceOffer offer : this.getOffers()) {
-			if (ItemUtils.isSimilar(offer.getItem(), tradedItem)) {
+			if (offer.getItem().isSimilar(tradedItem)) {
+				return offer;
+			}
+		}
+		return null;
+	}
+
+	public PriceOffer getOffer(UnmodifiableItem tradedItem) {
+		for (PriceOffer offer : this.getOffers()) {
+			if (offer.getItem().isSimilar(tradedItem)) {
 				return offer;
 			}
 		}
@@ -139,6 +148,7 @@ public class BuyingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		// remove previous offer for the same item:
 		this.removeOffer(offer.getItem());
 		offers.add(offer);
+		this.invalidateTradingRecipes();
 	}
 
 	private void _addOffers(Collection<PriceOffer> offers) {
@@ -152,6 +162,7 @@ public class BuyingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
 	private void _clearOffers() {
 		offers.clear();
+		this.invalidateTradingRecipes();
 	}
 
 	public void clearOffers() {
@@ -159,11 +170,12 @@ public class BuyingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		this.markDirty();
 	}
 
-	public void removeOffer(ItemStack tradedItem) {
+	public void removeOffer(UnmodifiableItem tradedItem) {
 		Iterator<PriceOffer> iterator = offers.iterator();
 		while (iterator.hasNext()) {
-			if (ItemUtils.isSimilar(iterator.next().getItem(), tradedItem)) {
+			if (iterator.next().getItem().isSimilar(tradedItem)) {
 				iterator.remove();
+				this.invalidateTradingRecipes();
 				this.markDirty();
 				break;
 			}
@@ -30,12 +30,12 @@ public class SellingPlayerShopEditorHandler extends PlayerShopEditorHandler {
 
 		// add the shopkeeper's offers:
 		for (PriceOffer offer : shopkeeper.getOffers()) {
-			TradingRecipeDraft recipe = this.createTradingRecipeDraft(offer.getItem(), offer.getPrice());
+			TradingRecipeDraft recipe = this.createTradingRecipeDraft(offer.getItem().copy(), offer.getPrice());
 			recipes.add(recipe);
 		}
 
 		// add empty offers for items from the chest:
-		List<ItemCount> chestItems = shopkeeper.getItemsFromChest();
+		List<ItemCount> chestItems = shopkeeper.getItemsFromChest().getItemCounts();
 		for (int chestItemIndex = 0; chestItemIndex < chestItems.size(); chestItemIndex++) {
 			ItemCount itemCount = chestItems.get(chestItemIndex);
 			ItemStack itemFromChest = itemCount.getItem(); // this item is already a copy with amount 1
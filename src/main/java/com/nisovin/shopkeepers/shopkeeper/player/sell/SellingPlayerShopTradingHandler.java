@@ -1,13 +1,13 @@
 package com.nisovin.shopkeepers.shopkeeper.player.sell;
 
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.Settings;
-import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
 import com.nisovin.shopkeepers.shopkeeper.offers.PriceOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopTradingHandler;
 import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 
 public class SellingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 
@@ -25,10 +25,10 @@ public class SellingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 		if (!super.prepareTrade(tradeData)) return false;
 		SellingPlayerShopkeeper shopkeeper = this.getShopkeeper();
 		Player tradingPlayer = tradeData.tradingPlayer;
-		TradingRecipe tradingRecipe = tradeData.tradingRecipe;
+		SKTradingRecipe tradingRecipe = tradeData.tradingRecipe;
 
 		// get offer for this type of item:
-		ItemStack soldItem = tradingRecipe.getResultItem();
+		UnmodifiableItem soldItem = tradingRecipe.getUnmodifiableResultItem();
 		PriceOffer offer = shopkeeper.getOffer(soldItem);
 		if (offer == null) {
 			// this should not happen.. because the recipes were created based on the shopkeeper's offers
@@ -7,7 +7,6 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.Settings;
@@ -19,9 +18,10 @@ import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.offers.PriceOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.ChestStock;
 import com.nisovin.shopkeepers.util.Filter;
-import com.nisovin.shopkeepers.util.ItemCount;
-import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.ItemCounts;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 
 public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
@@ -88,16 +88,13 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	}
 
 	@Override
-	public List<TradingRecipe> getTradingRecipes(Player player) {
+	protected List<TradingRecipe> createTradingRecipes() {
 		List<TradingRecipe> recipes = new ArrayList<>();
-		List<ItemCount> chestItems = this.getItemsFromChest();
+		// the traded items are never currency items, so there is no need to filter the chest stock:
+		ChestStock chestStock = this.getChestStock();
 		for (PriceOffer offer : this.getOffers()) {
-			ItemStack tradedItem = offer.getItem();
-			int itemAmountInChest = 0;
-			ItemCount itemCount = ItemCount.findSimilar(chestItems, tradedItem);
-			if (itemCount != null) {
-				itemAmountInChest = itemCount.getAmount();
-			}
+			UnmodifiableItem tradedItem = offer.getItem();
+			int itemAmountInChest = chestStock.getAmount(tradedItem);
 			boolean outOfStock = (itemAmountInChest < tradedItem.getAmount());
 			TradingRecipe recipe = this.createSellingRecipe(tradedItem, offer.getPrice(), outOfStock);
 			if (recipe != null) {
@@ -107,19 +104,29 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		return Collections.unmodifiableList(recipes);
 	}
 
-	protected List<ItemCount> getItemsFromChest() {
+	protected ItemCounts getItemsFromChest() {
 		return this.getItemsFromChest(ITEM_FILTER);
 	}
 
 	// OFFERS:
 
+	@Override
 	public List<PriceOffer> getOffers() {
 		return offersView;
 	}
 
 	public PriceOffer getOffer(ItemStack tradedItem) {
 		for (PriceOffer offer : this.getOffers()) {
-			if (ItemUtils.isSimilar(offer.getItem(), tradedItem)) {
+			if (offer.getItem().isSimilar(tradedItem)) {
+				return offer;
+			}
+		}
+		return null;
+	}
+
+	public PriceOffer getOffer(UnmodifiableItem tradedItem) {
+		for (PriceOffer offer : this.getOffers()) {
+			if (offer.getItem().isSimilar(tradedItem)) {
 				return offer;
 			}
 		}
@@ -141,6 +148,7 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		// remove previous offer for the same item:
 		this.removeOffer(offer.getItem());
 		offers.add(offer);
+		this.invalidateTradingRecipes();
 	}
 
 	private void _addOffers(Collection<PriceOffer> offers) {
@@ -154,6 +162,7 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
 	private void _clearOffers() {
 		offers.clear();
+		this.invalidateTradingRecipes();
 	}
 
 	public void clearOffers() {
@@ -161,11 +170,12 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		this.markDirty();
 	}
 
-	public void removeOffer(ItemStack tradedItem) {
+	public void removeOffer(UnmodifiableItem tradedItem) {
 		Iterator<PriceOffer> iterator = offers.iterator();
 		while (iterator.hasNext()) {
-			if (ItemUtils.isSimilar(iterator.next().getItem(), tradedItem)) {
+			if (iterator.next().getItem().isSimilar(tradedItem)) {
 				iterator.remove();
+				this.invalidateTradingRecipes();
 				this.markDirty();
 				break;
 			}
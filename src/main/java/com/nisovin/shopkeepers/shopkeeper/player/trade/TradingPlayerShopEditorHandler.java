@@ -42,7 +42,7 @@ public class TradingPlayerShopEditorHandler extends PlayerShopEditorHandler {
 		}
 
 		// add empty offers for items from the chest:
-		List<ItemCount> chestItems = shopkeeper.getItemsFromChest();
+		List<ItemCount> chestItems = shopkeeper.getItemsFromChest().getItemCounts();
 		for (int chestItemIndex = 0; chestItemIndex < chestItems.size(); chestItemIndex++) {
 			ItemCount itemCount = chestItems.get(chestItemIndex);
 			ItemStack itemFromChest = itemCount.getItem(); // this item is already a copy with amount 1
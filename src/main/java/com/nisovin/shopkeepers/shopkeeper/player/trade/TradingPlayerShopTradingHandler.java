@@ -3,10 +3,11 @@ package com.nisovin.shopkeepers.shopkeeper.player.trade;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
 import com.nisovin.shopkeepers.shopkeeper.offers.TradingOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopTradingHandler;
 import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 
 public class TradingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 
@@ -24,7 +25,7 @@ public class TradingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 		if (!super.prepareTrade(tradeData)) return false;
 		TradingPlayerShopkeeper shopkeeper = this.getShopkeeper();
 		Player tradingPlayer = tradeData.tradingPlayer;
-		TradingRecipe tradingRecipe = tradeData.tradingRecipe;
+		SKTradingRecipe tradingRecipe = tradeData.tradingRecipe;
 
 		// find offer:
 		TradingOffer offer = shopkeeper.getOffer(tradingRecipe);
@@ -37,7 +38,7 @@ public class TradingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 		assert chestInventory != null & newChestContents != null;
 
 		// remove result items from chest contents:
-		ItemStack resultItem = tradingRecipe.getResultItem();
+		UnmodifiableItem resultItem = tradingRecipe.getUnmodifiableResultItem();
 		assert resultItem != null;
 		if (ItemUtils.removeItems(newChestContents, resultItem) != 0) {
 			this.debugPreventedTrade(tradingPlayer, "The shop's chest doesn't contain the required items.");
@@ -45,8 +46,8 @@ public class TradingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 		}
 
 		// add traded items to chest contents:
-		if (!this.addItems(newChestContents, tradingRecipe.getItem1(), tradeData.offeredItem1)
-				|| !this.addItems(newChestContents, tradingRecipe.getItem2(), tradeData.offeredItem2)) {
+		if (!this.addItems(newChestContents, tradingRecipe.getUnmodifiableItem1(), tradeData.offeredItem1)
+				|| !this.addItems(newChestContents, tradingRecipe.getUnmodifiableItem2(), tradeData.offeredItem2)) {
 			this.debugPreventedTrade(tradingPlayer, "The shop's chest cannot hold the traded items.");
 			return false;
 		}
@@ -57,8 +58,8 @@ public class TradingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 	// but are still accepted for the trade, depending on minecraft's item comparison and settings.
 	// Therefore we differ between require and offered items here.
 	// Returns false, if not all items could be added to the contents:
-	private boolean addItems(ItemStack[] contents, ItemStack requiredItem, ItemStack offeredItem) {
-		if (ItemUtils.isEmpty(requiredItem)) return true;
+	private boolean addItems(ItemStack[] contents, UnmodifiableItem requiredItem, ItemStack offeredItem) {
+		if (requiredItem == null) return true;
 		int amountAfterTaxes = this.getAmountAfterTaxes(requiredItem.getAmount());
 		if (amountAfterTaxes > 0) {
 			ItemStack receivedItem = offeredItem.clone(); // create a copy, just in case
@@ -6,20 +6,20 @@ import java.util.Collections;
 import java.util.List;
 
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-import com.nisovin.shopkeepers.api.ShopkeepersAPI;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopCreationData;
 import com.nisovin.shopkeepers.api.ui.DefaultUITypes;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
+import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
 import com.nisovin.shopkeepers.shopkeeper.offers.TradingOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
-import com.nisovin.shopkeepers.util.ItemCount;
-import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.shopkeeper.player.ChestStock;
+import com.nisovin.shopkeepers.util.ItemCounts;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 
 public class TradingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
@@ -80,32 +80,27 @@ public class TradingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	}
 
 	@Override
-	public List<TradingRecipe> getTradingRecipes(Player player) {
+	protected List<TradingRecipe> createTradingRecipes() {
 		List<TradingRecipe> recipes = new ArrayList<>();
-		List<ItemCount> chestItems = this.getItemsFromChest();
+		ChestStock chestStock = this.getChestStock();
 		for (TradingOffer offer : this.getOffers()) {
-			ItemStack resultItem = offer.getResultItem();
-			assert !ItemUtils.isEmpty(resultItem);
-			int itemAmountInChest = 0;
-			ItemCount itemCount = ItemCount.findSimilar(chestItems, resultItem);
-			if (itemCount != null) {
-				itemAmountInChest = itemCount.getAmount();
-			}
+			UnmodifiableItem resultItem = offer.getUnmodifiableResultItem();
+			int itemAmountInChest = chestStock.getAmount(resultItem);
 			boolean outOfStock = (itemAmountInChest < resultItem.getAmount());
-			TradingRecipe recipe = ShopkeepersAPI.createTradingRecipe(resultItem, offer.getItem1(), offer.getItem2(), outOfStock);
-			if (recipe != null) {
-				recipes.add(recipe);
-			}
+			// the items of the offer are not copied:
+			TradingRecipe recipe = new SKTradingRecipe(resultItem, offer.getUnmodifiableItem1(), offer.getUnmodifiableItem2(), outOfStock);
+			recipes.add(recipe);
 		}
 		return Collections.unmodifiableList(recipes);
 	}
 
-	protected List<ItemCount> getItemsFromChest() {
+	protected ItemCounts getItemsFromChest() {
 		return this.getItemsFromChest(null);
 	}
 
 	// OFFERS:
 
+	@Override
 	public List<TradingOffer> getOffers() {
 		return offersView;
 	}
@@ -123,6 +118,7 @@ public class TradingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	private void _addOffer(TradingOffer offer) {
 		assert offer != null;
 		offers.add(offer);
+		this.invalidateTradingRecipes();
 	}
 
 	private void _addOffers(Collection<TradingOffer> offers) {
@@ -136,6 +132,7 @@ public class TradingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
 	private void _clearOffers() {
 		offers.clear();
+		this.invalidateTradingRecipes();
 	}
 
 	public void clearOffers() {
@@ -146,7 +143,7 @@ public class TradingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	// note: there might be multiple trades involving this item
 	public TradingOffer getOffer(ItemStack tradedItem) {
 		for (TradingOffer offer : this.getOffers()) {
-			if (ItemUtils.isSimilar(offer.getResultItem(), tradedItem)) {
+			if (offer.getUnmodifiableResultItem().isSimilar(tradedItem)) {
 				return offer;
 			}
 		}
@@ -82,6 +82,15 @@ public abstract class AbstractShopObject implements ShopObject {
 	public void onChunkLoad(boolean worldSaving) {
 	}
 
+	/**
+	 * Gets called when the chunk of this shop object gets unloaded.
+	 * <p>
+	 * This only gets called if the chunk contains active shopkeepers, so it is not necessarily paired with
+	 * {@link #onChunkLoad(boolean)}. Shop objects which are not active have nothing to prepare for the unload.
+	 * 
+	 * @param worldSaving
+	 *            whether the chunk gets unloaded due to the world saving
+	 */
 	public void onChunkUnload(boolean worldSaving) {
 	}
 
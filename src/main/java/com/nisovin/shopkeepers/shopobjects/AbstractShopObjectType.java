@@ -38,6 +38,15 @@ public abstract class AbstractShopObjectType<T extends AbstractShopObject> exten
 	@Override
 	public abstract boolean needsSpawning();
 
+	/**
+	 * Gets the {@link ShopObjectKeyStrategy} by which active shop objects of this type get indexed.
+	 * 
+	 * @return the key strategy
+	 */
+	public ShopObjectKeyStrategy getKeyStrategy() {
+		return ShopObjectKeyStrategy.OBJECT_ID;
+	}
+
 	/**
 	 * Whether shop objects of this type get despawned right before world saves and respawned afterwards.
 	 * 
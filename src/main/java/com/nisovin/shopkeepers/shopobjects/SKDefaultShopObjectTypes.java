@@ -8,6 +8,7 @@ import com.nisovin.shopkeepers.api.shopobjects.DefaultShopObjectTypes;
 import com.nisovin.shopkeepers.shopobjects.citizens.SKCitizensShopObjectType;
 import com.nisovin.shopkeepers.shopobjects.living.SKLivingShopObjectTypes;
 import com.nisovin.shopkeepers.shopobjects.sign.SKSignShopObjectType;
+import com.nisovin.shopkeepers.shopobjects.virtual.SKVirtualShopObjectType;
 
 public class SKDefaultShopObjectTypes implements DefaultShopObjectTypes {
 
@@ -25,6 +26,7 @@ public class SKDefaultShopObjectTypes implements DefaultShopObjectTypes {
 		shopObjectTypes.addAll(this.getLivingShopObjectTypes().getAll());
 		shopObjectTypes.add(this.getSignShopObjectType());
 		shopObjectTypes.add(this.getCitizensShopObjectType());
+		shopObjectTypes.add(this.getVirtualShopObjectType());
 		return shopObjectTypes;
 	}
 
@@ -43,6 +45,10 @@ public class SKDefaultShopObjectTypes implements DefaultShopObjectTypes {
 		return plugin.getCitizensShops().getCitizensShopObjectType();
 	}
 
+	public SKVirtualShopObjectType getVirtualShopObjectType() {
+		return plugin.getVirtualShops().getVirtualShopObjectType();
+	}
+
 	// STATICS (for convenience):
 
 	public static SKDefaultShopObjectTypes getInstance() {
@@ -60,4 +66,8 @@ public class SKDefaultShopObjectTypes implements DefaultShopObjectTypes {
 	public static SKCitizensShopObjectType CITIZEN() {
 		return getInstance().getCitizensShopObjectType();
 	}
+
+	public static SKVirtualShopObjectType VIRTUAL() {
+		return getInstance().getVirtualShopObjectType();
+	}
 }
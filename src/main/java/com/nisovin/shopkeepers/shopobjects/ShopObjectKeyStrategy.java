@@ -0,0 +1,33 @@
+package com.nisovin.shopkeepers.shopobjects;
+
+import com.nisovin.shopkeepers.api.shopobjects.block.BlockShopObject;
+import com.nisovin.shopkeepers.api.shopobjects.entity.EntityShopObject;
+
+/**
+ * Specifies how active shop objects of a certain {@link AbstractShopObjectType} get indexed by the shopkeeper
+ * registry.
+ * <p>
+ * Shop objects that are indexed by their block or entity can be looked up without having to construct their object
+ * id. All active shop objects can additionally be looked up by their object id.
+ */
+public enum ShopObjectKeyStrategy {
+
+	/**
+	 * Indexes the shop object by the world and coordinates of its {@link BlockShopObject#getBlock() block}.
+	 * <p>
+	 * Requires the shop object to be a {@link BlockShopObject}.
+	 */
+	BLOCK,
+	/**
+	 * Indexes the shop object by the unique id of its {@link EntityShopObject#getEntity() entity}.
+	 * <p>
+	 * Requires the shop object to be an {@link EntityShopObject}.
+	 */
+	ENTITY,
+	/**
+	 * Indexes the shop object only by its object id.
+	 * <p>
+	 * Lookups by block or entity for shop objects of this type need to construct the object id.
+	 */
+	OBJECT_ID;
+}
@@ -4,6 +4,7 @@ import org.bukkit.block.Block;
 
 import com.nisovin.shopkeepers.api.shopobjects.block.BlockShopObjectType;
 import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
+import com.nisovin.shopkeepers.shopobjects.ShopObjectKeyStrategy;
 
 public abstract class AbstractBlockShopObjectType<T extends AbstractBlockShopObject> extends AbstractShopObjectType<T> implements BlockShopObjectType<T> {
 
@@ -11,6 +12,11 @@ public abstract class AbstractBlockShopObjectType<T extends AbstractBlockShopObj
 		super(identifier, permission);
 	}
 
+	@Override
+	public ShopObjectKeyStrategy getKeyStrategy() {
+		return ShopObjectKeyStrategy.BLOCK;
+	}
+
 	public String createObjectId(Block block) {
 		if (block == null) return null;
 		// inline for performance:
@@ -8,6 +8,7 @@ import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
 import com.nisovin.shopkeepers.api.shopobjects.citizens.CitizensShopObjectType;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.ShopObjectKeyStrategy;
 import com.nisovin.shopkeepers.shopobjects.entity.AbstractEntityShopObjectType;
 import com.nisovin.shopkeepers.util.StringUtils;
 
@@ -25,6 +26,12 @@ public class SKCitizensShopObjectType extends AbstractEntityShopObjectType<SKCit
 		return Settings.msgShopObjectTypeNpc;
 	}
 
+	@Override
+	public ShopObjectKeyStrategy getKeyStrategy() {
+		// the npc entity might change or not be available, indexing by npc id:
+		return ShopObjectKeyStrategy.OBJECT_ID;
+	}
+
 	@Override
 	public String createObjectId(Entity entity) {
 		if (entity == null) return null;
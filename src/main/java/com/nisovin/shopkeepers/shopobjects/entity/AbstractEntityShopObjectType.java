@@ -4,6 +4,7 @@ import org.bukkit.entity.Entity;
 
 import com.nisovin.shopkeepers.api.shopobjects.entity.EntityShopObjectType;
 import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
+import com.nisovin.shopkeepers.shopobjects.ShopObjectKeyStrategy;
 
 public abstract class AbstractEntityShopObjectType<T extends AbstractEntityShopObject> extends AbstractShopObjectType<T> implements EntityShopObjectType<T> {
 
@@ -11,6 +12,11 @@ public abstract class AbstractEntityShopObjectType<T extends AbstractEntityShopO
 		super(identifier, permission);
 	}
 
+	@Override
+	public ShopObjectKeyStrategy getKeyStrategy() {
+		return ShopObjectKeyStrategy.ENTITY;
+	}
+
 	public String createObjectId(Entity entity) {
 		if (entity == null) return null;
 		return this.getIdentifier() + ":" + entity.getUniqueId();
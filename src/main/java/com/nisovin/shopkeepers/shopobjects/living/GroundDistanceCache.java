@@ -0,0 +1,251 @@
+package com.nisovin.shopkeepers.shopobjects.living;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.BlockSpreadEvent;
+import org.bukkit.event.block.LeavesDecayEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+
+import com.nisovin.shopkeepers.util.Utils;
+
+/**
+ * Caches the results of {@link Utils#getCollisionDistanceToGround(Location, double)}.
+ * <p>
+ * Shop entities usually don't move and the blocks below them rarely change. The cached distances get stored per block
+ * column and get invalidated whenever a block inside their column changes. Since not all block changes are covered by
+ * events (ex. changes by other plugins), the cache additionally gets cleared periodically. Block physics events are not
+ * listened to, since they get called very frequently.
+ */
+public class GroundDistanceCache implements Listener {
+
+	// the max number of cached distances per block column (ex. for the different heights of a falling entity):
+	private static final int MAX_ENTRIES_PER_COLUMN = 4;
+	// the cache gets cleared once it contains more columns than this:
+	private static final int MAX_COLUMNS = 10000;
+
+	private static class CachedDistance {
+		private final double x;
+		private final double y;
+		private final double z;
+		private final double maxDistance;
+		private final double distanceToGround;
+
+		public CachedDistance(double x, double y, double z, double maxDistance, double distanceToGround) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.maxDistance = maxDistance;
+			this.distanceToGround = distanceToGround;
+		}
+
+		public boolean matches(double x, double y, double z, double maxDistance) {
+			return (this.x == x && this.y == y && this.z == z && this.maxDistance == maxDistance);
+		}
+	}
+
+	private static class Column {
+		private final CachedDistance[] entries = new CachedDistance[MAX_ENTRIES_PER_COLUMN];
+		private int nextEntryIndex = 0;
+	}
+
+	// world name -> (column key -> column)
+	private final Map<String, Map<Long, Column>> columnsByWorld = new HashMap<>();
+	private int columnsCount = 0;
+
+	// statistics:
+	private int hits = 0;
+	private int misses = 0;
+
+	GroundDistanceCache() {
+	}
+
+	private static long getColumnKey(int blockX, int blockZ) {
+		return (((long) blockX) << 32) | (blockZ & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Gets the distance to the ground below the given location, using a cached value if available.
+	 *
+	 * @param startLocation
+	 *            the start location
+	 * @param maxDistance
+	 *            the max distance to check
+	 * @return the distance to the ground, or <code>maxDistance</code> if there is no collision within range
+	 * @see Utils#getCollisionDistanceToGround(Location, double)
+	 */
+	public double getDistanceToGround(Location startLocation, double maxDistance) {
+		String worldName = startLocation.getWorld().getName();
+		double x = startLocation.getX();
+		double y = startLocation.getY();
+		double z = startLocation.getZ();
+		long columnKey = getColumnKey(startLocation.getBlockX(), startLocation.getBlockZ());
+
+		Map<Long, Column> worldColumns = columnsByWorld.get(worldName);
+		Column column = (worldColumns == null) ? null : worldColumns.get(columnKey);
+		if (column != null) {
+			for (CachedDistance entry : column.entries) {
+				if (entry != null && entry.matches(x, y, z, maxDistance)) {
+					hits++;
+					return entry.distanceToGround;
+				}
+			}
+		}
+
+		// ray trace and cache the result:
+		misses++;
+		double distanceToGround = Utils.getCollisionDistanceToGround(startLocation, maxDistance);
+		if (column == null) {
+			if (columnsCount >= MAX_COLUMNS) {
+				this.clear();
+			}
+			if (worldColumns == null) {
+				worldColumns = new HashMap<>();
+				columnsByWorld.put(worldName, worldColumns);
+			}
+			column = new Column();
+			worldColumns.put(columnKey, column);
+			columnsCount++;
+		}
+		column.entries[column.nextEntryIndex] = new CachedDistance(x, y, z, maxDistance, distanceToGround);
+		column.nextEntryIndex = (column.nextEntryIndex + 1) % MAX_ENTRIES_PER_COLUMN;
+		return distanceToGround;
+	}
+
+	public void clear() {
+		columnsByWorld.clear();
+		columnsCount = 0;
+	}
+
+	public void resetStatistics() {
+		hits = 0;
+		misses = 0;
+	}
+
+	public int getCachedColumnsCount() {
+		return columnsCount;
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	// invalidation:
+
+	private void invalidateColumn(Block block) {
+		if (columnsCount == 0) return; // nothing cached
+		Map<Long, Column> worldColumns = columnsByWorld.get(block.getWorld().getName());
+		if (worldColumns == null) return;
+		if (worldColumns.remove(getColumnKey(block.getX(), block.getZ())) != null) {
+			columnsCount--;
+			if (worldColumns.isEmpty()) {
+				columnsByWorld.remove(block.getWorld().getName());
+			}
+		}
+	}
+
+	private void invalidateColumns(List<Block> blocks) {
+		if (columnsCount == 0) return; // nothing cached
+		for (Block block : blocks) {
+			this.invalidateColumn(block);
+		}
+	}
+
+	private void invalidateMovedColumns(List<Block> blocks, BlockFace direction) {
+		if (columnsCount == 0) return; // nothing cached
+		// the moved blocks' previous and new columns (independent of how the event reports the direction):
+		BlockFace oppositeDirection = direction.getOppositeFace();
+		for (Block block : blocks) {
+			this.invalidateColumn(block);
+			this.invalidateColumn(block.getRelative(direction));
+			this.invalidateColumn(block.getRelative(oppositeDirection));
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockPlace(BlockPlaceEvent event) {
+		this.invalidateColumn(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockBreak(BlockBreakEvent event) {
+		this.invalidateColumn(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockPistonExtend(BlockPistonExtendEvent event) {
+		this.invalidateMovedColumns(event.getBlocks(), event.getDirection());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockPistonRetract(BlockPistonRetractEvent event) {
+		this.invalidateMovedColumns(event.getBlocks(), event.getDirection());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onEntityExplode(EntityExplodeEvent event) {
+		this.invalidateColumns(event.blockList());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockExplode(BlockExplodeEvent event) {
+		this.invalidateColumns(event.blockList());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockBurn(BlockBurnEvent event) {
+		this.invalidateColumn(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockFade(BlockFadeEvent event) {
+		this.invalidateColumn(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockForm(BlockFormEvent event) {
+		this.invalidateColumn(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockSpread(BlockSpreadEvent event) {
+		this.invalidateColumn(event.getBlock());
+	}
+
+	// flowing water and lava:
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockFromTo(BlockFromToEvent event) {
+		this.invalidateColumn(event.getToBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onLeavesDecay(LeavesDecayEvent event) {
+		this.invalidateColumn(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onEntityChangeBlock(EntityChangeBlockEvent event) {
+		this.invalidateColumn(event.getBlock());
+	}
+}
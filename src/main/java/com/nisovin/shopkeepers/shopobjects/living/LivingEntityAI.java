@@ -1,25 +1,25 @@
 package com.nisovin.shopkeepers.shopobjects.living;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Random;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
-import org.bukkit.World;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitTask;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
-import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.util.ChunkCoords;
 import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.util.LatencyHistogram;
+import com.nisovin.shopkeepers.util.LatencyStats;
 import com.nisovin.shopkeepers.util.Utils;
 
 /**
@@ -54,27 +54,58 @@ public class LivingEntityAI {
 	// in the next tick
 	private static final double GRAVITY_COLLISION_CHECK_RANGE = MAX_FALLING_DISTANCE_PER_TICK + 0.1D;
 
-	private static final Random RANDOM = new Random();
+	// the interval in which the ground distance cache gets cleared, to account for block changes not covered by events:
+	private static final int GROUND_DISTANCE_CACHE_RESET_TICKS = 1200;
 
-	private final ShopkeepersPlugin plugin;
+	// the interval in which the activation of each chunk gets re-checked:
+	private static final int ACTIVATION_INTERVAL_TICKS = 20;
+	// the interval in which non-falling entities check whether they need to fall:
+	private static final int FALLING_CHECK_INTERVAL_TICKS = 10;
 
-	private static class EntityData {
-		private final ChunkData chunkData;
-		// random initial delay to distribute falling checks of entities among ticks:
-		public int skipFallingCheckTicks = RANDOM.nextInt(10);
-		public boolean falling = false;
-		public double distanceToGround = 0.0D;
+	private final SKShopkeepersPlugin plugin;
+	private final GroundDistanceCache groundDistanceCache;
 
-		public EntityData(ChunkData chunkData) {
-			this.chunkData = chunkData;
+	private static final int INITIAL_ENTITIES_CAPACITY = 16;
+
+	// stable handle of a ticking entity: its index changes when other entities get removed
+	private static class EntityHandle {
+		private int index;
+
+		public EntityHandle(int index) {
+			this.index = index;
 		}
 	}
 
-	// ticking entities -> entity data
-	private final Map<LivingEntity, EntityData> entities = new HashMap<>();
+	// the level of detail of an entity's AI, based on the distance to the nearest player:
+	private static enum AILevel {
+		// ticked every tick:
+		FULL,
+		// ticked every few ticks:
+		REDUCED,
+		// not ticked (gravity is still handled):
+		FROZEN;
+	}
+
+	// ticking entities, stored in dense parallel arrays (removal swaps in the last entity):
+	private int entityCount = 0;
+	private LivingEntity[] entities = new LivingEntity[INITIAL_ENTITIES_CAPACITY];
+	private EntityHandle[] entityHandles = new EntityHandle[INITIAL_ENTITIES_CAPACITY];
+	private ChunkData[] entityChunks = new ChunkData[INITIAL_ENTITIES_CAPACITY];
+	// hash based value, which distributes the periodic work of entities among ticks:
+	private int[] tickBuckets = new int[INITIAL_ENTITIES_CAPACITY];
+	private boolean[] falling = new boolean[INITIAL_ENTITIES_CAPACITY];
+	private double[] distanceToGround = new double[INITIAL_ENTITIES_CAPACITY];
+	private AILevel[] aiLevels = new AILevel[INITIAL_ENTITIES_CAPACITY];
+	// ticking entities -> handle
+	private final Map<LivingEntity, EntityHandle> handlesByEntity = new HashMap<>();
 
 	private static class ChunkData {
 		private final Chunk chunk;
+		private final String worldName;
+		private final int chunkX;
+		private final int chunkZ;
+		// the tick (within the activation interval) at which the activation of this chunk gets re-checked:
+		private final int activationBucket;
 		private int entityCount = 0;
 		// active by default for fast initial reactions in case players are nearby:
 		public boolean activeGravity;
@@ -82,12 +113,20 @@ public class LivingEntityAI {
 
 		public ChunkData(Chunk chunk, boolean activeGravity) {
 			this.chunk = chunk;
+			this.worldName = chunk.getWorld().getName();
+			this.chunkX = chunk.getX();
+			this.chunkZ = chunk.getZ();
+			this.activationBucket = getTickBucket(31 * chunkX + chunkZ, ACTIVATION_INTERVAL_TICKS);
 			this.activeGravity = activeGravity;
 		}
 	}
 
+	// chunks containing shop entities:
 	private final Map<Chunk, ChunkData> activeChunks = new HashMap<>();
 
+	// the locations of players, per world and chunk: re-used during the activation phase
+	private final Map<String, Map<Long, List<Location>>> playerChunksByWorld = new HashMap<>();
+
 	// temporarily re-used Location object:
 	private final Location tempLocation = new Location(null, 0, 0, 0);
 
@@ -96,10 +135,11 @@ public class LivingEntityAI {
 	private int tickCounter = 0;
 
 	// statistics:
-	private int activeAIChunksCount = 0;
 	private int activeAIEntityCount = 0;
+	private int fullAIEntityCount = 0;
+	private int reducedAIEntityCount = 0;
+	private int frozenAIEntityCount = 0;
 
-	private int activeGravityChunksCount = 0;
 	private int activeGravityEntityCount = 0;
 
 	public static class Timings {
@@ -107,6 +147,8 @@ public class LivingEntityAI {
 		private long[] timingsHistory;
 		private long maxTiming = 0L;
 		private int counter = 0;
+		// records all timings, independent of the history size (can be null):
+		private final LatencyHistogram histogram;
 
 		// current timing:
 		private boolean started = false;
@@ -119,8 +161,13 @@ public class LivingEntityAI {
 		}
 
 		public Timings(int historySize) {
+			this(historySize, null);
+		}
+
+		public Timings(int historySize, LatencyHistogram histogram) {
 			assert historySize > 0;
 			timingsHistory = new long[historySize];
+			this.histogram = histogram;
 		}
 
 		void start() {
@@ -167,6 +214,10 @@ public class LivingEntityAI {
 			// reset/update max timing:
 			if (historyIndex == 0) maxTiming = elapsedTime;
 			else if (elapsedTime > maxTiming) maxTiming = elapsedTime;
+
+			if (histogram != null) {
+				histogram.record(elapsedTime);
+			}
 		}
 
 		public void reset() {
@@ -188,13 +239,21 @@ public class LivingEntityAI {
 		}
 	}
 
-	private final Timings totalTimings = new Timings();
-	private final Timings activationTimings = new Timings(10);
-	private final Timings gravityTimings = new Timings();
-	private final Timings aiTimings = new Timings();
+	private final Timings totalTimings;
+	private final Timings activationTimings;
+	private final Timings gravityTimings;
+	private final Timings aiTimings;
 
-	public LivingEntityAI(ShopkeepersPlugin plugin) {
+	public LivingEntityAI(SKShopkeepersPlugin plugin, GroundDistanceCache groundDistanceCache) {
 		this.plugin = plugin;
+		this.groundDistanceCache = groundDistanceCache;
+
+		// timings (additionally recorded into the plugin's latency histograms):
+		LatencyStats latencyStats = plugin.getLatencyStats();
+		this.totalTimings = new Timings(100, latencyStats.getHistogram("ai.total"));
+		this.activationTimings = new Timings(100, latencyStats.getHistogram("ai.activation"));
+		this.gravityTimings = new Timings(100, latencyStats.getHistogram("ai.gravity"));
+		this.aiTimings = new Timings(100, latencyStats.getHistogram("ai.ai"));
 	}
 
 	// whether our custom gravity handling shall be active
@@ -217,46 +276,47 @@ public class LivingEntityAI {
 			gravityTimings.startPaused();
 			aiTimings.startPaused();
 
-			// freshly determine active chunks/entities (near players) every 20 ticks:
-			boolean activationPhase = (tickCounter % 20 == 0);
-			if (activationPhase) {
-				activationTimings.start();
+			if (tickCounter % GROUND_DISTANCE_CACHE_RESET_TICKS == 0) {
+				groundDistanceCache.clear();
+			}
 
-				// deactivate all chunks:
-				for (ChunkData chunkData : activeChunks.values()) {
-					chunkData.activeAI = false;
-					chunkData.activeGravity = false;
-				}
-				activeAIChunksCount = 0;
-				activeGravityChunksCount = 0;
-
-				// activate chunks with nearby players:
-				boolean gravityActive = this.isGravityActive();
-				int gravityChunkRange = Math.max(Settings.gravityChunkRange, 0);
-				for (Player player : Bukkit.getOnlinePlayers()) {
-					Chunk centerChunk = player.getLocation(tempLocation).getChunk();
-					this.activateNearbyChunks(centerChunk, AI_ACTIVATION_CHUNK_RANGE, ActivationType.AI);
-					if (gravityActive) {
-						this.activateNearbyChunks(centerChunk, gravityChunkRange, ActivationType.GRAVITY);
-					}
+			// scale down the processing while the server is under heavy load:
+			int throttleLevel = plugin.getLoadThrottle().getLevel();
+
+			// freshly determine active chunks/entities (near players):
+			// the player locations get updated every 20 ticks, but the chunks get re-checked spread across the ticks
+			// when throttled, only every second activation interval gets processed
+			activationTimings.start();
+			boolean skipActivation = (throttleLevel >= 2 && (tickCounter / ACTIVATION_INTERVAL_TICKS) % 2 != 0);
+			if (!skipActivation) {
+				int activationBucket = (tickCounter % ACTIVATION_INTERVAL_TICKS);
+				if (activationBucket == 0 || playerChunksByWorld.isEmpty()) {
+					this.updatePlayerChunks();
 				}
-				activationTimings.stop();
+				this.activateChunksNearPlayers(activationBucket);
+				this.updateAILevels(activationBucket);
 			}
+			activationTimings.stop();
+
+			int fallingCheckInterval = FALLING_CHECK_INTERVAL_TICKS;
+			if (throttleLevel >= 3) fallingCheckInterval *= 4;
+			else if (throttleLevel >= 2) fallingCheckInterval *= 2;
 
 			activeAIEntityCount = 0;
+			fullAIEntityCount = 0;
+			reducedAIEntityCount = 0;
+			frozenAIEntityCount = 0;
 			activeGravityEntityCount = 0;
-			Iterator<Entry<LivingEntity, EntityData>> iterator = entities.entrySet().iterator();
-			while (iterator.hasNext()) {
-				Entry<LivingEntity, EntityData> entry = iterator.next();
-				LivingEntity entity = entry.getKey();
-				EntityData entityData = entry.getValue();
+			int index = 0;
+			while (index < entityCount) {
+				LivingEntity entity = entities[index];
 				// entity still alive and loaded?
 				if (entity.isDead() || !entity.isValid() || !ChunkCoords.isChunkLoaded(entity.getLocation(tempLocation))) {
-					iterator.remove();
-					this.onEntityRemoved(entity, entityData);
+					// swaps in the last entity, which gets processed next:
+					this.removeEntityAt(index);
 					continue;
 				}
-				ChunkData chunkData = entityData.chunkData;
+				ChunkData chunkData = entityChunks[index];
 
 				// handle gravity:
 				gravityTimings.resume();
@@ -264,26 +324,23 @@ public class LivingEntityAI {
 					activeGravityEntityCount++;
 
 					// check periodically, or if already falling, if the entity is meant to (continue to) fall:
-					entityData.skipFallingCheckTicks--;
-					if ((entityData.skipFallingCheckTicks <= 0) || entityData.falling) {
+					int fallingCheckBucket = (tickBuckets[index] % fallingCheckInterval);
+					if (falling[index] || (tickCounter % fallingCheckInterval == fallingCheckBucket)) {
 						// falling, if the distance-to-ground is above the threshold:
 						Location entityLocation = entity.getLocation(tempLocation);
-						entityData.distanceToGround = Utils.getCollisionDistanceToGround(entityLocation, GRAVITY_COLLISION_CHECK_RANGE);
-						entityData.falling = (entityData.distanceToGround >= DISTANCE_TO_GROUND_THRESHOLD);
+						distanceToGround[index] = groundDistanceCache.getDistanceToGround(entityLocation, GRAVITY_COLLISION_CHECK_RANGE);
+						falling[index] = (distanceToGround[index] >= DISTANCE_TO_GROUND_THRESHOLD);
 
 						// handle falling:
-						if (entityData.falling) {
+						if (falling[index]) {
 							// prevents SPIGOT-3948 / MC-130725
 							NMSManager.getProvider().setOnGround(entity, false);
-							this.handleFalling(entity, entityData);
+							this.handleFalling(index);
 						}
-						if (!entityData.falling) {
+						if (!falling[index]) {
 							// prevents SPIGOT-3948 / MC-130725
 							NMSManager.getProvider().setOnGround(entity, true);
 						}
-
-						// wait 10 ticks before checking again:
-						entityData.skipFallingCheckTicks = 10;
 					}
 				}
 				gravityTimings.pause();
@@ -293,18 +350,45 @@ public class LivingEntityAI {
 				if (chunkData.activeAI) {
 					activeAIEntityCount++;
 
+					boolean tickAI;
+					switch (aiLevels[index]) {
+					case FULL:
+						fullAIEntityCount++;
+						if (throttleLevel >= 1) {
+							tickAI = (tickCounter % 2 == tickBuckets[index] % 2);
+						} else {
+							tickAI = true;
+						}
+						break;
+					case REDUCED:
+						reducedAIEntityCount++;
+						int interval = Settings.reducedMobAiTickInterval;
+						if (throttleLevel >= 1) interval *= 2;
+						tickAI = (tickCounter % interval == tickBuckets[index] % interval);
+						break;
+					case FROZEN:
+					default:
+						frozenAIEntityCount++;
+						tickAI = false;
+						break;
+					}
+
+					// the AI is purely cosmetic, so it gets frozen first under heavy load:
+					if (throttleLevel >= 2) tickAI = false;
+
 					// only handle AI if not currently falling:
-					if (!entityData.falling) {
+					if (tickAI && !falling[index]) {
 						this.handleAI(entity);
 					}
 				}
 				aiTimings.pause();
+				index++;
 			}
 			// cleanup temporarily used location object:
 			tempLocation.setWorld(null);
 
 			// stop the task if there are no entities with AI anymore:
-			if (entities.isEmpty()) {
+			if (entityCount == 0) {
 				this.stop();
 			}
 
@@ -334,7 +418,7 @@ public class LivingEntityAI {
 		Validate.notNull(entity, "Entity is null!");
 		Validate.isTrue(!entity.isDead() && entity.isValid(), "Entity is invalid!");
 		Validate.isTrue(!currentlyRunning, "Cannot add entities while the ai task is running!");
-		if (entities.containsKey(entity)) return;
+		if (handlesByEntity.containsKey(entity)) return;
 
 		// determine entity chunk (asserts that the entity won't move!):
 		Chunk entityChunk = entity.getLocation(tempLocation).getChunk();
@@ -352,25 +436,70 @@ public class LivingEntityAI {
 		chunkData.entityCount++;
 
 		// add entity entry:
-		entities.put(entity, new EntityData(chunkData));
+		if (entityCount == entities.length) {
+			this.growEntityArrays();
+		}
+		int index = entityCount++;
+		EntityHandle handle = new EntityHandle(index);
+		entities[index] = entity;
+		entityHandles[index] = handle;
+		entityChunks[index] = chunkData;
+		// distributes the periodic work of the entities among ticks:
+		tickBuckets[index] = getTickBucket(entity.getUniqueId().hashCode(), Integer.MAX_VALUE);
+		falling[index] = false;
+		distanceToGround[index] = 0.0D;
+		// full AI by default for fast initial reactions in case players are nearby:
+		aiLevels[index] = AILevel.FULL;
+		handlesByEntity.put(entity, handle);
 
 		// start the ai task, if it isn't already running:
 		this.start();
 	}
 
+	private void growEntityArrays() {
+		int newCapacity = entities.length * 2;
+		entities = Arrays.copyOf(entities, newCapacity);
+		entityHandles = Arrays.copyOf(entityHandles, newCapacity);
+		entityChunks = Arrays.copyOf(entityChunks, newCapacity);
+		tickBuckets = Arrays.copyOf(tickBuckets, newCapacity);
+		falling = Arrays.copyOf(falling, newCapacity);
+		distanceToGround = Arrays.copyOf(distanceToGround, newCapacity);
+		aiLevels = Arrays.copyOf(aiLevels, newCapacity);
+	}
+
 	public void removeEntity(LivingEntity entity) {
 		Validate.isTrue(!currentlyRunning, "Cannot remove entities while the ai task is running!");
 		// remove entity:
-		EntityData entityData = entities.remove(entity);
-		if (entityData != null) {
-			this.onEntityRemoved(entity, entityData);
+		EntityHandle handle = handlesByEntity.get(entity);
+		if (handle != null) {
+			this.removeEntityAt(handle.index);
 		}
 	}
 
-	private void onEntityRemoved(LivingEntity entity, EntityData entityData) {
-		assert entity != null && entityData != null;
+	// moves the last entity into the freed slot
+	private void removeEntityAt(int index) {
+		assert index >= 0 && index < entityCount;
+		LivingEntity entity = entities[index];
+		ChunkData chunkData = entityChunks[index];
+		handlesByEntity.remove(entity);
+
+		int lastIndex = --entityCount;
+		if (index != lastIndex) {
+			entities[index] = entities[lastIndex];
+			entityHandles[index] = entityHandles[lastIndex];
+			entityHandles[index].index = index;
+			entityChunks[index] = entityChunks[lastIndex];
+			tickBuckets[index] = tickBuckets[lastIndex];
+			falling[index] = falling[lastIndex];
+			distanceToGround[index] = distanceToGround[lastIndex];
+			aiLevels[index] = aiLevels[lastIndex];
+		}
+		// clear references:
+		entities[lastIndex] = null;
+		entityHandles[lastIndex] = null;
+		entityChunks[lastIndex] = null;
+
 		// update/remove chunk entry:
-		ChunkData chunkData = entityData.chunkData;
 		chunkData.entityCount--;
 		if (chunkData.entityCount <= 0) {
 			activeChunks.remove(chunkData.chunk);
@@ -379,17 +508,22 @@ public class LivingEntityAI {
 
 	public void reset() {
 		Validate.isTrue(!currentlyRunning, "Cannot reset while the ai task is running!");
-		entities.clear();
+		Arrays.fill(entities, 0, entityCount, null);
+		Arrays.fill(entityHandles, 0, entityCount, null);
+		Arrays.fill(entityChunks, 0, entityCount, null);
+		entityCount = 0;
+		handlesByEntity.clear();
 		// activeChunks.clear();
 		this.resetStatistics();
 	}
 
 	public void resetStatistics() {
 		// reset statistics:
-		activeAIChunksCount = 0;
 		activeAIEntityCount = 0;
+		fullAIEntityCount = 0;
+		reducedAIEntityCount = 0;
+		frozenAIEntityCount = 0;
 
-		activeGravityChunksCount = 0;
 		activeGravityEntityCount = 0;
 
 		totalTimings.reset();
@@ -401,19 +535,39 @@ public class LivingEntityAI {
 	// statistics:
 
 	public int getEntityCount() {
-		return entities.size();
+		return entityCount;
 	}
 
 	public int getActiveAIChunksCount() {
-		return activeAIChunksCount;
+		int count = 0;
+		for (ChunkData chunkData : activeChunks.values()) {
+			if (chunkData.activeAI) count++;
+		}
+		return count;
 	}
 
 	public int getActiveAIEntityCount() {
 		return activeAIEntityCount;
 	}
 
+	public int getFullAIEntityCount() {
+		return fullAIEntityCount;
+	}
+
+	public int getReducedAIEntityCount() {
+		return reducedAIEntityCount;
+	}
+
+	public int getFrozenAIEntityCount() {
+		return frozenAIEntityCount;
+	}
+
 	public int getActiveGravityChunksCount() {
-		return activeGravityChunksCount;
+		int count = 0;
+		for (ChunkData chunkData : activeChunks.values()) {
+			if (chunkData.activeGravity) count++;
+		}
+		return count;
 	}
 
 	public int getActiveGravityEntityCount() {
@@ -438,55 +592,141 @@ public class LivingEntityAI {
 
 	// handling:
 
-	private static enum ActivationType {
-		GRAVITY,
-		AI;
-	}
-
-	private void activateNearbyChunks(Chunk centerChunk, int chunkRadius, ActivationType activationType) {
-		assert centerChunk != null && chunkRadius >= 0 && activationType != null;
-		World world = centerChunk.getWorld();
-		int minX = centerChunk.getX() - chunkRadius;
-		int minZ = centerChunk.getZ() - chunkRadius;
-		int maxX = centerChunk.getX() + chunkRadius;
-		int maxZ = centerChunk.getZ() + chunkRadius;
-		for (int x = minX; x <= maxX; x++) {
-			for (int z = minZ; z <= maxZ; z++) {
-				if (!world.isChunkLoaded(x, z)) continue;
-				Chunk chunk = world.getChunkAt(x, z);
-				ChunkData chunkData = activeChunks.get(chunk);
-				if (chunkData == null) continue;
-
-				switch (activationType) {
-				case GRAVITY:
-					if (!chunkData.activeGravity) {
-						chunkData.activeGravity = true;
-						activeGravityChunksCount++;
-					}
-					break;
-				case AI:
-					if (!chunkData.activeAI) {
-						chunkData.activeAI = true;
-						activeAIChunksCount++;
+	// maps the given hash to a bucket within [0, bucketCount)
+	private static int getTickBucket(int hash, int bucketCount) {
+		// spreads the hash bits (similar to HashMap):
+		hash ^= (hash >>> 16);
+		return ((hash & Integer.MAX_VALUE) % bucketCount);
+	}
+
+	private static long getChunkKey(int chunkX, int chunkZ) {
+		return (((long) chunkX) << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	// builds the per-world grid of chunks containing players:
+	private void updatePlayerChunks() {
+		for (Map<Long, List<Location>> playerChunks : playerChunksByWorld.values()) {
+			playerChunks.clear();
+		}
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			Location playerLocation = player.getLocation();
+			String worldName = playerLocation.getWorld().getName();
+			int chunkX = (playerLocation.getBlockX() >> 4);
+			int chunkZ = (playerLocation.getBlockZ() >> 4);
+			Map<Long, List<Location>> playerChunks = playerChunksByWorld.get(worldName);
+			if (playerChunks == null) {
+				playerChunks = new HashMap<>();
+				playerChunksByWorld.put(worldName, playerChunks);
+			}
+			Long chunkKey = getChunkKey(chunkX, chunkZ);
+			List<Location> playerLocations = playerChunks.get(chunkKey);
+			if (playerLocations == null) {
+				playerLocations = new ArrayList<>(1);
+				playerChunks.put(chunkKey, playerLocations);
+			}
+			playerLocations.add(playerLocation);
+		}
+	}
+
+	// starts from the chunks containing shop entities and checks for nearby players using the player chunk grid:
+	// only the chunks of the given activation bucket get re-checked
+	private void activateChunksNearPlayers(int activationBucket) {
+		boolean gravityActive = this.isGravityActive();
+		int gravityChunkRange = (gravityActive ? Math.max(Settings.gravityChunkRange, 0) : -1);
+		int maxChunkRange = Math.max(AI_ACTIVATION_CHUNK_RANGE, gravityChunkRange);
+		for (ChunkData chunkData : activeChunks.values()) {
+			if (chunkData.activationBucket != activationBucket) continue;
+
+			// deactivate chunk:
+			chunkData.activeAI = false;
+			chunkData.activeGravity = false;
+
+			// activate chunk if there are players nearby:
+			Map<Long, List<Location>> playerChunks = playerChunksByWorld.get(chunkData.worldName);
+			if (playerChunks == null || playerChunks.isEmpty()) continue;
+
+			int playerChunkDistance = this.getNearestPlayerChunkDistance(playerChunks, chunkData.chunkX, chunkData.chunkZ, maxChunkRange);
+			if (playerChunkDistance < 0) continue; // no players nearby
+
+			if (playerChunkDistance <= AI_ACTIVATION_CHUNK_RANGE) {
+				chunkData.activeAI = true;
+			}
+			if (playerChunkDistance <= gravityChunkRange) {
+				chunkData.activeGravity = true;
+			}
+		}
+	}
+
+	// returns the chessboard distance to the nearest chunk containing players, or -1 if there is none within range
+	private int getNearestPlayerChunkDistance(Map<Long, List<Location>> playerChunks, int chunkX, int chunkZ, int chunkRange) {
+		if (playerChunks.containsKey(getChunkKey(chunkX, chunkZ))) return 0;
+		// check rings of increasing distance around the chunk:
+		for (int distance = 1; distance <= chunkRange; distance++) {
+			int minX = chunkX - distance;
+			int maxX = chunkX + distance;
+			int minZ = chunkZ - distance;
+			int maxZ = chunkZ + distance;
+			for (int x = minX; x <= maxX; x++) {
+				if (playerChunks.containsKey(getChunkKey(x, minZ)) || playerChunks.containsKey(getChunkKey(x, maxZ))) {
+					return distance;
+				}
+			}
+			for (int z = minZ + 1; z < maxZ; z++) {
+				if (playerChunks.containsKey(getChunkKey(minX, z)) || playerChunks.containsKey(getChunkKey(maxX, z))) {
+					return distance;
+				}
+			}
+		}
+		return -1;
+	}
+
+	// determines the AI level of the entities in active AI chunks, based on the distance to the nearest player:
+	// only players within the AI activation chunk range are taken into account
+	// only the entities in chunks of the given activation bucket get updated
+	private void updateAILevels(int activationBucket) {
+		int fullAIRangeSq = Settings.fullMobAiRange * Settings.fullMobAiRange;
+		int reducedAIRangeSq = Settings.reducedMobAiRange * Settings.reducedMobAiRange;
+		for (int index = 0; index < entityCount; index++) {
+			ChunkData chunkData = entityChunks[index];
+			if (chunkData.activationBucket != activationBucket || !chunkData.activeAI) continue;
+			Map<Long, List<Location>> playerChunks = playerChunksByWorld.get(chunkData.worldName);
+			if (playerChunks == null) continue; // not expected, since the chunk is active
+
+			Location entityLocation = entities[index].getLocation(tempLocation);
+			double nearestDistanceSq = Double.MAX_VALUE;
+			for (int x = chunkData.chunkX - AI_ACTIVATION_CHUNK_RANGE; x <= chunkData.chunkX + AI_ACTIVATION_CHUNK_RANGE; x++) {
+				for (int z = chunkData.chunkZ - AI_ACTIVATION_CHUNK_RANGE; z <= chunkData.chunkZ + AI_ACTIVATION_CHUNK_RANGE; z++) {
+					List<Location> playerLocations = playerChunks.get(getChunkKey(x, z));
+					if (playerLocations == null) continue;
+					for (Location playerLocation : playerLocations) {
+						double distanceSq = playerLocation.distanceSquared(entityLocation);
+						if (distanceSq < nearestDistanceSq) nearestDistanceSq = distanceSq;
 					}
-				default:
-					// not expected
-					break;
 				}
 			}
+
+			if (nearestDistanceSq <= fullAIRangeSq) {
+				aiLevels[index] = AILevel.FULL;
+			} else if (nearestDistanceSq <= reducedAIRangeSq) {
+				aiLevels[index] = AILevel.REDUCED;
+			} else {
+				aiLevels[index] = AILevel.FROZEN;
+			}
 		}
+		tempLocation.setWorld(null); // cleanup temporarily used location object
 	}
 
 	// gets run every tick while falling:
-	private void handleFalling(LivingEntity entity, EntityData entityData) {
-		assert entityData.falling && entityData.distanceToGround >= DISTANCE_TO_GROUND_THRESHOLD;
+	private void handleFalling(int index) {
+		assert falling[index] && distanceToGround[index] >= DISTANCE_TO_GROUND_THRESHOLD;
+		LivingEntity entity = entities[index];
 		// determine falling step size:
 		double fallingStepSize;
-		double remainingDistance = (entityData.distanceToGround - MAX_FALLING_DISTANCE_PER_TICK);
+		double remainingDistance = (distanceToGround[index] - MAX_FALLING_DISTANCE_PER_TICK);
 		if (remainingDistance <= DISTANCE_TO_GROUND_THRESHOLD) {
 			// we are nearly there: let's position the entity exactly on the ground and stop the falling
-			fallingStepSize = entityData.distanceToGround;
-			entityData.falling = false;
+			fallingStepSize = distanceToGround[index];
+			falling[index] = false;
 		} else {
 			fallingStepSize = MAX_FALLING_DISTANCE_PER_TICK;
 			// we continue the falling and check for collisions again in the next tick
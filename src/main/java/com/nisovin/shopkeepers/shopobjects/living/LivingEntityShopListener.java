@@ -37,6 +37,7 @@ import org.bukkit.event.player.PlayerBedEnterEvent.BedEnterResult;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.vehicle.VehicleEnterEvent;
 import org.bukkit.event.weather.LightningStrikeEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.projectiles.ProjectileSource;
 
@@ -52,12 +53,33 @@ class LivingEntityShopListener implements Listener {
 	// the radius around lightning strikes in which villagers turn into witches
 	private static final int VILLAGER_ZAP_RADIUS = 7; // minecraft wiki says 3-4, we use 7 to be safe
 
+	private final LivingShops livingShops;
 	private final SKShopkeeperRegistry shopkeeperRegistry;
 
-	LivingEntityShopListener(SKShopkeeperRegistry shopkeeperRegistry) {
+	LivingEntityShopListener(LivingShops livingShops, SKShopkeeperRegistry shopkeeperRegistry) {
+		this.livingShops = livingShops;
 		this.shopkeeperRegistry = shopkeeperRegistry;
 	}
 
+	// also recognizes persistent shop entities whose shopkeepers have not yet adopted them, because their activation
+	// is delayed (or queued) after chunk loads:
+	private boolean isShopkeeper(Entity entity) {
+		if (shopkeeperRegistry.isShopkeeper(entity)) return true;
+		return this.isUnadoptedShopEntity(entity);
+	}
+
+	private boolean isUnadoptedShopEntity(Entity entity) {
+		if (!Settings.persistentShopEntities || !(entity instanceof LivingEntity)) return false;
+		// orphaned shop entities get removed on chunk load, so the shopkeeper is going to adopt the entity:
+		return (LivingShops.getPersistentEntityShopkeeperUUID(entity) != null);
+	}
+
+	// runs before the shopkeepers of the chunk get activated and adopt their persistent entities:
+	@EventHandler(priority = EventPriority.LOWEST)
+	void onChunkLoad(ChunkLoadEvent event) {
+		livingShops.removeOrphanedShopEntities(event.getChunk());
+	}
+
 	@EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = false)
 	void onEntityInteract(PlayerInteractEntityEvent event) {
 		if (!(event.getRightClicked() instanceof LivingEntity)) return;
@@ -69,6 +91,12 @@ class LivingEntityShopListener implements Listener {
 		// also checks for citizens npc shopkeepers:
 		AbstractShopkeeper shopkeeper = shopkeeperRegistry.getShopkeeperByEntity(shopEntity);
 		if (shopkeeper == null) {
+			if (this.isUnadoptedShopEntity(shopEntity)) {
+				// the shopkeeper is not yet active, but prevent any default behavior:
+				Log.debug("  Shopkeeper not yet active");
+				event.setCancelled(true);
+				return;
+			}
 			Log.debug("  Non-shopkeeper");
 			return;
 		}
@@ -98,7 +126,7 @@ class LivingEntityShopListener implements Listener {
 
 	@EventHandler(ignoreCancelled = true)
 	void onEntityTarget(EntityTargetEvent event) {
-		if (shopkeeperRegistry.isShopkeeper(event.getEntity()) || shopkeeperRegistry.isShopkeeper(event.getTarget())) {
+		if (this.isShopkeeper(event.getEntity()) || this.isShopkeeper(event.getTarget())) {
 			event.setCancelled(true);
 		}
 	}
@@ -106,7 +134,7 @@ class LivingEntityShopListener implements Listener {
 	@EventHandler(ignoreCancelled = true)
 	void onEntityDamage(EntityDamageEvent event) {
 		Entity entity = event.getEntity();
-		if (!shopkeeperRegistry.isShopkeeper(entity)) return;
+		if (!this.isShopkeeper(entity)) return;
 
 		// block damaging of shopkeepers
 		event.setCancelled(true);
@@ -125,7 +153,7 @@ class LivingEntityShopListener implements Listener {
 	@EventHandler(ignoreCancelled = true)
 	void onEntityEnterVehicle(VehicleEnterEvent event) {
 		Entity entity = event.getEntered();
-		if (shopkeeperRegistry.isShopkeeper(entity)) {
+		if (this.isShopkeeper(entity)) {
 			event.setCancelled(true);
 		}
 	}
@@ -134,14 +162,14 @@ class LivingEntityShopListener implements Listener {
 
 	@EventHandler(ignoreCancelled = true)
 	void onExplodePrime(ExplosionPrimeEvent event) {
-		if (shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 		}
 	}
 
 	@EventHandler(ignoreCancelled = true)
 	void onExplode(EntityExplodeEvent event) {
-		if (shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 			Log.debug("Cancelled event for living shop: " + event.getEventName());
 		}
@@ -149,7 +177,7 @@ class LivingEntityShopListener implements Listener {
 
 	@EventHandler(ignoreCancelled = true)
 	void onCreeperCharged(CreeperPowerEvent event) {
-		if (event.getCause() == PowerCause.LIGHTNING && shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (event.getCause() == PowerCause.LIGHTNING && this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 		}
 	}
@@ -158,35 +186,35 @@ class LivingEntityShopListener implements Listener {
 
 	@EventHandler(ignoreCancelled = true)
 	void onEntityChangeBlock(EntityChangeBlockEvent event) {
-		if (shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 		}
 	}
 
 	@EventHandler(ignoreCancelled = true)
 	void onEntityTeleport(EntityTeleportEvent event) {
-		if (shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 		}
 	}
 
 	@EventHandler(ignoreCancelled = true)
 	void onEntityPortalTeleport(EntityPortalEvent event) {
-		if (shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 		}
 	}
 
 	@EventHandler(ignoreCancelled = true)
 	void onPigZap(PigZapEvent event) {
-		if (shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 		}
 	}
 
 	@EventHandler(ignoreCancelled = true)
 	void onSheepDyed(SheepDyeWoolEvent event) {
-		if (shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 		}
 	}
@@ -197,7 +225,7 @@ class LivingEntityShopListener implements Listener {
 		// because they would turn into witches
 		Location loc = event.getLightning().getLocation();
 		for (Entity entity : Utils.getNearbyEntities(loc, VILLAGER_ZAP_RADIUS, EntityType.VILLAGER)) {
-			if (shopkeeperRegistry.isShopkeeper(entity)) {
+			if (this.isShopkeeper(entity)) {
 				event.setCancelled(true);
 			}
 		}
@@ -206,7 +234,7 @@ class LivingEntityShopListener implements Listener {
 	@EventHandler(ignoreCancelled = true)
 	void onPotionSplash(PotionSplashEvent event) {
 		for (LivingEntity entity : event.getAffectedEntities()) {
-			if (shopkeeperRegistry.isShopkeeper(entity)) {
+			if (this.isShopkeeper(entity)) {
 				event.setIntensity(entity, 0.0D);
 			}
 		}
@@ -227,7 +255,7 @@ class LivingEntityShopListener implements Listener {
 		});
 
 		for (Entity entity : monsters) {
-			if (!shopkeeperRegistry.isShopkeeper(entity)) {
+			if (!this.isShopkeeper(entity)) {
 				// found non-shopkeeper entity: do nothing (keep bed entering prevented)
 				return;
 			}
@@ -242,7 +270,7 @@ class LivingEntityShopListener implements Listener {
 	@EventHandler(ignoreCancelled = true)
 	void onEntityLaunchProjectile(ProjectileLaunchEvent event) {
 		ProjectileSource source = event.getEntity().getShooter();
-		if (source instanceof LivingEntity && shopkeeperRegistry.isShopkeeper((LivingEntity) source)) {
+		if (source instanceof LivingEntity && this.isShopkeeper((LivingEntity) source)) {
 			event.setCancelled(true);
 		}
 	}
@@ -251,7 +279,7 @@ class LivingEntityShopListener implements Listener {
 
 	@EventHandler(ignoreCancelled = true)
 	void onEntityBlockForm(EntityBlockFormEvent event) {
-		if (shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 		}
 	}
@@ -260,7 +288,7 @@ class LivingEntityShopListener implements Listener {
 
 	@EventHandler(ignoreCancelled = true)
 	void onEntityDropItem(EntityDropItemEvent event) {
-		if (shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 		}
 	}
@@ -268,7 +296,7 @@ class LivingEntityShopListener implements Listener {
 	// prevent shopkeeper entities from being affected by potion effects
 	@EventHandler(ignoreCancelled = true)
 	void onEntityPotionEffectEvent(EntityPotionEffectEvent event) {
-		if (event.getAction() == Action.ADDED && shopkeeperRegistry.isShopkeeper(event.getEntity())) {
+		if (event.getAction() == Action.ADDED && this.isShopkeeper(event.getEntity())) {
 			event.setCancelled(true);
 		}
 	}
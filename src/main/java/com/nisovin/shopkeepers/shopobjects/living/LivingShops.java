@@ -1,29 +1,46 @@
 package com.nisovin.shopkeepers.shopobjects.living;
 
+import java.util.UUID;
+
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
 import org.bukkit.event.HandlerList;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObject;
+import com.nisovin.shopkeepers.util.Log;
 
 public class LivingShops {
 
+	// the scoreboard tag by which persistent shop entities are associated with their shopkeepers:
+	private static final String PERSISTENT_ENTITY_TAG_PREFIX = "shopkeeper:";
+
 	private final SKShopkeepersPlugin plugin;
 	private final SKLivingShopObjectTypes livingEntityObjectTypes = new SKLivingShopObjectTypes(this);
+	private final GroundDistanceCache groundDistanceCache = new GroundDistanceCache();
 	private final LivingEntityAI livingEntityAI;
 	private final LivingEntityShopListener livingEntityShopListener;
 	private final CreatureForceSpawnListener creatureForceSpawnListener = new CreatureForceSpawnListener();
+	private final ShopEntityChunks shopEntityChunks;
 
 	public LivingShops(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
-		livingEntityAI = new LivingEntityAI(plugin);
-		livingEntityShopListener = new LivingEntityShopListener(plugin.getShopkeeperRegistry());
+		shopEntityChunks = new ShopEntityChunks(plugin);
+		livingEntityAI = new LivingEntityAI(plugin, groundDistanceCache);
+		livingEntityShopListener = new LivingEntityShopListener(this, plugin.getShopkeeperRegistry());
 	}
 
 	public void onEnable() {
+		shopEntityChunks.load();
 		Bukkit.getPluginManager().registerEvents(livingEntityShopListener, plugin);
+		Bukkit.getPluginManager().registerEvents(groundDistanceCache, plugin);
 		// register force-creature-spawn event handler:
 		if (Settings.bypassSpawnBlocking) {
 			Bukkit.getPluginManager().registerEvents(creatureForceSpawnListener, plugin);
@@ -32,6 +49,7 @@ public class LivingShops {
 
 	public void onDisable() {
 		HandlerList.unregisterAll(livingEntityShopListener);
+		HandlerList.unregisterAll(groundDistanceCache);
 		HandlerList.unregisterAll(creatureForceSpawnListener);
 		// reset force spawning:
 		creatureForceSpawnListener.forceCreatureSpawn(null, null);
@@ -39,6 +57,13 @@ public class LivingShops {
 		// stop living entity AI:
 		livingEntityAI.stop();
 		livingEntityAI.reset(); // cleanup, reset timings, etc.
+
+		// save the chunks which contain persistent shop entities:
+		shopEntityChunks.save();
+
+		// clear ground distance cache:
+		groundDistanceCache.clear();
+		groundDistanceCache.resetStatistics();
 	}
 
 	public SKLivingShopObjectTypes getLivingEntityObjectTypes() {
@@ -49,6 +74,73 @@ public class LivingShops {
 		return livingEntityAI;
 	}
 
+	public GroundDistanceCache getGroundDistanceCache() {
+		return groundDistanceCache;
+	}
+
+	// PERSISTENT SHOP ENTITIES
+
+	static String getPersistentEntityTag(UUID shopkeeperUUID) {
+		return PERSISTENT_ENTITY_TAG_PREFIX + shopkeeperUUID;
+	}
+
+	// returns null if the entity is no persistent shop entity:
+	static UUID getPersistentEntityShopkeeperUUID(Entity entity) {
+		for (String tag : entity.getScoreboardTags()) {
+			if (!tag.startsWith(PERSISTENT_ENTITY_TAG_PREFIX)) continue;
+			try {
+				return UUID.fromString(tag.substring(PERSISTENT_ENTITY_TAG_PREFIX.length()));
+			} catch (IllegalArgumentException e) {
+				// invalid tag, ignore
+			}
+		}
+		return null;
+	}
+
+	// remembers the chunk of a spawned persistent shop entity, so that it gets searched for orphaned shop entities once
+	// it gets loaded again:
+	void onPersistentShopEntitySpawned(LivingEntity entity) {
+		shopEntityChunks.add(new ChunkCoords(entity.getLocation()));
+	}
+
+	// removes the persistent shop entities inside the given chunk which are not going to get adopted by their
+	// shopkeepers (ex. because the shopkeeper got deleted or moved while the chunk was unloaded, or because persistent
+	// shop entities got disabled meanwhile):
+	void removeOrphanedShopEntities(Chunk chunk) {
+		// only chunks in which persistent shop entities got spawned need to be searched:
+		ChunkCoords chunkCoords = new ChunkCoords(chunk);
+		if (!shopEntityChunks.contains(chunkCoords)) return;
+		boolean keptShopEntities = false;
+		for (Entity entity : chunk.getEntities()) {
+			if (!(entity instanceof LivingEntity)) continue;
+			UUID shopkeeperUUID = getPersistentEntityShopkeeperUUID(entity);
+			if (shopkeeperUUID == null) continue;
+			if (this.isOrphanedShopEntity((LivingEntity) entity, shopkeeperUUID, chunkCoords)) {
+				Log.debug("Removing orphaned shop entity at " + entity.getLocation());
+				entity.remove();
+			} else {
+				keptShopEntities = true;
+			}
+		}
+		if (!keptShopEntities) {
+			shopEntityChunks.remove(chunkCoords);
+		}
+	}
+
+	private boolean isOrphanedShopEntity(LivingEntity entity, UUID shopkeeperUUID, ChunkCoords chunkCoords) {
+		if (!Settings.persistentShopEntities) return true;
+		AbstractShopkeeper shopkeeper = plugin.getShopkeeperRegistry().getShopkeeperByUniqueId(shopkeeperUUID);
+		if (shopkeeper == null) return true; // shopkeeper got deleted
+		if (!shopkeeper.getChunkCoords().equals(chunkCoords)) return true; // shopkeeper got moved
+		AbstractShopObject shopObject = shopkeeper.getShopObject();
+		if (!(shopObject instanceof SKLivingShopObject)) return true; // shop object type got changed
+		SKLivingShopObject livingShopObject = (SKLivingShopObject) shopObject;
+		if (livingShopObject.getEntityType() != entity.getType()) return true;
+		// the shopkeeper already uses a different entity:
+		LivingEntity activeEntity = livingShopObject.getEntity();
+		return (activeEntity != null && !activeEntity.equals(entity));
+	}
+
 	// bypassing creature spawn blocking plugins ('region protection' plugins):
 	void forceCreatureSpawn(Location location, EntityType entityType) {
 		if (Settings.bypassSpawnBlocking) {
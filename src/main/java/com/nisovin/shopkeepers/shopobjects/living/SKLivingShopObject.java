@@ -5,6 +5,7 @@ import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Ageable;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.inventory.ItemStack;
@@ -20,7 +21,6 @@ import com.nisovin.shopkeepers.compat.NMSManager;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopobjects.entity.AbstractEntityShopObject;
 import com.nisovin.shopkeepers.util.Log;
-import com.nisovin.shopkeepers.util.Utils;
 
 public class SKLivingShopObject extends AbstractEntityShopObject implements LivingShopObject {
 
@@ -31,6 +31,8 @@ public class SKLivingShopObject extends AbstractEntityShopObject implements Livi
 	private final SKLivingShopObjectType<?> livingObjectType;
 	private LivingEntity entity;
 	private int respawnAttempts = 0;
+	// whether the entity is kept in its chunk during the next despawn:
+	private boolean detachOnDespawn = false;
 
 	protected SKLivingShopObject(LivingShops livingShops, SKLivingShopObjectType<?> livingObjectType, AbstractShopkeeper shopkeeper, ShopCreationData creationData) {
 		super(shopkeeper, creationData);
@@ -101,7 +103,7 @@ public class SKLivingShopObject extends AbstractEntityShopObject implements Livi
 	private Location getSpawnLocation() {
 		World world = Bukkit.getWorld(shopkeeper.getWorldName());
 		Location spawnLocation = new Location(world, shopkeeper.getX() + 0.5D, shopkeeper.getY() + SPAWN_LOCATION_OFFSET, shopkeeper.getZ() + 0.5D);
-		double distanceToGround = Utils.getCollisionDistanceToGround(spawnLocation, SPAWN_LOCATION_RANGE);
+		double distanceToGround = livingShops.getGroundDistanceCache().getDistanceToGround(spawnLocation, SPAWN_LOCATION_RANGE);
 		if (distanceToGround == SPAWN_LOCATION_RANGE) {
 			// no collision within the checked range, remove offset from spawn location:
 			distanceToGround = SPAWN_LOCATION_OFFSET;
@@ -124,6 +126,19 @@ public class SKLivingShopObject extends AbstractEntityShopObject implements Livi
 		World world = Bukkit.getWorld(shopkeeper.getWorldName());
 		Location spawnLocation = this.getSpawnLocation();
 
+		// reuse the entity that was kept inside the chunk:
+		if (Settings.persistentShopEntities) {
+			LivingEntity persistentEntity = this.findPersistentEntity(spawnLocation);
+			if (persistentEntity != null) {
+				entity = persistentEntity;
+				this.assignShopkeeperMetadata(entity);
+				this.setName(shopkeeper.getName());
+				// minecraft does not save the AI goals of the entity, so they need to be set up again:
+				this.overwriteAI();
+				return true;
+			}
+		}
+
 		// spawn entity:
 		// TODO check if the block is passable before spawning there?
 		// try to bypass entity-spawn blocking plugins:
@@ -140,8 +155,15 @@ public class SKLivingShopObject extends AbstractEntityShopObject implements Livi
 			entity.eject(); // some entities might automatically mount on nearby entities (like baby zombies on chicken)
 			entity.setRemoveWhenFarAway(false);
 			entity.setCanPickupItems(false);
-			// don't save the entity to the world data:
-			entity.setPersistent(false);
+			if (Settings.persistentShopEntities) {
+				// save the entity together with its chunk, so that it can be reused once the chunk gets loaded again:
+				entity.setPersistent(true);
+				entity.addScoreboardTag(LivingShops.getPersistentEntityTag(shopkeeper.getUniqueId()));
+				livingShops.onPersistentShopEntitySpawned(entity);
+			} else {
+				// don't save the entity to the world data:
+				entity.setPersistent(false);
+			}
 
 			// disable breeding:
 			if (entity instanceof Ageable) {
@@ -171,6 +193,24 @@ public class SKLivingShopObject extends AbstractEntityShopObject implements Livi
 		}
 	}
 
+	// finds the persistent entity of this shopkeeper inside the chunk of the spawn location, and removes any duplicates:
+	private LivingEntity findPersistentEntity(Location spawnLocation) {
+		String tag = LivingShops.getPersistentEntityTag(shopkeeper.getUniqueId());
+		EntityType entityType = this.getEntityType();
+		LivingEntity persistentEntity = null;
+		for (Entity chunkEntity : spawnLocation.getChunk().getEntities()) {
+			if (chunkEntity.getType() != entityType || chunkEntity.isDead()) continue;
+			if (!chunkEntity.getScoreboardTags().contains(tag)) continue;
+			if (persistentEntity == null) {
+				persistentEntity = (LivingEntity) chunkEntity;
+			} else {
+				Log.debug("Removing duplicate shop entity of shopkeeper " + shopkeeper.getId());
+				chunkEntity.remove();
+			}
+		}
+		return persistentEntity;
+	}
+
 	// some mobs will always get their AI disabled in order to properly work:
 	protected boolean isNoAIMobType() {
 		switch (livingObjectType.getEntityType()) {
@@ -237,8 +277,19 @@ public class SKLivingShopObject extends AbstractEntityShopObject implements Livi
 		livingShops.getLivingEntityAI().removeEntity(entity);
 	}
 
+	@Override
+	public void onChunkUnload(boolean worldSaving) {
+		super.onChunkUnload(worldSaving);
+		// keep the entity inside the unloading chunk (if there is one to keep):
+		if (Settings.persistentShopEntities && !worldSaving && entity != null) {
+			detachOnDespawn = true;
+		}
+	}
+
 	@Override
 	public void despawn() {
+		boolean detach = detachOnDespawn;
+		detachOnDespawn = false;
 		if (entity == null) return;
 
 		// disable AI:
@@ -248,7 +299,9 @@ public class SKLivingShopObject extends AbstractEntityShopObject implements Livi
 		this.removeShopkeeperMetadata(entity);
 
 		// remove entity:
-		entity.remove();
+		if (!detach) {
+			entity.remove();
+		}
 		entity = null;
 	}
 
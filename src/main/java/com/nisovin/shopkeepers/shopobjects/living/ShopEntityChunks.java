@@ -0,0 +1,107 @@
+package com.nisovin.shopkeepers.shopobjects.living;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.SchedulerUtils;
+
+/**
+ * Keeps track of the chunks which may contain persistent shop entities, so that only these chunks need to be searched
+ * for orphaned shop entities once they get loaded.
+ * <p>
+ * Since the persistent shop entities get saved together with their chunks, they can outlive their shopkeepers (and
+ * server restarts). The chunks are therefore stored inside a separate file.
+ */
+class ShopEntityChunks {
+
+	private static final String FILE_NAME = "shop-entity-chunks.yml";
+	private static final String CHUNKS_KEY = "chunks";
+	private static final String SEPARATOR = ";";
+
+	private final Plugin plugin;
+	private final Set<ChunkCoords> chunks = new HashSet<>();
+	private boolean dirty = false;
+	private boolean savePending = false;
+
+	ShopEntityChunks(Plugin plugin) {
+		this.plugin = plugin;
+	}
+
+	private File getFile() {
+		return new File(plugin.getDataFolder(), FILE_NAME);
+	}
+
+	void load() {
+		chunks.clear();
+		dirty = false;
+		File file = this.getFile();
+		if (!file.exists()) return;
+
+		YamlConfiguration data = YamlConfiguration.loadConfiguration(file);
+		for (String entry : data.getStringList(CHUNKS_KEY)) {
+			String[] parts = entry.split(SEPARATOR);
+			if (parts.length != 3) {
+				Log.warning("Ignoring invalid shop entity chunk: " + entry);
+				continue;
+			}
+			try {
+				chunks.add(new ChunkCoords(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+			} catch (NumberFormatException e) {
+				Log.warning("Ignoring invalid shop entity chunk: " + entry);
+			}
+		}
+	}
+
+	void save() {
+		savePending = false;
+		if (!dirty) return;
+		dirty = false;
+
+		List<String> entries = new ArrayList<>(chunks.size());
+		for (ChunkCoords chunkCoords : chunks) {
+			entries.add(chunkCoords.getWorldName() + SEPARATOR + chunkCoords.getChunkX()
+					+ SEPARATOR + chunkCoords.getChunkZ());
+		}
+		YamlConfiguration data = new YamlConfiguration();
+		data.set(CHUNKS_KEY, entries);
+		try {
+			data.save(this.getFile());
+		} catch (IOException e) {
+			Log.severe("Could not save the shop entity chunks!", e);
+		}
+	}
+
+	boolean contains(ChunkCoords chunkCoords) {
+		return chunks.contains(chunkCoords);
+	}
+
+	void add(ChunkCoords chunkCoords) {
+		if (chunks.add(chunkCoords)) {
+			this.markDirty();
+		}
+	}
+
+	void remove(ChunkCoords chunkCoords) {
+		if (chunks.remove(chunkCoords)) {
+			this.markDirty();
+		}
+	}
+
+	// several changes during the same tick result in a single save:
+	private void markDirty() {
+		dirty = true;
+		if (savePending) return;
+		if (SchedulerUtils.runTaskOrOmit(plugin, this::save) != null) {
+			savePending = true;
+		}
+	}
+}
@@ -34,7 +34,9 @@ public class SignShops {
 	}
 
 	public AbstractShopkeeper getSignShop(Block block) {
-		return plugin.getShopkeeperRegistry().getActiveShopkeeper(signShopObjectType.createObjectId(block));
+		AbstractShopkeeper shopkeeper = plugin.getShopkeeperRegistry().getShopkeeperByBlock(block);
+		if (shopkeeper == null || shopkeeper.getShopObject().getType() != signShopObjectType) return null;
+		return shopkeeper;
 	}
 
 	public boolean isSignShop(Block block) {
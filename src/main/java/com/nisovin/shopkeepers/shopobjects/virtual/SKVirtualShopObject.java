@@ -0,0 +1,273 @@
+package com.nisovin.shopkeepers.shopobjects.virtual;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
+import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.compat.api.VirtualEntity;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObject;
+import com.nisovin.shopkeepers.util.Log;
+
+/**
+ * A shop object whose mob only exists on the clients of nearby players.
+ */
+public class SKVirtualShopObject extends AbstractShopObject {
+
+	// the range in which the mob looks at players:
+	private static final double LOOK_AT_RANGE_SQ = 12.0D * 12.0D;
+
+	protected final VirtualShops virtualShops;
+	private EntityType entityType; // not null
+	private VirtualEntity virtualEntity = null;
+	// the location of the mob, updated when the mob gets spawned or moved:
+	private final Location location = new Location(null, 0.0D, 0.0D, 0.0D);
+	// the players which currently see the mob:
+	private final Set<Player> viewers = new HashSet<>();
+	// the rotations last sent to the viewers:
+	private final Map<Player, Integer> viewerRotations = new HashMap<>();
+
+	protected SKVirtualShopObject(VirtualShops virtualShops, AbstractShopkeeper shopkeeper, ShopCreationData creationData) {
+		super(shopkeeper, creationData);
+		this.virtualShops = virtualShops;
+		// validated during config loading:
+		this.entityType = Settings.matchEntityType(Settings.virtualShopEntityType);
+		if (entityType == null) entityType = EntityType.VILLAGER;
+	}
+
+	@Override
+	public SKVirtualShopObjectType getType() {
+		return virtualShops.getVirtualShopObjectType();
+	}
+
+	@Override
+	public void load(ConfigurationSection configSection) {
+		super.load(configSection);
+		String entityTypeName = configSection.getString("entityType");
+		EntityType loadedEntityType = Settings.matchEntityType(entityTypeName);
+		if (loadedEntityType == null || !loadedEntityType.isAlive() || !loadedEntityType.isSpawnable()) {
+			Log.warning("Invalid entity type for virtual shopkeeper " + shopkeeper.getId() + ": " + entityTypeName);
+			shopkeeper.markDirty();
+		} else {
+			entityType = loadedEntityType;
+		}
+	}
+
+	@Override
+	public void save(ConfigurationSection configSection) {
+		super.save(configSection);
+		configSection.set("entityType", entityType.name());
+	}
+
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	AbstractShopkeeper getShopkeeper() {
+		return shopkeeper;
+	}
+
+	VirtualEntity getVirtualEntity() {
+		return virtualEntity;
+	}
+
+	// ACTIVATION
+
+	@Override
+	public boolean isActive() {
+		return (virtualEntity != null);
+	}
+
+	@Override
+	public String getId() {
+		if (virtualEntity == null) return null;
+		return this.getType().createObjectId(virtualEntity.getEntityId());
+	}
+
+	private Location getSpawnLocation() {
+		Location location = this.getLocation();
+		if (location == null) return null; // world not loaded
+		return location.add(0.5D, 0.0D, 0.5D);
+	}
+
+	@Override
+	public boolean spawn() {
+		if (virtualEntity != null) return true; // already spawned
+		if (!virtualShops.isEnabled()) return false;
+		Location spawnLocation = this.getSpawnLocation();
+		if (spawnLocation == null) return false;
+
+		virtualEntity = NMSManager.getProvider().createVirtualEntity(spawnLocation, entityType);
+		if (virtualEntity == null) {
+			Log.debug("Could not create virtual " + entityType + " for shopkeeper at " + shopkeeper.getPositionString());
+			return false;
+		}
+		virtualEntity.getLocation(location);
+		this.setName(shopkeeper.getName());
+		virtualShops.onSpawned(this);
+		// the mob gets shown to nearby players by the next view update
+		return true;
+	}
+
+	@Override
+	public void despawn() {
+		if (virtualEntity == null) return;
+		for (Player viewer : viewers) {
+			if (viewer.isOnline()) {
+				virtualEntity.hide(viewer);
+			}
+		}
+		viewers.clear();
+		viewerRotations.clear();
+		virtualShops.onDespawned(this);
+		virtualEntity = null;
+	}
+
+	@Override
+	public Location getLocation() {
+		return shopkeeper.getLocation();
+	}
+
+	@Override
+	public boolean check() {
+		if (virtualEntity == null) return false;
+		// move the mob in case the shopkeeper got moved:
+		Location spawnLocation = this.getSpawnLocation();
+		if (spawnLocation != null && !spawnLocation.equals(virtualEntity.getLocation())) {
+			Log.debug("Moving virtual shop mob to shopkeeper at " + shopkeeper.getPositionString());
+			virtualShops.onMoved(this, location, spawnLocation);
+			virtualEntity.setLocation(spawnLocation);
+			virtualEntity.getLocation(location);
+			for (Player viewer : viewers) {
+				virtualEntity.sendLocation(viewer);
+			}
+			// the location update also resets the rotation:
+			viewerRotations.clear();
+		}
+		return false;
+	}
+
+	// VIEWERS
+
+	// the location of the mob, not to be modified:
+	Location getMobLocation() {
+		return location;
+	}
+
+	boolean hasViewers() {
+		return !viewers.isEmpty();
+	}
+
+	/**
+	 * Removes the mob for viewers who left the view range.
+	 *
+	 * @param viewRangeSq
+	 *            the squared view range
+	 * @param tempLocation
+	 *            a location which gets reused for the viewers' locations
+	 */
+	void removeViewersOutOfRange(double viewRangeSq, Location tempLocation) {
+		assert virtualEntity != null;
+		World world = location.getWorld();
+		Iterator<Player> iterator = viewers.iterator();
+		while (iterator.hasNext()) {
+			Player viewer = iterator.next();
+			if (!viewer.isOnline()) {
+				iterator.remove();
+				viewerRotations.remove(viewer);
+				continue;
+			}
+			Location viewerLocation = viewer.getLocation(tempLocation);
+			if (viewerLocation.getWorld() != world || viewerLocation.distanceSquared(location) > viewRangeSq) {
+				virtualEntity.hide(viewer);
+				iterator.remove();
+				viewerRotations.remove(viewer);
+			}
+		}
+	}
+
+	/**
+	 * Shows the mob to the given player if the player is in range, and lets it look at the player if the player is
+	 * nearby.
+	 *
+	 * @param player
+	 *            the player
+	 * @param playerLocation
+	 *            the location of the player, in the world of the mob
+	 * @param viewRangeSq
+	 *            the squared view range
+	 * @param tempLocation
+	 *            a location which gets reused for the player's eye location
+	 * @return <code>true</code> if the player sees the mob
+	 */
+	boolean updateViewer(Player player, Location playerLocation, double viewRangeSq, Location tempLocation) {
+		assert virtualEntity != null;
+		double distanceSq = playerLocation.distanceSquared(location);
+		if (distanceSq > viewRangeSq) return false;
+		if (viewers.add(player)) {
+			virtualEntity.show(player);
+		}
+		if (distanceSq <= LOOK_AT_RANGE_SQ) {
+			Location eyeLocation = tempLocation;
+			eyeLocation.setWorld(playerLocation.getWorld());
+			eyeLocation.setX(playerLocation.getX());
+			eyeLocation.setY(playerLocation.getY() + player.getEyeHeight());
+			eyeLocation.setZ(playerLocation.getZ());
+			Integer lastRotation = viewerRotations.get(player);
+			int rotation = virtualEntity.lookAt(player, eyeLocation, (lastRotation == null) ? VirtualEntity.NO_ROTATION : lastRotation);
+			if (lastRotation == null || lastRotation != rotation) {
+				viewerRotations.put(player, rotation);
+			}
+		}
+		return true;
+	}
+
+	// the client has forgotten about the mob (ex. after a world change), or the player has left:
+	void forgetViewer(Player player) {
+		viewers.remove(player);
+		viewerRotations.remove(player);
+	}
+
+	// NAMING
+
+	@Override
+	public void setName(String name) {
+		if (!this.isActive()) return;
+		if (Settings.showNameplates && name != null && !name.isEmpty()) {
+			if (Settings.nameplatePrefix != null && !Settings.nameplatePrefix.isEmpty()) {
+				name = Settings.nameplatePrefix + name;
+			}
+			name = this.prepareName(name);
+			virtualEntity.setCustomName(name, Settings.alwaysShowNameplates);
+		} else {
+			// remove name plate:
+			virtualEntity.setCustomName(null, false);
+		}
+		for (Player viewer : viewers) {
+			virtualEntity.sendMetadata(viewer);
+		}
+	}
+
+	@Override
+	public String getName() {
+		if (!this.isActive()) return null;
+		return shopkeeper.getName();
+	}
+
+	// SUB TYPES
+	// not supported
+
+	// OTHER PROPERTIES
+	// not supported
+}
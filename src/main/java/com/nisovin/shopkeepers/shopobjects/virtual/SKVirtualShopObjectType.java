@@ -0,0 +1,56 @@
+package com.nisovin.shopkeepers.shopobjects.virtual;
+
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
+import com.nisovin.shopkeepers.util.StringUtils;
+import com.nisovin.shopkeepers.util.Utils;
+
+public class SKVirtualShopObjectType extends AbstractShopObjectType<SKVirtualShopObject> {
+
+	private final VirtualShops virtualShops;
+
+	public SKVirtualShopObjectType(VirtualShops virtualShops) {
+		super("virtual", "shopkeeper.virtual");
+		this.virtualShops = virtualShops;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return Utils.replaceArgs(Settings.msgShopObjectTypeVirtual,
+				"{type}", StringUtils.normalize(Settings.virtualShopEntityType));
+	}
+
+	public String createObjectId(int entityId) {
+		return this.getIdentifier() + ":" + entityId;
+	}
+
+	@Override
+	public SKVirtualShopObject createObject(AbstractShopkeeper shopkeeper, ShopCreationData creationData) {
+		return new SKVirtualShopObject(virtualShops, shopkeeper, creationData);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return Settings.enableVirtualShops && virtualShops.isEnabled();
+	}
+
+	@Override
+	public boolean matches(String identifier) {
+		identifier = StringUtils.normalize(identifier);
+		if (super.matches(identifier)) return true;
+		return identifier.startsWith("virtual");
+	}
+
+	@Override
+	public boolean needsSpawning() {
+		return true; // only shown to players while the chunk is loaded
+	}
+
+	@Override
+	public boolean despawnDuringWorldSaves() {
+		// virtual entities are not part of the world:
+		return false;
+	}
+}
@@ -0,0 +1,41 @@
+package com.nisovin.shopkeepers.shopobjects.virtual;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+
+class VirtualShopListener implements Listener {
+
+	private final VirtualShops virtualShops;
+
+	VirtualShopListener(VirtualShops virtualShops) {
+		this.virtualShops = virtualShops;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerJoin(PlayerJoinEvent event) {
+		virtualShops.onPlayerJoin(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerQuit(PlayerQuitEvent event) {
+		virtualShops.onPlayerQuit(event.getPlayer());
+	}
+
+	// the client forgets about all entities when changing the world or respawning, so the virtual shop mobs need to
+	// be sent again:
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+		virtualShops.forgetViewer(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerRespawn(PlayerRespawnEvent event) {
+		virtualShops.forgetViewer(event.getPlayer());
+	}
+}
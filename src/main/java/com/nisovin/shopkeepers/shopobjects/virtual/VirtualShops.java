@@ -0,0 +1,264 @@
+package com.nisovin.shopkeepers.shopobjects.virtual;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.compat.api.VirtualEntity;
+import com.nisovin.shopkeepers.compat.api.VirtualEntityInteractionListener;
+import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.SchedulerUtils;
+
+/**
+ * Manages virtual shop objects: Shows their mobs to nearby players and routes the players' interactions with them to
+ * their shopkeepers.
+ * <p>
+ * The mobs of virtual shops are not actual entities on the server, but only get sent to the clients via packets. The
+ * players' interactions with these mobs get intercepted on their network threads and then handled on the main thread.
+ */
+public class VirtualShops implements VirtualEntityInteractionListener {
+
+	private static final long VIEW_UPDATE_INTERVAL_TICKS = 5L;
+	// the max distance (measured from the player's feet) for interactions, with some leeway for latency:
+	private static final double INTERACTION_RANGE_SQ = 8.0D * 8.0D;
+
+	private final SKShopkeepersPlugin plugin;
+	private final SKVirtualShopObjectType virtualShopObjectType = new SKVirtualShopObjectType(this);
+	private final VirtualShopListener virtualShopListener;
+
+	// spawned virtual shop objects by entity id:
+	private final Map<Integer, SKVirtualShopObject> shopObjectsByEntityId = new HashMap<>();
+	// the entity ids of all spawned virtual shop objects, for lookups from the network threads:
+	private final Set<Integer> entityIds = ConcurrentHashMap.newKeySet();
+	// spawned virtual shop objects by world and chunk, for finding the shop objects near players:
+	private final Map<String, Map<Long, List<SKVirtualShopObject>>> shopObjectsByChunk = new HashMap<>();
+	// the spawned virtual shop objects which are currently seen by players:
+	private final Set<SKVirtualShopObject> viewedShopObjects = new HashSet<>();
+	// reused for the player locations during view updates:
+	private final Location tempLocation = new Location(null, 0.0D, 0.0D, 0.0D);
+	private final Location tempEyeLocation = new Location(null, 0.0D, 0.0D, 0.0D);
+
+	private boolean enabled = false;
+	private BukkitTask viewUpdateTask = null;
+
+	public VirtualShops(SKShopkeepersPlugin plugin) {
+		this.plugin = plugin;
+		this.virtualShopListener = new VirtualShopListener(this);
+	}
+
+	public void onEnable() {
+		if (!Settings.enableVirtualShops) return;
+		if (!NMSManager.getProvider().supportsVirtualEntities()) {
+			Log.warning("Virtual shops are not supported on this server version!");
+			return;
+		}
+		enabled = true;
+
+		Bukkit.getPluginManager().registerEvents(virtualShopListener, plugin);
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			this.onPlayerJoin(player);
+		}
+
+		viewUpdateTask = Bukkit.getScheduler().runTaskTimer(plugin, this::updateViews, VIEW_UPDATE_INTERVAL_TICKS, VIEW_UPDATE_INTERVAL_TICKS);
+	}
+
+	public void onDisable() {
+		if (!enabled) return;
+		HandlerList.unregisterAll(virtualShopListener);
+		if (viewUpdateTask != null) {
+			viewUpdateTask.cancel();
+			viewUpdateTask = null;
+		}
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			NMSManager.getProvider().uninjectVirtualEntityInteractionListener(player);
+		}
+		enabled = false;
+	}
+
+	/**
+	 * Checks whether virtual shops are enabled and supported.
+	 *
+	 * @return <code>true</code> if virtual shops are enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public SKVirtualShopObjectType getVirtualShopObjectType() {
+		return virtualShopObjectType;
+	}
+
+	public int getSpawnedCount() {
+		return shopObjectsByEntityId.size();
+	}
+
+	// gets called by the shop objects once they got spawned or despawned:
+
+	void onSpawned(SKVirtualShopObject shopObject) {
+		int entityId = shopObject.getVirtualEntity().getEntityId();
+		shopObjectsByEntityId.put(entityId, shopObject);
+		entityIds.add(entityId);
+		this.addToChunk(shopObject, shopObject.getMobLocation());
+	}
+
+	void onDespawned(SKVirtualShopObject shopObject) {
+		int entityId = shopObject.getVirtualEntity().getEntityId();
+		entityIds.remove(entityId);
+		shopObjectsByEntityId.remove(entityId);
+		this.removeFromChunk(shopObject, shopObject.getMobLocation());
+		viewedShopObjects.remove(shopObject);
+	}
+
+	// gets called before the mob of the shop object gets moved:
+	void onMoved(SKVirtualShopObject shopObject, Location oldLocation, Location newLocation) {
+		this.removeFromChunk(shopObject, oldLocation);
+		this.addToChunk(shopObject, newLocation);
+	}
+
+	// CHUNK INDEX
+
+	private static long getChunkKey(int chunkX, int chunkZ) {
+		return (((long) chunkX) << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	private static long getChunkKey(Location location) {
+		return getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+	}
+
+	private void addToChunk(SKVirtualShopObject shopObject, Location location) {
+		String worldName = location.getWorld().getName();
+		Map<Long, List<SKVirtualShopObject>> worldShopObjects = shopObjectsByChunk.get(worldName);
+		if (worldShopObjects == null) {
+			worldShopObjects = new HashMap<>();
+			shopObjectsByChunk.put(worldName, worldShopObjects);
+		}
+		Long chunkKey = getChunkKey(location);
+		List<SKVirtualShopObject> chunkShopObjects = worldShopObjects.get(chunkKey);
+		if (chunkShopObjects == null) {
+			chunkShopObjects = new ArrayList<>(1);
+			worldShopObjects.put(chunkKey, chunkShopObjects);
+		}
+		chunkShopObjects.add(shopObject);
+	}
+
+	private void removeFromChunk(SKVirtualShopObject shopObject, Location location) {
+		String worldName = location.getWorld().getName();
+		Map<Long, List<SKVirtualShopObject>> worldShopObjects = shopObjectsByChunk.get(worldName);
+		if (worldShopObjects == null) return;
+		Long chunkKey = getChunkKey(location);
+		List<SKVirtualShopObject> chunkShopObjects = worldShopObjects.get(chunkKey);
+		if (chunkShopObjects == null) return;
+		chunkShopObjects.remove(shopObject);
+		if (chunkShopObjects.isEmpty()) {
+			worldShopObjects.remove(chunkKey);
+			if (worldShopObjects.isEmpty()) {
+				shopObjectsByChunk.remove(worldName);
+			}
+		}
+	}
+
+	// VIEWERS
+
+	// only checks the shop objects which are currently seen, and the shop objects in the chunks around the players:
+	private void updateViews() {
+		if (shopObjectsByEntityId.isEmpty()) return;
+		int viewRange = Settings.virtualShopViewRange;
+		double viewRangeSq = (double) viewRange * viewRange;
+
+		// remove viewers which are out of range:
+		Iterator<SKVirtualShopObject> viewedIterator = viewedShopObjects.iterator();
+		while (viewedIterator.hasNext()) {
+			SKVirtualShopObject shopObject = viewedIterator.next();
+			shopObject.removeViewersOutOfRange(viewRangeSq, tempLocation);
+			if (!shopObject.hasViewers()) {
+				viewedIterator.remove();
+			}
+		}
+
+		// add new viewers and look at nearby players:
+		int chunkRange = (viewRange >> 4) + 1;
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			Location playerLocation = player.getLocation(tempLocation);
+			Map<Long, List<SKVirtualShopObject>> worldShopObjects = shopObjectsByChunk.get(playerLocation.getWorld().getName());
+			if (worldShopObjects == null) continue;
+			int playerChunkX = (playerLocation.getBlockX() >> 4);
+			int playerChunkZ = (playerLocation.getBlockZ() >> 4);
+			for (int chunkX = playerChunkX - chunkRange; chunkX <= playerChunkX + chunkRange; chunkX++) {
+				for (int chunkZ = playerChunkZ - chunkRange; chunkZ <= playerChunkZ + chunkRange; chunkZ++) {
+					List<SKVirtualShopObject> chunkShopObjects = worldShopObjects.get(getChunkKey(chunkX, chunkZ));
+					if (chunkShopObjects == null) continue;
+					for (SKVirtualShopObject shopObject : chunkShopObjects) {
+						if (shopObject.updateViewer(player, playerLocation, viewRangeSq, tempEyeLocation)) {
+							viewedShopObjects.add(shopObject);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	void onPlayerJoin(Player player) {
+		NMSManager.getProvider().injectVirtualEntityInteractionListener(player, this);
+	}
+
+	void onPlayerQuit(Player player) {
+		NMSManager.getProvider().uninjectVirtualEntityInteractionListener(player);
+		this.forgetViewer(player);
+	}
+
+	// the player's client has removed all entities (ex. after changing the world or respawning):
+	void forgetViewer(Player player) {
+		for (SKVirtualShopObject shopObject : viewedShopObjects) {
+			shopObject.forgetViewer(player);
+		}
+	}
+
+	// INTERACTION
+
+	@Override
+	public boolean isVirtualEntity(int entityId) {
+		return entityIds.contains(entityId);
+	}
+
+	@Override
+	public boolean onInteract(Player player, int entityId, boolean attack, boolean mainHand) {
+		// note: this gets called on the player's network thread
+		if (!entityIds.contains(entityId)) return false;
+		// only trigger shopkeeper interaction for main-hand interactions, ignore attacks:
+		if (!attack && mainHand) {
+			SchedulerUtils.runTaskOrOmit(plugin, () -> this.handleInteraction(player, entityId));
+		}
+		return true; // consume
+	}
+
+	private void handleInteraction(Player player, int entityId) {
+		if (!player.isOnline()) return;
+		SKVirtualShopObject shopObject = shopObjectsByEntityId.get(entityId);
+		if (shopObject == null) return; // despawned in the meantime
+		VirtualEntity virtualEntity = shopObject.getVirtualEntity();
+		Location location = virtualEntity.getLocation();
+		Log.debug("Player " + player.getName() + " is interacting with virtual shop mob at " + location);
+
+		// the client reports the interaction, so we verify that the player is actually near the mob:
+		Location playerLocation = player.getLocation();
+		if (playerLocation.getWorld() != location.getWorld() || playerLocation.distanceSquared(location) > INTERACTION_RANGE_SQ) {
+			Log.debug("  Player is too far away");
+			return;
+		}
+		shopObject.getShopkeeper().onPlayerInteraction(player);
+	}
+}
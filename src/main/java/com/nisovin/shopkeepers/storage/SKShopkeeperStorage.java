@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import org.apache.commons.lang.Validate;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.configuration.ConfigurationSection;
@@ -26,6 +27,7 @@ import com.nisovin.shopkeepers.shopkeeper.AbstractShopType;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.ConversionUtils;
+import com.nisovin.shopkeepers.util.LatencyStats;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.SchedulerUtils;
 import com.nisovin.shopkeepers.util.StringUtils;
@@ -204,6 +206,30 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		return nextId;
 	}
 
+	// gets the given number of unused ids in one pass, without marking them as used yet (see getNextShopkeeperId)
+	public int[] getNextShopkeeperIds(int count) {
+		Validate.isTrue(count >= 0, "Count cannot be negative!");
+		int[] ids = new int[count];
+		if (count == 0) return ids;
+		int nextId = this.getNextShopkeeperId();
+		for (int i = 0; i < count; ++i) {
+			while (!this.isUnusedId(nextId)) {
+				nextId++;
+				if (nextId <= 0) {
+					// overflow, all ids are in use..:
+					throw new IllegalStateException("No unused shopkeeper ids available!");
+				}
+			}
+			ids[i] = nextId;
+			nextId++;
+			if (nextId <= 0 && i + 1 < count) {
+				// overflow, not enough unused ids available:
+				throw new IllegalStateException("No unused shopkeeper ids available!");
+			}
+		}
+		return ids;
+	}
+
 	// also takes ids of stored shopkeepers in account that couldn't be loaded for some reason
 	private boolean isUnusedId(int id) {
 		return (!saveData.contains(String.valueOf(id)) && this.getShopkeeperRegistry().getShopkeeperById(id) == null);
@@ -629,6 +655,7 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 				if (saveResult.state == SaveResult.State.SUCCESS || saveResult.state == SaveResult.State.FAILURE) {
 					// print debug info:
 					saveResult.printDebugInfo();
+					saveResult.recordLatencies(plugin.getLatencyStats());
 
 					// saving failed?
 					if (saveResult.state != SaveResult.State.SUCCESS) {
@@ -933,5 +960,11 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 					+ (async ? "Async " : "Sync ") + "IO: " + ioDuration + "ms))"
 					+ ((state == State.FAILURE) ? ": Saving failed!" : ""));
 		}
+
+		public void recordLatencies(LatencyStats latencyStats) {
+			latencyStats.getHistogram("storage.save.packing").recordMillis(packingDuration);
+			latencyStats.getHistogram("storage.save.io").recordMillis(ioDuration);
+			latencyStats.getHistogram("storage.save.total").recordMillis(totalDuration);
+		}
 	}
 }
@@ -2,56 +2,126 @@ package com.nisovin.shopkeepers.tradelogging;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
 
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
 
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.events.ShopkeeperTradeEvent;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
-import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 import com.nisovin.shopkeepers.util.Utils;
 
 /**
  * Logs purchases to files.
+ * <p>
+ * The main thread only creates immutable records of the trades and adds them to a bounded lock-free queue. A separate
+ * writer thread, which gets woken up when there are new records, writes these records in batches to the log file of
+ * the respective day, which is kept open until the day changes. The log files of previous days get compressed.
  */
 public class TradeFileLogger implements Listener {
 
 	private static final String FILE_NAME_PREFIX = "purchases-";
-	private static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
-	private static final DateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm:ss");
+	private static final String FILE_NAME_SUFFIX = ".csv";
+	private static final String COMPRESSED_FILE_NAME_SUFFIX = ".gz";
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+	private static final String HEADER = "TIME,PLAYER,SHOP ID,SHOP TYPE,SHOP POS,OWNER,ITEM TYPE,DATA,QUANTITY,CURRENCY 1,CURRENCY 1 AMOUNT,CURRENCY 2,CURRENCY 2 AMOUNT\n";
 
-	private final File dataFolder;
+	// trades get dropped (with a warning) if the writer cannot keep up:
+	private static final int QUEUE_CAPACITY = 10000;
+	private static final int MAX_BATCH_SIZE = 500;
+	private static final long WAIT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000L;
 
-	public TradeFileLogger(File dataFolder) {
-		this.dataFolder = dataFolder;
+	private final Plugin plugin;
+	private final Queue<TradeRecord> queue = new ConcurrentLinkedQueue<>();
+	// the size of the queue, since ConcurrentLinkedQueue#size is not constant time:
+	private final AtomicInteger queueSize = new AtomicInteger(0);
+	private final AtomicInteger droppedRecords = new AtomicInteger(0);
+	private volatile boolean running = false;
+	// whether the writer thread is (about to be) waiting for new records:
+	private volatile boolean writerWaiting = false;
+	private Thread writerThread = null;
+
+	public TradeFileLogger(Plugin plugin) {
+		this.plugin = plugin;
+	}
+
+	public void onEnable() {
+		Bukkit.getPluginManager().registerEvents(this, plugin);
+		if (!Settings.enablePurchaseLogging) return;
+
+		running = true;
+		writerThread = new Thread(new LogWriter(plugin.getDataFolder()), "Shopkeepers-TradeLogger");
+		// doesn't prevent the server from shutting down if the plugin doesn't get disabled:
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	public void onDisable() {
+		if (writerThread == null) return;
+		// the writer thread writes the remaining records before it stops:
+		running = false;
+		LockSupport.unpark(writerThread);
+		try {
+			writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (writerThread.isAlive()) {
+			Log.warning("The trade logger did not finish writing the remaining purchases in time!");
+		}
+		writerThread = null;
+		queue.clear();
+		queueSize.set(0);
 	}
 
 	@EventHandler(priority = EventPriority.MONITOR)
 	void onTradeCompleted(ShopkeeperTradeEvent event) {
-		if (!Settings.enablePurchaseLogging || event.isCancelled()) {
+		if (!Settings.enablePurchaseLogging || event.isCancelled() || !running) {
 			return;
 		}
 		Player player = event.getPlayer();
 		Shopkeeper shopkeeper = event.getShopkeeper();
 		String ownerString = (shopkeeper instanceof PlayerShopkeeper) ? ((PlayerShopkeeper) shopkeeper).getOwnerAsString() : "[Admin]";
 
-		TradingRecipe tradingRecipe = event.getTradingRecipe();
-		ItemStack resultItem = tradingRecipe.getResultItem();
-		ItemStack requiredItem1 = tradingRecipe.getItem1();
-		ItemStack requiredItem2 = tradingRecipe.getItem2();
+		SKTradingRecipe tradingRecipe = SKTradingRecipe.of(event.getTradingRecipe());
+		UnmodifiableItem resultItem = tradingRecipe.getUnmodifiableResultItem();
+		UnmodifiableItem requiredItem1 = tradingRecipe.getUnmodifiableItem1();
+		UnmodifiableItem requiredItem2 = tradingRecipe.getUnmodifiableItem2();
+		int tradeCount = event.getTradeCount();
 
 		Inventory inventory = event.getClickEvent().getInventory();
 		ItemStack usedItem1 = inventory.getItem(0);
@@ -62,22 +132,208 @@ public class TradeFileLogger implements Listener {
 		}
 
 		// TODO fully serialize the traded items? (metadata)
-		// TODO do the file writing async
-		Date now = new Date();
-		File file = new File(dataFolder, FILE_NAME_PREFIX + DATE_FORMAT.format(now) + ".csv");
-		boolean isNew = !file.exists();
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
-			if (isNew) writer.append("TIME,PLAYER,SHOP ID,SHOP TYPE,SHOP POS,OWNER,ITEM TYPE,DATA,QUANTITY,CURRENCY 1,CURRENCY 1 AMOUNT,CURRENCY 2,CURRENCY 2 AMOUNT\n");
-			writer.append("\"" + TIME_FORMAT.format(now) + "\",\"" + Utils.getPlayerAsString(player) + "\",\"" + shopkeeper.getUniqueId()
-					+ "\",\"" + shopkeeper.getType().getIdentifier() + "\",\"" + shopkeeper.getPositionString() + "\",\"" + ownerString
-					+ "\",\"" + resultItem.getType().name() + "\",\"" + ItemUtils.getDurability(resultItem) + "\",\"" + resultItem.getAmount()
-					+ "\",\"" + (usedItem1 != null ? usedItem1.getType().name() + ":" + ItemUtils.getDurability(usedItem1) : "")
-					+ "\",\"" + (requiredItem1.getAmount())
-					+ "\",\"" + (usedItem2 != null ? usedItem2.getType().name() + ":" + ItemUtils.getDurability(usedItem2) : "")
-					+ "\",\"" + (requiredItem2 != null ? requiredItem2.getAmount() : "")
-					+ "\"\n");
-		} catch (IOException e) {
-			Log.severe("IO exception while trying to log purchase", e);
+		TradeRecord record = new TradeRecord(System.currentTimeMillis(), Utils.getPlayerAsString(player),
+				shopkeeper.getUniqueId(), shopkeeper.getType().getIdentifier(), shopkeeper.getPositionString(), ownerString,
+				resultItem.getType().name(), ItemUtils.getDurability(resultItem), (resultItem.getAmount() * tradeCount),
+				(usedItem1 != null ? usedItem1.getType().name() + ":" + ItemUtils.getDurability(usedItem1) : ""),
+				String.valueOf(requiredItem1.getAmount() * tradeCount),
+				(usedItem2 != null ? usedItem2.getType().name() + ":" + ItemUtils.getDurability(usedItem2) : ""),
+				(requiredItem2 != null ? String.valueOf(requiredItem2.getAmount() * tradeCount) : ""));
+		if (queueSize.incrementAndGet() > QUEUE_CAPACITY) {
+			queueSize.decrementAndGet();
+			droppedRecords.incrementAndGet();
+			return;
+		}
+		queue.offer(record);
+		// wake up the writer thread:
+		if (writerWaiting) {
+			LockSupport.unpark(writerThread);
+		}
+	}
+
+	private static final class TradeRecord {
+
+		private final long timestamp;
+		private final String player;
+		private final UUID shopId;
+		private final String shopType;
+		private final String shopPosition;
+		private final String owner;
+		private final String itemType;
+		private final int itemData;
+		private final int quantity;
+		private final String currency1;
+		private final String currency1Amount;
+		private final String currency2;
+		private final String currency2Amount;
+
+		TradeRecord(long timestamp, String player, UUID shopId, String shopType, String shopPosition, String owner,
+					String itemType, int itemData, int quantity, String currency1, String currency1Amount,
+					String currency2, String currency2Amount) {
+			this.timestamp = timestamp;
+			this.player = player;
+			this.shopId = shopId;
+			this.shopType = shopType;
+			this.shopPosition = shopPosition;
+			this.owner = owner;
+			this.itemType = itemType;
+			this.itemData = itemData;
+			this.quantity = quantity;
+			this.currency1 = currency1;
+			this.currency1Amount = currency1Amount;
+			this.currency2 = currency2;
+			this.currency2Amount = currency2Amount;
+		}
+
+		String toCSVLine(LocalDateTime dateTime) {
+			return "\"" + TIME_FORMAT.format(dateTime) + "\",\"" + player + "\",\"" + shopId
+					+ "\",\"" + shopType + "\",\"" + shopPosition + "\",\"" + owner
+					+ "\",\"" + itemType + "\",\"" + itemData + "\",\"" + quantity
+					+ "\",\"" + currency1 + "\",\"" + currency1Amount
+					+ "\",\"" + currency2 + "\",\"" + currency2Amount
+					+ "\"\n";
+		}
+	}
+
+	// runs on the writer thread:
+	private final class LogWriter implements Runnable {
+
+		private final File dataFolder;
+		private final List<TradeRecord> batch = new ArrayList<>(MAX_BATCH_SIZE);
+		// the currently open log file:
+		private LocalDate date = null;
+		private File file = null;
+		private Writer writer = null;
+
+		LogWriter(File dataFolder) {
+			this.dataFolder = dataFolder;
+		}
+
+		@Override
+		public void run() {
+			// compress the log files remaining from previous days:
+			this.compressLogFiles(LocalDate.now());
+			try {
+				while (running || !queue.isEmpty()) {
+					TradeRecord record = queue.poll();
+					if (record == null) {
+						this.awaitRecords();
+						continue;
+					}
+
+					batch.add(record);
+					while (batch.size() < MAX_BATCH_SIZE && (record = queue.poll()) != null) {
+						batch.add(record);
+					}
+					queueSize.addAndGet(-batch.size());
+					this.write(batch);
+					batch.clear();
+
+					int dropped = droppedRecords.getAndSet(0);
+					if (dropped > 0) {
+						Log.warning("Could not log " + dropped + " purchases: The trade logger cannot keep up!");
+					}
+				}
+			} finally {
+				this.closeLogFile();
+			}
+		}
+
+		// waits until woken up by new records or the shutdown, or until the timeout is reached:
+		private void awaitRecords() {
+			writerWaiting = true;
+			// check again, since records that got added before the flag was set don't wake us up:
+			if (running && queue.isEmpty()) {
+				LockSupport.parkNanos(TradeFileLogger.this, WAIT_TIMEOUT_NANOS);
+			}
+			writerWaiting = false;
+			if (Thread.interrupted()) {
+				// stop once the remaining records are written:
+				running = false;
+			}
+		}
+
+		private void write(List<TradeRecord> records) {
+			try {
+				for (TradeRecord record : records) {
+					LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp), ZoneId.systemDefault());
+					LocalDate recordDate = dateTime.toLocalDate();
+					if (writer == null || !recordDate.equals(date)) {
+						this.openLogFile(recordDate);
+					}
+					writer.write(record.toCSVLine(dateTime));
+				}
+				writer.flush();
+			} catch (IOException e) {
+				Log.severe("IO exception while trying to log purchases", e);
+				// the log file gets opened again for the next records:
+				this.closeLogFile();
+			}
+		}
+
+		private void openLogFile(LocalDate newDate) throws IOException {
+			LocalDate previousDate = date;
+			this.closeLogFile();
+			if (previousDate != null && !previousDate.equals(newDate)) {
+				// the day changed:
+				this.compressLogFiles(newDate);
+			}
+
+			File newFile = new File(dataFolder, FILE_NAME_PREFIX + DATE_FORMAT.format(newDate) + FILE_NAME_SUFFIX);
+			boolean isNew = !newFile.exists();
+			writer = new BufferedWriter(new FileWriter(newFile, true));
+			date = newDate;
+			file = newFile;
+			if (isNew) writer.write(HEADER);
+		}
+
+		private void closeLogFile() {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					Log.severe("IO exception while trying to close purchase log file " + file.getName(), e);
+				}
+			}
+			writer = null;
+			date = null;
+			file = null;
+		}
+
+		// compresses all log files except the one of the given (current) day:
+		private void compressLogFiles(LocalDate currentDate) {
+			String currentFileName = FILE_NAME_PREFIX + DATE_FORMAT.format(currentDate) + FILE_NAME_SUFFIX;
+			File[] logFiles = dataFolder.listFiles((dir, name) -> {
+				return name.startsWith(FILE_NAME_PREFIX) && name.endsWith(FILE_NAME_SUFFIX) && !name.equals(currentFileName);
+			});
+			if (logFiles == null) return;
+			for (File logFile : logFiles) {
+				this.compressLogFile(logFile);
+			}
+		}
+
+		private void compressLogFile(File logFile) {
+			File compressedFile = new File(logFile.getPath() + COMPRESSED_FILE_NAME_SUFFIX);
+			if (compressedFile.exists()) {
+				Log.warning("Could not compress purchase log file " + logFile.getName() + ": File "
+						+ compressedFile.getName() + " already exists.");
+				return;
+			}
+			try (InputStream in = new FileInputStream(logFile);
+					OutputStream out = new GZIPOutputStream(new FileOutputStream(compressedFile))) {
+				byte[] buffer = new byte[8192];
+				int length;
+				while ((length = in.read(buffer)) > 0) {
+					out.write(buffer, 0, length);
+				}
+			} catch (IOException e) {
+				Log.severe("IO exception while trying to compress purchase log file " + logFile.getName(), e);
+				compressedFile.delete();
+				return;
+			}
+			if (!logFile.delete()) {
+				Log.warning("Could not delete purchase log file " + logFile.getName() + " after compressing it.");
+			}
 		}
 	}
 }
@@ -4,9 +4,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.WeakHashMap;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Statistic;
@@ -22,18 +25,23 @@ import org.bukkit.inventory.MerchantInventory;
 import org.bukkit.inventory.MerchantRecipe;
 import org.bukkit.inventory.PlayerInventory;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.events.ShopkeeperTradeEvent;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.compat.api.ItemMatcher;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
 import com.nisovin.shopkeepers.ui.AbstractUIType;
 import com.nisovin.shopkeepers.ui.UIHandler;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.SchedulerUtils;
 import com.nisovin.shopkeepers.util.ShopkeeperUtils;
+import com.nisovin.shopkeepers.util.UnmodifiableItem;
 import com.nisovin.shopkeepers.util.Utils;
 
 public class TradingHandler extends UIHandler {
@@ -64,7 +72,7 @@ public class TradingHandler extends UIHandler {
 		/**
 		 * The used trading recipe.
 		 */
-		public TradingRecipe tradingRecipe;
+		public SKTradingRecipe tradingRecipe;
 		/**
 		 * The item offered by the player matching the first required item of the used trading recipe (not necessarily
 		 * the item in the first slot), not <code>null</code> or empty.
@@ -92,13 +100,20 @@ public class TradingHandler extends UIHandler {
 		 * inside the trading slots of the merchant inventory.
 		 */
 		public boolean swappedItemOrder;
+		/**
+		 * The number of times the trading recipe gets applied.
+		 * <p>
+		 * This is only greater than <code>1</code> for bulk trades, which prepare several trades of the same trading
+		 * recipe and then apply them at once.
+		 */
+		public int tradeCount;
 
 		protected TradeData() {
 		}
 
 		// separate from constructor to allow evolution without affecting sub-classes
 		private void setup(	InventoryClickEvent clickEvent, MerchantInventory merchantInventory, Player tradingPlayer,
-							TradingRecipe tradingRecipe, ItemStack offeredItem1, ItemStack offeredItem2, boolean swappedItemOrder) {
+							SKTradingRecipe tradingRecipe, ItemStack offeredItem1, ItemStack offeredItem2, boolean swappedItemOrder) {
 			this.clickEvent = clickEvent;
 			this.merchantInventory = merchantInventory;
 			this.tradingPlayer = tradingPlayer;
@@ -107,6 +122,7 @@ public class TradingHandler extends UIHandler {
 			this.offeredItem1 = offeredItem1;
 			this.offeredItem2 = offeredItem2;
 			this.swappedItemOrder = swappedItemOrder;
+			this.tradeCount = 1;
 		}
 	}
 
@@ -117,6 +133,11 @@ public class TradingHandler extends UIHandler {
 	protected static final int RESULT_ITEM_SLOT_ID = 2;
 
 	private final Map<UUID, Merchant> merchants = new HashMap<>();
+	// the item matchers get prepared once per merchant recipe, weakly referenced so that outdated recipes get dropped:
+	private final Map<MerchantRecipe, RequiredItemMatchers> requiredItemMatchers = new WeakHashMap<>();
+	// players whose trades get sent to them at the end of the tick, together with the trades of other viewers:
+	private final Map<Player, Merchant> pendingTradeUpdates = new LinkedHashMap<>();
+	private boolean tradeUpdatesPending = false;
 
 	// counts the trades triggered by the last click-event:
 	protected int tradeCounter = 0;
@@ -219,18 +240,100 @@ public class TradingHandler extends UIHandler {
 			Log.debug("Trades are still up-to-date for player " + player.getName());
 			return; // recipes did not change
 		}
-		Log.debug("Updating trades for player " + player.getName());
+		if (this.updateMerchantRecipeUses(oldMerchantRecipes, newMerchantRecipes)) {
+			// only the stock of some recipes changed:
+			Log.debug("Updating the stock of trades for player " + player.getName());
+		} else {
+			Log.debug("Updating trades for player " + player.getName());
 
-		// it is not safe to reduce the number of trading recipes for the player, so we need to add dummy recipes:
-		for (int i = recipes.size(); i < oldMerchantRecipes.size(); ++i) {
-			MerchantRecipe merchantRecipe = new MerchantRecipe(null, 0, 0, false);
-			newMerchantRecipes.add(merchantRecipe);
+			// it is not safe to reduce the number of trading recipes for the player, so we need to add dummy recipes:
+			for (int i = recipes.size(); i < oldMerchantRecipes.size(); ++i) {
+				MerchantRecipe merchantRecipe = new MerchantRecipe(null, 0, 0, false);
+				newMerchantRecipes.add(merchantRecipe);
+			}
+			// set merchant's recipes:
+			merchant.setRecipes(newMerchantRecipes);
 		}
-		// set merchant's recipes:
-		merchant.setRecipes(newMerchantRecipes);
 
 		// update recipes:
-		NMSManager.getProvider().updateTrades(player, merchant);
+		this.sendTradesUpdate(player, merchant);
+	}
+
+	// updates the uses of the old recipes in place, if they only differ from the new recipes by their uses:
+	// this keeps the existing merchant recipes (and any data cached for them) around
+	private boolean updateMerchantRecipeUses(List<MerchantRecipe> oldMerchantRecipes, List<MerchantRecipe> newMerchantRecipes) {
+		if (oldMerchantRecipes.size() != newMerchantRecipes.size()) return false;
+		for (int i = 0; i < oldMerchantRecipes.size(); ++i) {
+			MerchantRecipe oldRecipe = oldMerchantRecipes.get(i);
+			MerchantRecipe newRecipe = newMerchantRecipes.get(i);
+			if (oldRecipe.getMaxUses() != newRecipe.getMaxUses()) return false;
+			if (oldRecipe.hasExperienceReward() != newRecipe.hasExperienceReward()) return false;
+			if (!oldRecipe.getResult().equals(newRecipe.getResult())) return false;
+			if (!oldRecipe.getIngredients().equals(newRecipe.getIngredients())) return false;
+		}
+		for (int i = 0; i < oldMerchantRecipes.size(); ++i) {
+			oldMerchantRecipes.get(i).setUses(newMerchantRecipes.get(i).getUses());
+		}
+		return true;
+	}
+
+	// the trades get sent at the end of the tick, so that several updates within the same tick (ex. due to trades of
+	// several viewers of this shopkeeper) only result in one update per player:
+	private void sendTradesUpdate(Player player, Merchant merchant) {
+		pendingTradeUpdates.put(player, merchant);
+		if (tradeUpdatesPending) return;
+		if (SchedulerUtils.runTaskOrOmit(ShopkeepersPlugin.getInstance(), this::processTradesUpdates) != null) {
+			tradeUpdatesPending = true;
+		} else {
+			// the plugin is getting disabled, send the update right away:
+			this.processTradesUpdates();
+		}
+	}
+
+	private void processTradesUpdates() {
+		tradeUpdatesPending = false;
+		if (pendingTradeUpdates.isEmpty()) return;
+
+		// players with equal trades share the same update:
+		List<Merchant> merchantsToUpdate = new ArrayList<>();
+		Map<Merchant, List<Player>> playersToUpdate = new HashMap<>();
+		for (Entry<Player, Merchant> entry : pendingTradeUpdates.entrySet()) {
+			Player player = entry.getKey();
+			Merchant merchant = entry.getValue();
+			// skip players who closed the trading window in the meantime:
+			if (merchant != this.getMerchant(player)) continue;
+
+			Merchant sharedMerchant = null;
+			for (Merchant otherMerchant : merchantsToUpdate) {
+				if (areMerchantRecipesStrictlyEqual(merchant.getRecipes(), otherMerchant.getRecipes())) {
+					sharedMerchant = otherMerchant;
+					break;
+				}
+			}
+			if (sharedMerchant == null) {
+				sharedMerchant = merchant;
+				merchantsToUpdate.add(merchant);
+			}
+			playersToUpdate.computeIfAbsent(sharedMerchant, (key) -> new ArrayList<>()).add(player);
+		}
+		pendingTradeUpdates.clear();
+
+		for (Merchant merchant : merchantsToUpdate) {
+			NMSManager.getProvider().updateTrades(playersToUpdate.get(merchant), merchant);
+		}
+	}
+
+	// also compares the uses, which get sent to the players as well:
+	private static boolean areMerchantRecipesStrictlyEqual(List<MerchantRecipe> recipes1, List<MerchantRecipe> recipes2) {
+		if (!ShopkeeperUtils.areMerchantRecipesEqual(recipes1, recipes2)) return false;
+		for (int i = 0; i < recipes1.size(); ++i) {
+			MerchantRecipe recipe1 = recipes1.get(i);
+			MerchantRecipe recipe2 = recipes2.get(i);
+			if (recipe1.getUses() != recipe2.getUses() || recipe1.getMaxUses() != recipe2.getMaxUses()) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
@@ -241,6 +344,7 @@ public class TradingHandler extends UIHandler {
 	@Override
 	protected void onInventoryClose(Player player, InventoryCloseEvent closeEvent) {
 		merchants.remove(player.getUniqueId());
+		pendingTradeUpdates.remove(player);
 	}
 
 	@Override
@@ -300,13 +404,23 @@ public class TradingHandler extends UIHandler {
 		clickEvent.setCancelled(true);
 		ItemUtils.updateInventoryLater(player);
 
+		long startNanos = System.nanoTime();
+		this.handleTradeClick(clickEvent, player, action, resultItem, cursor);
+		if (tradeCounter > 0) {
+			// only recording clicks which actually triggered trades:
+			SKShopkeepersPlugin.getInstance().getLatencyStats().getHistogram("trade").record(System.nanoTime() - startNanos);
+		}
+	}
+
+	// handles a click of the result slot which might trigger one or more trades:
+	private void handleTradeClick(InventoryClickEvent clickEvent, Player player, InventoryAction action, ItemStack resultItem, ItemStack cursor) {
 		// check for a trade and prepare trade data:
 		TradeData tradeData = this.checkForTrade(clickEvent, false);
 		if (tradeData == null) {
 			// no trade available
 			return;
 		}
-		assert tradeData.tradingRecipe.getResultItem().isSimilar(resultItem);
+		assert tradeData.tradingRecipe.getUnmodifiableResultItem().isSimilar(resultItem);
 
 		PlayerInventory playerInventory = player.getInventory();
 		boolean isCursorEmpty = ItemUtils.isEmpty(cursor);
@@ -361,64 +475,174 @@ public class TradingHandler extends UIHandler {
 				this.updateTrades(player);
 			}
 		} else if (action == InventoryAction.MOVE_TO_OTHER_INVENTORY) {
-			// trades as often as possible (depending on offered items and inventory space) for the current result item:
-			// if the current trading recipe is no longer fulfilled, and the currently selected recipe index is 0,
-			// it will switch to the next applicable trading recipe, and continue the trading if the new result item is
-			// equal to the previous result item
-			while (true) {
-				// check if there is enough space in the player's inventory:
-				ItemStack[] newPlayerContents = playerInventory.getStorageContents();
-
-				// minecraft is adding items in reverse container order (starting with hotbar slot 9),
-				// so we reverse the player contents accordingly before adding items:
-				// changes write through to the original array:
-				List<ItemStack> listView = Arrays.asList(newPlayerContents);
-				List<ItemStack> hotbarView = listView.subList(0, 9);
-				List<ItemStack> contentsView = listView.subList(9, 36);
-				Collections.reverse(hotbarView);
-				Collections.reverse(contentsView);
-
-				// no item copy required here
-				if (ItemUtils.addItems(newPlayerContents, resultItem) != 0) {
-					// not enough inventory space, abort trading:
-					break;
-				}
+			if (Settings.bulkTrading) {
+				this.handleBulkTrades(clickEvent, tradeData, resultItem);
+			} else {
+				this.handleSuccessiveTrades(clickEvent, tradeData, resultItem);
+			}
+			this.updateTrades(player);
+		} else {
+			// the inventory action involves the result slot, but doesn't trigger a trade usually, or isn't supported
+			// yet
+		}
+	}
 
-				if (!this.handleTrade(tradeData)) {
-					// trade was aborted:
-					break;
-				}
+	// handles a shift-click of the result slot, one trade at a time:
+	private void handleSuccessiveTrades(InventoryClickEvent clickEvent, TradeData tradeData, ItemStack resultItem) {
+		PlayerInventory playerInventory = tradeData.playerInventory;
+		// trades as often as possible (depending on offered items and inventory space) for the current result item:
+		// if the current trading recipe is no longer fulfilled, and the currently selected recipe index is 0,
+		// it will switch to the next applicable trading recipe, and continue the trading if the new result item is
+		// equal to the previous result item
+		while (true) {
+			// check if there is enough space in the player's inventory:
+			ItemStack[] newPlayerContents = playerInventory.getStorageContents();
+
+			// minecraft is adding items in reverse container order (starting with hotbar slot 9),
+			// so we reverse the player contents accordingly before adding items:
+			// changes write through to the original array:
+			List<ItemStack> listView = Arrays.asList(newPlayerContents);
+			List<ItemStack> hotbarView = listView.subList(0, 9);
+			List<ItemStack> contentsView = listView.subList(9, 36);
+			Collections.reverse(hotbarView);
+			Collections.reverse(contentsView);
+
+			// no item copy required here
+			if (ItemUtils.addItems(newPlayerContents, resultItem) != 0) {
+				// not enough inventory space, abort trading:
+				break;
+			}
 
-				// revert previous reverse:
-				Collections.reverse(hotbarView);
-				Collections.reverse(contentsView);
+			if (!this.handleTrade(tradeData)) {
+				// trade was aborted:
+				break;
+			}
 
-				// apply player inventory changes:
-				playerInventory.setStorageContents(newPlayerContents);
+			// revert previous reverse:
+			Collections.reverse(hotbarView);
+			Collections.reverse(contentsView);
 
-				// common apply trade:
-				this.commonApplyTrade(tradeData);
+			// apply player inventory changes:
+			playerInventory.setStorageContents(newPlayerContents);
 
-				// check if we might continue trading:
-				tradeData = this.checkForTrade(clickEvent, true); // silent
-				if (tradeData == null) {
-					// no trade available:
-					break;
-				}
-				// compare result items:
-				ItemStack newResultItem = tradeData.tradingRecipe.getResultItem();
-				if (!resultItem.isSimilar(newResultItem)) {
-					// new result item doesn't match previous result item, abort trading (mimics minecraft behavior):
-					break;
-				}
-				// update result item:
-				resultItem = newResultItem;
+			// common apply trade:
+			this.commonApplyTrade(tradeData);
+
+			// check if we might continue trading:
+			tradeData = this.checkForTrade(clickEvent, true); // silent
+			if (tradeData == null) {
+				// no trade available:
+				break;
 			}
-			this.updateTrades(player);
-		} else {
-			// the inventory action involves the result slot, but doesn't trigger a trade usually, or isn't supported
-			// yet
+			// compare result items:
+			UnmodifiableItem newResultItem = tradeData.tradingRecipe.getUnmodifiableResultItem();
+			if (!newResultItem.isSimilar(resultItem)) {
+				// new result item doesn't match previous result item, abort trading (mimics minecraft behavior):
+				break;
+			}
+			// update result item (only its stack size might differ):
+			if (newResultItem.getAmount() != resultItem.getAmount()) {
+				resultItem = newResultItem.copy();
+			}
+		}
+	}
+
+	// handles a shift-click of the result slot, like handleSuccessiveTrades, but prepares as many trades of the same
+	// trading recipe as possible and then applies them at once:
+	private void handleBulkTrades(InventoryClickEvent clickEvent, TradeData tradeData, ItemStack resultItem) {
+		PlayerInventory playerInventory = tradeData.playerInventory;
+		while (true) {
+			ItemStack[] newPlayerContents = playerInventory.getStorageContents();
+
+			// minecraft is adding items in reverse container order (starting with hotbar slot 9),
+			// so we reverse the player contents accordingly before adding items:
+			// changes write through to the original array:
+			List<ItemStack> listView = Arrays.asList(newPlayerContents);
+			List<ItemStack> hotbarView = listView.subList(0, 9);
+			List<ItemStack> contentsView = listView.subList(9, 36);
+			Collections.reverse(hotbarView);
+			Collections.reverse(contentsView);
+
+			int maxTrades = this.getMaxBulkTrades(tradeData, newPlayerContents, resultItem);
+			if (maxTrades <= 0) {
+				// not enough inventory space, abort trading:
+				break;
+			}
+
+			int tradeCount = this.handleBulkTrade(tradeData, maxTrades);
+			if (tradeCount <= 0) {
+				// trade was aborted:
+				break;
+			}
+
+			// add the result items of all trades:
+			ItemStack resultItems = resultItem.clone();
+			resultItems.setAmount(resultItem.getAmount() * tradeCount);
+			int remaining = ItemUtils.addItems(newPlayerContents, resultItems);
+			assert remaining == 0; // checked via getMaxBulkTrades
+
+			// revert previous reverse:
+			Collections.reverse(hotbarView);
+			Collections.reverse(contentsView);
+
+			// apply player inventory changes:
+			playerInventory.setStorageContents(newPlayerContents);
+
+			// common apply trade:
+			this.commonApplyTrade(tradeData);
+
+			if (tradeCount < maxTrades) {
+				// some trade was aborted:
+				break;
+			}
+
+			// check if we might continue trading (ex. with a different trading recipe for the same result item):
+			tradeData = this.checkForTrade(clickEvent, true); // silent
+			if (tradeData == null) {
+				// no trade available:
+				break;
+			}
+			// compare result items:
+			UnmodifiableItem newResultItem = tradeData.tradingRecipe.getUnmodifiableResultItem();
+			if (!newResultItem.isSimilar(resultItem)) {
+				// new result item doesn't match previous result item, abort trading (mimics minecraft behavior):
+				break;
+			}
+			// update result item (only its stack size might differ):
+			if (newResultItem.getAmount() != resultItem.getAmount()) {
+				resultItem = newResultItem.copy();
+			}
+		}
+	}
+
+	// the max number of trades of the used trading recipe, depending on the offered items and the available space in
+	// the given player contents:
+	private int getMaxBulkTrades(TradeData tradeData, ItemStack[] playerContents, ItemStack resultItem) {
+		SKTradingRecipe tradingRecipe = tradeData.tradingRecipe;
+		int maxTrades = (tradeData.offeredItem1.getAmount() / tradingRecipe.getUnmodifiableItem1().getAmount());
+		UnmodifiableItem requiredItem2 = tradingRecipe.getUnmodifiableItem2();
+		if (requiredItem2 != null) {
+			int offeredAmount2 = ItemUtils.getItemStackAmount(tradeData.offeredItem2);
+			maxTrades = Math.min(maxTrades, offeredAmount2 / requiredItem2.getAmount());
 		}
+		int freeSpace = ItemUtils.getFreeSpace(playerContents, resultItem);
+		return Math.min(maxTrades, freeSpace / resultItem.getAmount());
+	}
+
+	private static final class RequiredItemMatchers {
+
+		private final ItemMatcher item1;
+		private final ItemMatcher item2;
+
+		RequiredItemMatchers(UnmodifiableItem requiredItem1, UnmodifiableItem requiredItem2) {
+			// the matchers might prepare the items, so they get copied:
+			this.item1 = NMSManager.getProvider().createItemMatcher(UnmodifiableItem.copy(requiredItem1));
+			this.item2 = NMSManager.getProvider().createItemMatcher(UnmodifiableItem.copy(requiredItem2));
+		}
+	}
+
+	private RequiredItemMatchers getRequiredItemMatchers(MerchantRecipe merchantRecipe, UnmodifiableItem requiredItem1, UnmodifiableItem requiredItem2) {
+		return requiredItemMatchers.computeIfAbsent(merchantRecipe, (recipe) -> new RequiredItemMatchers(requiredItem1, requiredItem2));
 	}
 
 	// checks for an available trade and does some preparation in case a trade is found,
@@ -435,7 +659,8 @@ public class TradingHandler extends UIHandler {
 		}
 
 		// find (and validate) the recipe minecraft is using for the trade:
-		TradingRecipe tradingRecipe = ShopkeeperUtils.getSelectedTradingRecipe(merchantInventory);
+		MerchantRecipe merchantRecipe = merchantInventory.getSelectedRecipe();
+		SKTradingRecipe tradingRecipe = ShopkeeperUtils.createTradingRecipe(merchantRecipe);
 		if (tradingRecipe == null) {
 			// this shouldn't happen..
 			if (!silent) {
@@ -443,7 +668,7 @@ public class TradingHandler extends UIHandler {
 			}
 			return null;
 		}
-		if (!tradingRecipe.getResultItem().equals(resultItem)) {
+		if (!tradingRecipe.getUnmodifiableResultItem().isEqual(resultItem)) {
 			// this shouldn't happen..
 			if (!silent) {
 				Log.debug("Not handling trade: The trade result item doesn't match the expected item of the used trading recipe!");
@@ -451,20 +676,21 @@ public class TradingHandler extends UIHandler {
 			return null;
 		}
 
-		ItemStack requiredItem1 = tradingRecipe.getItem1();
-		ItemStack requiredItem2 = tradingRecipe.getItem2();
-		assert !ItemUtils.isEmpty(requiredItem1);
+		UnmodifiableItem requiredItem1 = tradingRecipe.getUnmodifiableItem1();
+		UnmodifiableItem requiredItem2 = tradingRecipe.getUnmodifiableItem2();
+		assert requiredItem1 != null;
 
 		// use null here instead of air for consistent behavior with previous versions:
 		ItemStack offeredItem1 = ItemUtils.getNullIfEmpty(merchantInventory.getItem(BUY_ITEM_1_SLOT_ID));
 		ItemStack offeredItem2 = ItemUtils.getNullIfEmpty(merchantInventory.getItem(BUY_ITEM_2_SLOT_ID));
 		boolean swappedItemOrder = false;
 
+		RequiredItemMatchers matchers = this.getRequiredItemMatchers(merchantRecipe, requiredItem1, requiredItem2);
 		// minecraft checks both combinations (item1, item2) and (item2, item1) when determining if a trading recipe
 		// matches, so we need to determine the used item order for the currently used trading recipe:
-		if (NMSManager.getProvider().matches(offeredItem1, requiredItem1) && NMSManager.getProvider().matches(offeredItem2, requiredItem2)) {
+		if (matchers.item1.matches(offeredItem1) && matchers.item2.matches(offeredItem2)) {
 			// order is as-is
-		} else if (NMSManager.getProvider().matches(offeredItem1, requiredItem2) && NMSManager.getProvider().matches(offeredItem2, requiredItem1)) {
+		} else if (matchers.item2.matches(offeredItem1) && matchers.item1.matches(offeredItem2)) {
 			// swapped order:
 			swappedItemOrder = true;
 			ItemStack temp = offeredItem1;
@@ -546,11 +772,41 @@ public class TradingHandler extends UIHandler {
 			this.onTradeAborted(tradeData);
 			return false;
 		}
+		this.onTradePrepared(tradeData);
 
+		return this.callTradeEvent(tradeData);
+	}
+
+	// prepares up to the given number of trades of the same trading recipe, returns the number of trades which are
+	// now supposed to get applied, or 0 if the trade was aborted:
+	private int handleBulkTrade(TradeData tradeData, int maxTrades) {
+		assert tradeData != null && maxTrades > 0;
+		int preparedTrades = 0;
+		while (preparedTrades < maxTrades) {
+			// increase trade counter:
+			tradeCounter++;
+
+			// check and prepare the next trade, based on the previously prepared trades:
+			if (!this.prepareTrade(tradeData)) break;
+			this.onTradePrepared(tradeData);
+			preparedTrades++;
+		}
+		if (preparedTrades == 0) {
+			// the trade got cancelled for some shopkeeper-specific reason:
+			this.onTradeAborted(tradeData);
+			return 0;
+		}
+		tradeData.tradeCount = preparedTrades;
+
+		return (this.callTradeEvent(tradeData) ? preparedTrades : 0);
+	}
+
+	// returns true if the trade was not cancelled and is now supposed to get applied
+	private boolean callTradeEvent(TradeData tradeData) {
 		// call trade event, giving other plugins a chance to cancel the trade before it gets applied:
 		ShopkeeperTradeEvent tradeEvent = new ShopkeeperTradeEvent(this.getShopkeeper(), tradeData.tradingPlayer,
 				tradeData.clickEvent, tradeData.tradingRecipe, tradeData.offeredItem1, tradeData.offeredItem2,
-				tradeData.swappedItemOrder);
+				tradeData.swappedItemOrder, tradeData.tradeCount);
 		Bukkit.getPluginManager().callEvent(tradeEvent);
 		if (tradeEvent.isCancelled()) {
 			Log.debug("The trade got cancelled by some other plugin.");
@@ -575,9 +831,12 @@ public class TradingHandler extends UIHandler {
 		MerchantInventory merchantInventory = tradeData.merchantInventory;
 		merchantInventory.setItem(RESULT_ITEM_SLOT_ID, null); // clear result slot, just in case
 
-		TradingRecipe tradingRecipe = tradeData.tradingRecipe;
-		ItemStack newOfferedItem1 = ItemUtils.descreaseItemAmount(tradeData.offeredItem1, ItemUtils.getItemStackAmount(tradingRecipe.getItem1()));
-		ItemStack newOfferedItem2 = ItemUtils.descreaseItemAmount(tradeData.offeredItem2, ItemUtils.getItemStackAmount(tradingRecipe.getItem2()));
+		SKTradingRecipe tradingRecipe = tradeData.tradingRecipe;
+		int tradeCount = tradeData.tradeCount;
+		UnmodifiableItem requiredItem2 = tradingRecipe.getUnmodifiableItem2();
+		int requiredAmount2 = (requiredItem2 == null ? 0 : requiredItem2.getAmount());
+		ItemStack newOfferedItem1 = ItemUtils.descreaseItemAmount(tradeData.offeredItem1, tradingRecipe.getUnmodifiableItem1().getAmount() * tradeCount);
+		ItemStack newOfferedItem2 = ItemUtils.descreaseItemAmount(tradeData.offeredItem2, requiredAmount2 * tradeCount);
 		// inform the merchant inventory about the change (updates the active trading recipe and result item):
 		merchantInventory.setItem(tradeData.swappedItemOrder ? BUY_ITEM_2_SLOT_ID : BUY_ITEM_1_SLOT_ID, newOfferedItem1);
 		merchantInventory.setItem(tradeData.swappedItemOrder ? BUY_ITEM_1_SLOT_ID : BUY_ITEM_2_SLOT_ID, newOfferedItem2);
@@ -594,7 +853,8 @@ public class TradingHandler extends UIHandler {
 
 		// log trade:
 		Log.debug("Trade (#" + tradeCounter + ") by " + tradeData.tradingPlayer.getName() + " with shopkeeper at "
-				+ this.getShopkeeper().getPositionString() + ": " + ItemUtils.getSimpleRecipeInfo(tradingRecipe));
+				+ this.getShopkeeper().getPositionString() + ": " + ItemUtils.getSimpleRecipeInfo(tradingRecipe)
+				+ (tradeCount > 1 ? " (x" + tradeCount + ")" : ""));
 	}
 
 	/**
@@ -605,6 +865,10 @@ public class TradingHandler extends UIHandler {
 	 * inventory action multiple successive trades (even using different trading recipes) might get triggered by a
 	 * single inventory action.
 	 * <p>
+	 * For bulk trades, this gets called repeatedly for the same {@link TradeData} and has to take the previously
+	 * prepared trades into account. If the preparation of a trade fails, any changes it did to the state of the
+	 * previously prepared trades have to be discarded again. See {@link #onTradePrepared(TradeData)}.
+	 * <p>
 	 * There should be no changes of the corresponding click event and the involved inventories (player, chest) have to
 	 * be expected between this phase of the trade handling and the actual application of the trade.
 	 * 
@@ -617,6 +881,19 @@ public class TradingHandler extends UIHandler {
 		return true;
 	}
 
+	/**
+	 * Called after a trade has been successfully prepared by {@link #prepareTrade(TradeData)}.
+	 * <p>
+	 * For bulk trades, this gets called for each prepared trade, before the next trade gets prepared. The trade
+	 * event, and then either {@link #onTradeAborted(TradeData)} or the application of the trade, only follow once
+	 * all trades of the bulk have been prepared.
+	 * 
+	 * @param tradeData
+	 *            the trade data
+	 */
+	protected void onTradePrepared(TradeData tradeData) {
+	}
+
 	/**
 	 * Called if a previously already prepared trade got aborted for some reason.
 	 * <p>
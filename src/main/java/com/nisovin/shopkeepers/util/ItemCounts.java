@@ -0,0 +1,150 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Counts the amounts of similar items.
+ * <p>
+ * Items get looked up by their {@link ItemUtils#getSimilarityHash(ItemStack) similarity hash}, so that adding and
+ * looking up items is (on average) constant time. Similarity only gets checked for items with matching hashes.
+ */
+public class ItemCounts {
+
+	// in the order of first occurrence:
+	private final List<ItemCount> itemCounts = new ArrayList<>();
+	private final List<ItemCount> itemCountsView = Collections.unmodifiableList(itemCounts);
+	private final Map<ItemKey, ItemCount> itemCountsByKey = new HashMap<>();
+
+	public ItemCounts() {
+	}
+
+	/**
+	 * Adds the given amount of the given item.
+	 *
+	 * @param item
+	 *            the item, not empty
+	 * @param amount
+	 *            the amount to add, not negative
+	 */
+	public void add(ItemStack item, int amount) {
+		Validate.isTrue(!ItemUtils.isEmpty(item), "Item is empty!");
+		ItemKey itemKey = new ItemKey(item);
+		ItemCount itemCount = itemCountsByKey.get(itemKey);
+		if (itemCount != null) {
+			// increase item count:
+			itemCount.addAmount(amount);
+		} else {
+			// add new item entry:
+			itemCount = new ItemCount(item, amount);
+			itemCounts.add(itemCount);
+			// the key references the copied item of the item count:
+			itemCountsByKey.put(new ItemKey(itemCount.getItem(), itemKey.hash), itemCount);
+		}
+	}
+
+	/**
+	 * Adds the given item, with its stack size.
+	 *
+	 * @param item
+	 *            the item, not empty
+	 */
+	public void add(ItemStack item) {
+		this.add(item, item.getAmount());
+	}
+
+	/**
+	 * Gets the {@link ItemCount} of items similar to the given item.
+	 *
+	 * @param item
+	 *            the item
+	 * @return the item count, or <code>null</code> if there is none
+	 */
+	public ItemCount get(ItemStack item) {
+		if (ItemUtils.isEmpty(item)) return null;
+		return itemCountsByKey.get(new ItemKey(item));
+	}
+
+	/**
+	 * Gets the amount of items similar to the given item.
+	 *
+	 * @param item
+	 *            the item
+	 * @return the amount, <code>0</code> if there are no similar items
+	 */
+	public int getAmount(ItemStack item) {
+		ItemCount itemCount = this.get(item);
+		return (itemCount == null ? 0 : itemCount.getAmount());
+	}
+
+	/**
+	 * Gets the amount of items similar to the given item.
+	 *
+	 * @param item
+	 *            the item
+	 * @return the amount, <code>0</code> if there are no similar items
+	 */
+	public int getAmount(UnmodifiableItem item) {
+		if (item == null) return 0;
+		// uses the item's cached similarity hash:
+		ItemCount itemCount = itemCountsByKey.get(new ItemKey(item.getItemStack(), item.getSimilarityHash()));
+		return (itemCount == null ? 0 : itemCount.getAmount());
+	}
+
+	/**
+	 * Gets all item counts, in the order in which their items have first been added.
+	 *
+	 * @return an unmodifiable view on the item counts
+	 */
+	public List<ItemCount> getItemCounts() {
+		return itemCountsView;
+	}
+
+	public int size() {
+		return itemCounts.size();
+	}
+
+	public boolean isEmpty() {
+		return itemCounts.isEmpty();
+	}
+
+	public void clear() {
+		itemCounts.clear();
+		itemCountsByKey.clear();
+	}
+
+	private static final class ItemKey {
+
+		private final ItemStack item;
+		private final int hash;
+
+		ItemKey(ItemStack item) {
+			this(item, ItemUtils.getSimilarityHash(item));
+		}
+
+		ItemKey(ItemStack item, int hash) {
+			this.item = item;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof ItemKey)) return false;
+			ItemKey other = (ItemKey) obj;
+			if (hash != other.hash) return false;
+			return ItemUtils.isSimilar(item, other.item);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * The type, display name and lore an item is required to have, prepared for frequent comparisons.
+ * <p>
+ * Matches items the same way as {@link ItemUtils#isSimilar(ItemStack, Material, String, List)}, but the signature
+ * data is only normalized once. The item's meta data only gets copied if the item's type matches and if a display
+ * name or lore is required. And the display name and lore size get compared before the lore contents.
+ */
+public final class ItemSignature {
+
+	private final Material type; // not null
+	private final String displayName; // null if not required
+	private final List<String> lore; // unmodifiable, null if not required
+	private final boolean requiresMeta;
+
+	/**
+	 * Creates an {@link ItemSignature}.
+	 *
+	 * @param type
+	 *            the item type, not <code>null</code>
+	 * @param displayName
+	 *            the display name, <code>null</code> or empty to not require a display name
+	 * @param lore
+	 *            the lore, <code>null</code> or empty to not require a lore
+	 */
+	public ItemSignature(Material type, String displayName, List<String> lore) {
+		Validate.notNull(type, "Type is null!");
+		this.type = type;
+		this.displayName = (displayName == null || displayName.isEmpty()) ? null : displayName;
+		this.lore = (lore == null || lore.isEmpty()) ? null : Collections.unmodifiableList(new ArrayList<>(lore));
+		this.requiresMeta = (this.displayName != null || this.lore != null);
+	}
+
+	public Material getType() {
+		return type;
+	}
+
+	/**
+	 * Checks if the given item matches this signature.
+	 *
+	 * @param item
+	 *            the item, can be <code>null</code>
+	 * @return <code>true</code> if the item matches
+	 */
+	public boolean matches(ItemStack item) {
+		if (item == null) return false;
+		if (item.getType() != type) return false;
+		if (!requiresMeta) return true;
+
+		// the item's meta data gets copied only once, for both comparisons:
+		if (!item.hasItemMeta()) return false;
+		ItemMeta itemMeta = item.getItemMeta();
+		if (itemMeta == null) return false;
+
+		// compare display name:
+		if (displayName != null) {
+			if (!itemMeta.hasDisplayName() || !displayName.equals(itemMeta.getDisplayName())) {
+				return false;
+			}
+		}
+
+		// compare lore:
+		if (lore != null) {
+			if (!itemMeta.hasLore()) return false;
+			List<String> itemLore = itemMeta.getLore();
+			if (itemLore.size() != lore.size() || !lore.equals(itemLore)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
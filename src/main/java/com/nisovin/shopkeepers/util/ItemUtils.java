@@ -1,6 +1,5 @@
 package com.nisovin.shopkeepers.util;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang.Validate;
@@ -13,6 +12,8 @@ import org.bukkit.inventory.meta.ItemMeta;
 
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.compat.api.NMSCallProvider;
 
 /**
  * Utility functions related to materials, items and inventories.
@@ -98,6 +99,11 @@ public final class ItemUtils {
 		return ((Damageable) meta).getDamage();
 	}
 
+	public static int getDurability(UnmodifiableItem item) {
+		assert item != null;
+		return getDurability(item.getItemStack());
+	}
+
 	public static String getSimpleItemInfo(ItemStack item) {
 		if (item == null) return "empty";
 		StringBuilder sb = new StringBuilder();
@@ -129,6 +135,27 @@ public final class ItemUtils {
 		return item1.isSimilar(item2);
 	}
 
+	public static boolean isSimilar(UnmodifiableItem item1, ItemStack item2) {
+		if (item1 == null) return (item2 == null);
+		return item1.isSimilar(item2);
+	}
+
+	/**
+	 * Gets a hash code for the given item which ignores the stack size.
+	 * <p>
+	 * Items which are {@link #isSimilar(ItemStack, ItemStack) similar} have the same similarity hash. The item's data
+	 * gets hashed via the {@link NMSCallProvider#getItemDataHash(ItemStack) NMS handler}, which avoids copying the
+	 * item's metadata if possible. {@link UnmodifiableItem#getSimilarityHash()} caches the hash.
+	 * 
+	 * @param item
+	 *            the item
+	 * @return the similarity hash
+	 */
+	public static int getSimilarityHash(ItemStack item) {
+		if (isEmpty(item)) return 0;
+		return 31 * item.getType().hashCode() + NMSManager.getProvider().getItemDataHash(item);
+	}
+
 	/**
 	 * Checks if the given item matches the specified attributes.
 	 * 
@@ -223,22 +250,13 @@ public final class ItemUtils {
 
 	// inventory utilities:
 
-	public static List<ItemCount> countItems(ItemStack[] contents, Filter<ItemStack> filter) {
-		List<ItemCount> itemCounts = new ArrayList<>();
+	public static ItemCounts countItems(ItemStack[] contents, Filter<ItemStack> filter) {
+		ItemCounts itemCounts = new ItemCounts();
 		if (contents == null) return itemCounts;
 		for (ItemStack item : contents) {
 			if (isEmpty(item)) continue;
 			if (filter != null && !filter.accept(item)) continue;
-
-			// check if we already have a counter for this type of item:
-			ItemCount itemCount = ItemCount.findSimilar(itemCounts, item);
-			if (itemCount != null) {
-				// increase item count:
-				itemCount.addAmount(item.getAmount());
-			} else {
-				// add new item entry:
-				itemCounts.add(new ItemCount(item, item.getAmount()));
-			}
+			itemCounts.add(item);
 		}
 		return itemCounts;
 	}
@@ -392,6 +410,33 @@ public final class ItemUtils {
 		return amount;
 	}
 
+	/**
+	 * Gets the amount of items similar to the given item which could be added to the given contents.
+	 * 
+	 * @param contents
+	 *            the contents
+	 * @param item
+	 *            the item
+	 * @return the amount of items which would fit into the contents
+	 */
+	public static int getFreeSpace(ItemStack[] contents, ItemStack item) {
+		Validate.notNull(contents);
+		Validate.notNull(item);
+		int maxStackSize = item.getMaxStackSize();
+		int freeSpace = 0;
+		for (ItemStack slotItem : contents) {
+			if (isEmpty(slotItem)) {
+				freeSpace += maxStackSize;
+			} else {
+				int slotAmount = slotItem.getAmount();
+				if (slotAmount < maxStackSize && slotItem.isSimilar(item)) {
+					freeSpace += (maxStackSize - slotAmount);
+				}
+			}
+		}
+		return freeSpace;
+	}
+
 	/**
 	 * Removes the given {@link ItemStack} from the given contents.
 	 * 
@@ -448,6 +493,11 @@ public final class ItemUtils {
 		return amount;
 	}
 
+	public static int removeItems(ItemStack[] contents, UnmodifiableItem item) {
+		Validate.notNull(item);
+		return removeItems(contents, item.getItemStack());
+	}
+
 	@SuppressWarnings("deprecation")
 	public static void updateInventoryLater(Player player) {
 		Bukkit.getScheduler().runTask(ShopkeepersPlugin.getInstance(), () -> player.updateInventory());
@@ -0,0 +1,153 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.Arrays;
+
+/**
+ * Records latencies with a fixed memory footprint and a bounded relative error, and allows querying percentiles of the
+ * recorded latencies.
+ * <p>
+ * Similar to HDR histograms, the recorded values get sorted into buckets whose widths grow exponentially with the
+ * recorded values: Each power of two range is split into {@link #SUB_BUCKETS} linear sub-buckets. This limits the
+ * relative error of the reported percentiles to about 6%, independent of the magnitude of the recorded values.
+ * Recording a value is constant time and does not allocate.
+ * <p>
+ * Values are recorded in nanoseconds. Values exceeding {@link #MAX_TRACKABLE_VALUE} get recorded into the highest
+ * bucket, but the exact max value is still tracked separately.
+ * <p>
+ * This is not thread-safe. Values are expected to get recorded and queried on the main thread.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = (1 << SUB_BUCKET_BITS);
+	// the highest power of two that gets tracked with full precision (about 18 minutes in nanoseconds):
+	private static final int MAX_EXPONENT = 40;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	public static final long MAX_TRACKABLE_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+	private final long[] counts = new long[BUCKETS];
+	private long totalCount = 0L;
+	private long totalValue = 0L;
+	private long maxValue = 0L;
+
+	public LatencyHistogram() {
+	}
+
+	private static int getBucketIndex(long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+		if (value > MAX_TRACKABLE_VALUE) return (BUCKETS - 1);
+		int exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	// the highest value that gets recorded into the bucket with the given index:
+	private static long getBucketUpperBound(int bucketIndex) {
+		if (bucketIndex < SUB_BUCKETS) return bucketIndex;
+		int exponent = (bucketIndex / SUB_BUCKETS) + SUB_BUCKET_BITS - 1;
+		int subBucket = (bucketIndex % SUB_BUCKETS);
+		int shift = (exponent - SUB_BUCKET_BITS);
+		return ((((long) (SUB_BUCKETS + subBucket)) << shift) + (1L << shift) - 1);
+	}
+
+	/**
+	 * Records the given latency.
+	 *
+	 * @param nanos
+	 *            the latency in nanoseconds, negative values get treated as <code>0</code>
+	 */
+	public void record(long nanos) {
+		if (nanos < 0L) nanos = 0L;
+		counts[getBucketIndex(nanos)]++;
+		totalCount++;
+		totalValue += nanos;
+		if (nanos > maxValue) maxValue = nanos;
+	}
+
+	/**
+	 * Records the given latency.
+	 *
+	 * @param millis
+	 *            the latency in milliseconds
+	 */
+	public void recordMillis(long millis) {
+		this.record(millis * 1000000L);
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0L);
+		totalCount = 0L;
+		totalValue = 0L;
+		maxValue = 0L;
+	}
+
+	public long getCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Gets the highest recorded latency.
+	 *
+	 * @return the max latency in nanoseconds, or <code>0</code> if no latencies have been recorded yet
+	 */
+	public long getMax() {
+		return maxValue;
+	}
+
+	/**
+	 * Gets the average of the recorded latencies.
+	 *
+	 * @return the average latency in nanoseconds, or <code>0</code> if no latencies have been recorded yet
+	 */
+	public double getMean() {
+		if (totalCount == 0L) return 0.0D;
+		return ((double) totalValue / totalCount);
+	}
+
+	/**
+	 * Gets the latency below or at which the given percentage of recorded latencies lie.
+	 * <p>
+	 * The returned value is the upper bound of the bucket containing the requested percentile, but never exceeds the
+	 * highest recorded latency.
+	 *
+	 * @param percentile
+	 *            the percentile, between <code>0</code> and <code>100</code>
+	 * @return the latency in nanoseconds, or <code>0</code> if no latencies have been recorded yet
+	 */
+	public long getPercentile(double percentile) {
+		if (totalCount == 0L) return 0L;
+		double clampedPercentile = Math.max(0.0D, Math.min(100.0D, percentile));
+		long countAtPercentile = Math.max(1L, (long) Math.ceil((clampedPercentile / 100.0D) * totalCount));
+		long cumulativeCount = 0L;
+		for (int i = 0; i < BUCKETS; ++i) {
+			cumulativeCount += counts[i];
+			if (cumulativeCount >= countAtPercentile) {
+				return Math.min(getBucketUpperBound(i), maxValue);
+			}
+		}
+		return maxValue;
+	}
+
+	public double getPercentileMillis(double percentile) {
+		return (this.getPercentile(percentile) * 1.0E-6D);
+	}
+
+	public double getMaxMillis() {
+		return (maxValue * 1.0E-6D);
+	}
+
+	/**
+	 * Gets a short summary of the recorded latencies, containing the number of recorded latencies and the 50th, 95th
+	 * and 99th percentiles as well as the max latency in milliseconds.
+	 *
+	 * @return the summary
+	 */
+	public String getSummary() {
+		return "n=" + totalCount
+				+ ", p50=" + Utils.DECIMAL_FORMAT.format(this.getPercentileMillis(50.0D))
+				+ ", p95=" + Utils.DECIMAL_FORMAT.format(this.getPercentileMillis(95.0D))
+				+ ", p99=" + Utils.DECIMAL_FORMAT.format(this.getPercentileMillis(99.0D))
+				+ ", max=" + Utils.DECIMAL_FORMAT.format(this.getMaxMillis()) + " ms";
+	}
+}
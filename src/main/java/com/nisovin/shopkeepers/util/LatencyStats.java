@@ -0,0 +1,116 @@
+package com.nisovin.shopkeepers.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Keeps track of named {@link LatencyHistogram latency histograms} for internal operations (ex. the living entity AI
+ * phases, saves, trades, chunk activations).
+ * <p>
+ * The histograms get created on first use and keep accumulating until they get {@link #reset() reset}.
+ */
+public class LatencyStats {
+
+	private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+			.withZone(ZoneId.systemDefault());
+
+	// ordered by first use:
+	private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+	private final Map<String, LatencyHistogram> histogramsView = Collections.unmodifiableMap(histograms);
+	private long startTime = System.currentTimeMillis();
+
+	public LatencyStats() {
+	}
+
+	/**
+	 * Gets the histogram with the given name, and creates it if it does not exist yet.
+	 *
+	 * @param name
+	 *            the histogram name
+	 * @return the histogram
+	 */
+	public LatencyHistogram getHistogram(String name) {
+		Validate.notEmpty(name, "Name is empty!");
+		LatencyHistogram histogram = histograms.get(name);
+		if (histogram == null) {
+			histogram = new LatencyHistogram();
+			histograms.put(name, histogram);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Gets all histograms.
+	 *
+	 * @return an unmodifiable view on the histograms by name
+	 */
+	public Map<String, LatencyHistogram> getHistograms() {
+		return histogramsView;
+	}
+
+	/**
+	 * Gets the time since which the latencies are being recorded.
+	 *
+	 * @return the start time in milliseconds
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * Resets all histograms.
+	 */
+	public void reset() {
+		for (LatencyHistogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+		startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Writes the percentiles of all histograms to the given file, replacing its previous contents.
+	 *
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void dump(File file) throws IOException {
+		Validate.notNull(file, "File is null!");
+		long now = System.currentTimeMillis();
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, false))) {
+			writer.append("# Shopkeepers latencies, recorded from " + TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(startTime))
+					+ " to " + TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(now)) + " (all durations in ms)\n");
+			writer.append("NAME,COUNT,MEAN,P50,P90,P95,P99,P99.9,MAX\n");
+			for (Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+				LatencyHistogram histogram = entry.getValue();
+				writer.append(entry.getKey()
+						+ "," + histogram.getCount()
+						+ "," + format(histogram.getMean() * 1.0E-6D)
+						+ "," + format(histogram.getPercentileMillis(50.0D))
+						+ "," + format(histogram.getPercentileMillis(90.0D))
+						+ "," + format(histogram.getPercentileMillis(95.0D))
+						+ "," + format(histogram.getPercentileMillis(99.0D))
+						+ "," + format(histogram.getPercentileMillis(99.9D))
+						+ "," + format(histogram.getMaxMillis())
+						+ "\n");
+			}
+		}
+	}
+
+	private static String format(double millis) {
+		return String.format(Locale.ROOT, "%.3f", millis);
+	}
+}
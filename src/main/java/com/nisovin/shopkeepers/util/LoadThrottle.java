@@ -0,0 +1,134 @@
+package com.nisovin.shopkeepers.util;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.compat.api.NMSCallProvider;
+
+/**
+ * Evaluates the recent tick durations of the server and determines a throttle level, which can be used to scale down
+ * non-essential work while the server is under heavy load.
+ * <p>
+ * The tick durations are read from the server (via the {@link NMSCallProvider}). They only include the work done during
+ * the ticks, so that an increasing load is noticed before the server is no longer able to keep up with 20 ticks per
+ * second. If the server's tick durations are not available, no throttling takes place.
+ * <p>
+ * The throttle level gets raised by one level per second while the average tick duration exceeds the configured
+ * threshold. It only gets lowered again after the average tick duration stayed below the configured recovery threshold
+ * for several seconds.
+ * <ul>
+ * <li>Level 1: The AI of shop mobs gets ticked at half the rate.
+ * <li>Level 2: The AI of shop mobs is frozen. The activation of shop mobs near players and their falling checks get
+ * updated at half the rate. The activation of shopkeepers in freshly loaded chunks gets deferred and spread across
+ * ticks.
+ * <li>Level 3: Falling checks are performed at a quarter of the rate.
+ * </ul>
+ * Periodic shopkeeper checks get stretched by a factor of two per level.
+ */
+public class LoadThrottle {
+
+	public static final int MAX_LEVEL = 3;
+
+	private static final long EVALUATION_INTERVAL_TICKS = 20L;
+	// the number of consecutive evaluations below the recovery threshold required to lower the throttle level:
+	private static final int RECOVERY_EVALUATIONS = 5;
+
+	private final Plugin plugin;
+	private BukkitTask task = null;
+
+	private double averageTickMillis = 0.0D;
+	private int recoveryEvaluations = 0;
+	private int level = 0;
+
+	public LoadThrottle(Plugin plugin) {
+		Validate.notNull(plugin, "Plugin is null!");
+		this.plugin = plugin;
+	}
+
+	public void onEnable() {
+		if (!Settings.adaptiveThrottling) return;
+		if (!NMSManager.getProvider().supportsTickDurations()) {
+			Log.warning("Adaptive throttling is not supported: Could not access the tick durations of the server.");
+			return;
+		}
+		task = Bukkit.getScheduler().runTaskTimer(plugin, this::evaluate, EVALUATION_INTERVAL_TICKS, EVALUATION_INTERVAL_TICKS);
+	}
+
+	public void onDisable() {
+		if (task != null) {
+			task.cancel();
+			task = null;
+		}
+		// reset:
+		averageTickMillis = 0.0D;
+		recoveryEvaluations = 0;
+		level = 0;
+	}
+
+	private void evaluate() {
+		averageTickMillis = NMSManager.getProvider().getAverageTickMillis();
+		this.updateLevel();
+	}
+
+	private void updateLevel() {
+		if (averageTickMillis > Settings.throttleMsptThreshold) {
+			recoveryEvaluations = 0;
+			if (level < MAX_LEVEL) {
+				level++;
+				Log.debug("Server is under heavy load (" + Utils.DECIMAL_FORMAT.format(averageTickMillis)
+						+ " ms per tick): Raising throttle level to " + level);
+			}
+		} else if (level > 0 && averageTickMillis < Settings.throttleRecoveryMspt) {
+			recoveryEvaluations++;
+			if (recoveryEvaluations >= RECOVERY_EVALUATIONS) {
+				recoveryEvaluations = 0;
+				level--;
+				Log.debug("Server load recovered (" + Utils.DECIMAL_FORMAT.format(averageTickMillis)
+						+ " ms per tick): Lowering throttle level to " + level);
+			}
+		} else {
+			// keep the current level:
+			recoveryEvaluations = 0;
+		}
+	}
+
+	/**
+	 * Gets the current throttle level.
+	 *
+	 * @return the throttle level, between <code>0</code> (not throttled) and {@link #MAX_LEVEL}
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Gets the factor by which periodic checks shall be stretched at the current throttle level.
+	 *
+	 * @return the interval multiplier, <code>1</code> if not throttled
+	 */
+	public int getIntervalMultiplier() {
+		return (1 << level);
+	}
+
+	/**
+	 * Checks whether the activation of shopkeepers in freshly loaded chunks shall be deferred.
+	 *
+	 * @return <code>true</code> if chunk activations shall be deferred
+	 */
+	public boolean isDeferringChunkActivations() {
+		return (level >= 2);
+	}
+
+	/**
+	 * Gets the average tick duration of the server at the last evaluation.
+	 *
+	 * @return the average tick duration in milliseconds
+	 */
+	public double getAverageTickMillis() {
+		return averageTickMillis;
+	}
+}
@@ -20,9 +20,9 @@ import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersAPI;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
-import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
 import com.nisovin.shopkeepers.shopkeeper.ShopTypeCategory;
 
 /**
@@ -35,12 +35,14 @@ public class ShopkeeperUtils {
 
 	private static final int SHOPKEEPER_TARGET_RANGE = 10;
 
-	public static TradingRecipe getSelectedTradingRecipe(MerchantInventory merchantInventory) {
+	public static SKTradingRecipe getSelectedTradingRecipe(MerchantInventory merchantInventory) {
 		MerchantRecipe merchantRecipe = merchantInventory.getSelectedRecipe();
 		return createTradingRecipe(merchantRecipe);
 	}
 
-	public static TradingRecipe createTradingRecipe(MerchantRecipe merchantRecipe) {
+	// note: the items of the merchant recipe are not copied, so they must not get modified while the trading recipe is
+	// in use
+	public static SKTradingRecipe createTradingRecipe(MerchantRecipe merchantRecipe) {
 		if (merchantRecipe == null) return null;
 		List<ItemStack> ingredients = merchantRecipe.getIngredients();
 		ItemStack item1 = ingredients.get(0);
@@ -52,7 +54,7 @@ public class ShopkeeperUtils {
 			}
 		}
 		ItemStack resultItem = merchantRecipe.getResult();
-		return ShopkeepersAPI.createTradingRecipe(resultItem, item1, item2);
+		return new SKTradingRecipe(UnmodifiableItem.wrap(resultItem), UnmodifiableItem.wrap(item1), UnmodifiableItem.wrap(item2), false);
 	}
 
 	// note: this method considers the recipes equal even if their uses and max uses don't match
@@ -0,0 +1,184 @@
+package com.nisovin.shopkeepers.util;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * An unmodifiable item.
+ * <p>
+ * This allows internally stored items to be read without having to copy them. Unlike {@link ItemStack}, this cannot
+ * be passed to methods that expect an item stack, so it cannot be modified by accident. And since it is no
+ * {@link ItemStack} subclass, comparisons via {@link ItemStack#isSimilar(ItemStack)} are not affected by it either:
+ * CraftBukkit only considers items of the exact type {@link ItemStack} similar to its own items.
+ * <p>
+ * Use {@link #copy()} to get a regular item stack wherever the item gets handed out, stored elsewhere or saved.
+ */
+public final class UnmodifiableItem {
+
+	/**
+	 * Gets an unmodifiable copy of the given item.
+	 *
+	 * @param item
+	 *            the item, can be <code>null</code>
+	 * @return the unmodifiable item, or <code>null</code> if the given item is empty
+	 */
+	public static UnmodifiableItem of(ItemStack item) {
+		if (ItemUtils.isEmpty(item)) return null;
+		return new UnmodifiableItem(item.clone());
+	}
+
+	/**
+	 * Wraps the given item without copying it.
+	 * <p>
+	 * The given item must not be modified afterwards. This is meant for items which are not referenced elsewhere, or
+	 * whose owner does not modify them either.
+	 *
+	 * @param item
+	 *            the item, can be <code>null</code>
+	 * @return the unmodifiable item, or <code>null</code> if the given item is empty
+	 */
+	public static UnmodifiableItem wrap(ItemStack item) {
+		if (ItemUtils.isEmpty(item)) return null;
+		return new UnmodifiableItem(item);
+	}
+
+	/**
+	 * Creates a regular, modifiable copy of the given item.
+	 *
+	 * @param item
+	 *            the item, can be <code>null</code>
+	 * @return the copy, or <code>null</code> if the given item is <code>null</code>
+	 */
+	public static ItemStack copy(UnmodifiableItem item) {
+		return (item == null ? null : item.copy());
+	}
+
+	private final ItemStack item; // not null or empty, never handed out
+	private int similarityHash = 0; // lazily calculated, 0 if not yet calculated
+
+	private UnmodifiableItem(ItemStack item) {
+		this.item = item;
+	}
+
+	// only accessed by utilities that don't modify or store the item:
+	ItemStack getItemStack() {
+		return item;
+	}
+
+	public Material getType() {
+		return item.getType();
+	}
+
+	public int getAmount() {
+		return item.getAmount();
+	}
+
+	public int getMaxStackSize() {
+		return item.getMaxStackSize();
+	}
+
+	/**
+	 * Gets a copy of the item's meta data.
+	 *
+	 * @return the item meta
+	 * @see ItemStack#getItemMeta()
+	 */
+	public ItemMeta getItemMeta() {
+		return item.getItemMeta();
+	}
+
+	public boolean hasItemMeta() {
+		return item.hasItemMeta();
+	}
+
+	/**
+	 * Gets the {@link ItemUtils#getSimilarityHash(ItemStack) similarity hash} of this item.
+	 * <p>
+	 * Since the item does not get modified, the hash only gets calculated once.
+	 *
+	 * @return the similarity hash
+	 */
+	public int getSimilarityHash() {
+		int hash = similarityHash;
+		if (hash == 0) {
+			hash = ItemUtils.getSimilarityHash(item);
+			similarityHash = hash;
+		}
+		return hash;
+	}
+
+	/**
+	 * Checks if the given item is similar to this item.
+	 *
+	 * @param other
+	 *            the other item, can be <code>null</code>
+	 * @return <code>true</code> if similar
+	 * @see ItemStack#isSimilar(ItemStack)
+	 */
+	public boolean isSimilar(ItemStack other) {
+		return item.isSimilar(other);
+	}
+
+	/**
+	 * Checks if the given item is similar to this item.
+	 *
+	 * @param other
+	 *            the other item, can be <code>null</code>
+	 * @return <code>true</code> if similar
+	 */
+	public boolean isSimilar(UnmodifiableItem other) {
+		return (other != null && item.isSimilar(other.item));
+	}
+
+	/**
+	 * Checks if the given item is equal to this item, i.e. similar and of the same stack size.
+	 *
+	 * @param other
+	 *            the other item, can be <code>null</code>
+	 * @return <code>true</code> if equal
+	 * @see ItemStack#equals(Object)
+	 */
+	public boolean isEqual(ItemStack other) {
+		return item.equals(other);
+	}
+
+	/**
+	 * Creates a regular, modifiable copy of this item.
+	 *
+	 * @return the copy
+	 */
+	public ItemStack copy() {
+		return item.clone();
+	}
+
+	/**
+	 * Creates a regular, modifiable copy of this item with the given stack size.
+	 *
+	 * @param amount
+	 *            the stack size
+	 * @return the copy
+	 */
+	public ItemStack copy(int amount) {
+		ItemStack copy = item.clone();
+		copy.setAmount(amount);
+		return copy;
+	}
+
+	@Override
+	public int hashCode() {
+		return item.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof UnmodifiableItem)) return false;
+		return item.equals(((UnmodifiableItem) obj).item);
+	}
+
+	@Override
+	public String toString() {
+		return item.toString();
+	}
+}